@@ -1,15 +1,22 @@
 package study.querydsl;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
 import jakarta.persistence.Entity;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import study.querydsl.entity.Hello;
 import jakarta.persistence.EntityManager;
 
+import javax.sql.DataSource;
+
 @SpringBootApplication
+@EnableScheduling
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
@@ -21,4 +28,11 @@ public class QuerydslApplication {
 		return new JPAQueryFactory(em);
 	}
 
+	// 커넥션은 TransactionAwareDataSourceProxy 로 얻어서 JPA 트랜잭션이 있으면 같은 커넥션을 쓰고, close 는 스프링에 맡긴다
+	@Bean
+	SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+		com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(H2Templates.builder().build());
+		return new SQLQueryFactory(configuration, new TransactionAwareDataSourceProxy(dataSource));
+	}
+
 }
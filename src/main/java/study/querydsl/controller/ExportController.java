@@ -0,0 +1,42 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.service.MemberExportJob;
+import study.querydsl.service.MemberExportService;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final MemberExportService memberExportService;
+
+    @PostMapping("exports/members")
+    public ResponseEntity<MemberExportJob> exportMembers(@RequestParam(defaultValue = "4") int partitions,
+                                                         @RequestParam(defaultValue = "true") boolean concatenate) {
+        if (partitions < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            // partitions 는 커넥션 풀 크기까지만 쓴다 (응답의 partitions 가 실제 값)
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(memberExportService.start(partitions, concatenate));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10").build();
+        }
+    }
+
+    @GetMapping("exports/members/{id}")
+    public ResponseEntity<MemberExportJob> exportStatus(@PathVariable String id) {
+        MemberExportJob job = memberExportService.findJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+}
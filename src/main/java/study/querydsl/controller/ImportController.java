@@ -0,0 +1,43 @@
+package study.querydsl.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.service.MemberImportResult;
+import study.querydsl.service.MemberImportService;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+public class ImportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final MemberImportService memberImportService;
+
+    /**
+     * 본문을 @RequestBody 로 받으면 전부 메모리에 올라가므로 요청 InputStream 을 그대로 넘긴다
+     * - Content-Type: text/csv 또는 application/x-ndjson
+     */
+    @PostMapping(value = "imports/members", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<MemberImportResult> importMembers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                            HttpServletRequest request) throws IOException {
+        MemberImportService.Format format = NDJSON.includes(contentType)
+                ? MemberImportService.Format.NDJSON : MemberImportService.Format.CSV;
+        MemberImportResult result;
+        try {
+            result = memberImportService.importMembers(request.getInputStream(), format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.status(result.getError() != null ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK)
+                .body(result);
+    }
+}
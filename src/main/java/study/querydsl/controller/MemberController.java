@@ -1,35 +1,87 @@
 package study.querydsl.controller;
 
+import jakarta.persistence.QueryTimeoutException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamPage;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
-import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.MemberSearchService;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    // compact 응답은 Accept 헤더로 JSON / CBOR / Smile 중 하나를 고른다 (기본 JSON)
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    // by-usernames 요청 한 번에 받는 username 최대 개수 (넘으면 400)
+    static final int MAX_USERNAMES = 1000;
+
     private final MemberJpaRepository memberJpaRepository;
 
-    private final MemberRepository memberRepository;
+    private final MemberSearchService memberSearchService;
 
+    // 검색은 Callable 로 비동기 처리한다. 클라이언트가 연결을 끊으면 실행 중인 쿼리를 취소한다 (QueryCancellationInterceptor)
+    // fields=memberId,username 처럼 필요한 필드만 고르면 그 컬럼만 조회하고 응답에도 그 필드만 쓴다 (SparseFieldsBodyAdvice)
     @GetMapping("v1/members")
-    public List<MemberTeamDto> membersV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public Callable<List<MemberTeamDto>> membersV1(MemberSearchCondition condition) {
+        return () -> memberSearchService.search(condition);
     }
     @GetMapping("v2/members")
-    public Page<MemberTeamDto> membersV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Callable<Page<MemberTeamDto>> membersV2(MemberSearchCondition condition, Pageable pageable) {
+        return () -> memberSearchService.searchPageSimple(condition, pageable);
     }
     @GetMapping("v3/members")
-    public Page<MemberTeamDto> membersV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Callable<Page<MemberTeamDto>> membersV3(MemberSearchCondition condition, Pageable pageable) {
+        return () -> memberSearchService.searchPageComplex(condition, pageable);
+    }
+    @GetMapping(value = "v2/members/compact",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE})
+    public Callable<MemberTeamPage> membersV2Compact(MemberSearchCondition condition, Pageable pageable) {
+        return () -> MemberTeamPage.of(memberSearchService.searchPageSimple(condition, pageable), condition.getFields());
+    }
+    @GetMapping(value = "v3/members/compact",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, SMILE_VALUE})
+    public Callable<MemberTeamPage> membersV3Compact(MemberSearchCondition condition, Pageable pageable) {
+        return () -> MemberTeamPage.of(memberSearchService.searchPageComplex(condition, pageable), condition.getFields());
+    }
+    // username 목록을 한 번에 조회 (요청 본문: ["member1", "member2", ...], 최대 MAX_USERNAMES 개)
+    @PostMapping("v1/members/by-usernames")
+    public Callable<Map<String, List<MemberDto>>> membersByUsernames(@RequestBody List<String> usernames) {
+        if (usernames.size() > MAX_USERNAMES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "usernames 는 최대 " + MAX_USERNAMES + "개까지 요청할 수 있습니다");
+        }
+        return () -> {
+            Map<String, List<MemberDto>> result = new LinkedHashMap<>();
+            memberJpaRepository.findByUsernames(usernames).forEach((username, members) ->
+                    result.put(username, members.stream()
+                            .map(m -> new MemberDto(m.getUsername(), m.getAge()))
+                            .toList()));
+            return result;
+        };
+    }
+
+    @ExceptionHandler({QueryTimeoutException.class, org.springframework.dao.QueryTimeoutException.class})
+    public ResponseEntity<String> queryTimeout(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("query timeout");
     }
 }
@@ -0,0 +1,28 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.QueryStatDto;
+import study.querydsl.monitor.QueryStatsCollector;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class QueryStatsController {
+
+    private final QueryStatsCollector queryStatsCollector;
+
+    @GetMapping("admin/query-stats")
+    public List<QueryStatDto> queryStats(@RequestParam(defaultValue = "20") int limit) {
+        return queryStatsCollector.top(limit);
+    }
+
+    @DeleteMapping("admin/query-stats")
+    public void resetQueryStats() {
+        queryStatsCollector.reset();
+    }
+}
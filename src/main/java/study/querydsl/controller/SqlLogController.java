@@ -0,0 +1,29 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.RecentSqlDto;
+import study.querydsl.monitor.SqlLogListener;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "querydsl.sql-log.enabled", havingValue = "true")
+public class SqlLogController {
+
+    private final SqlLogListener sqlLogListener;
+
+    @GetMapping("admin/sql-log/recent")
+    public List<RecentSqlDto> recent() {
+        return sqlLogListener.recent();
+    }
+
+    @PostMapping("admin/sql-log/dump")
+    public int dump() {
+        return sqlLogListener.dump("on demand");
+    }
+}
@@ -0,0 +1,49 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.dto.TeamSummaryDto;
+import study.querydsl.repository.TeamMemberCountRepository;
+import study.querydsl.repository.TeamQueryRepository;
+import study.querydsl.repository.TeamSummaryRepository;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamSummaryRepository teamSummaryRepository;
+    private final TeamMemberCountRepository teamMemberCountRepository;
+    private final TeamQueryRepository teamQueryRepository;
+
+    @GetMapping("teams")
+    public Page<TeamMembersDto> teams(Pageable pageable) {
+        return teamQueryRepository.findTeamsWithMembers(pageable);
+    }
+
+    @GetMapping("teams/summary")
+    public List<TeamSummaryDto> teamSummaries() {
+        return teamSummaryRepository.findAll();
+    }
+
+    @GetMapping("teams/summary/check")
+    public List<String> checkTeamSummaries() {
+        return teamSummaryRepository.checkConsistency();
+    }
+
+    @GetMapping("teams/{teamId}/member-count")
+    public long memberCount(@PathVariable Long teamId) {
+        return teamMemberCountRepository.count(teamId);
+    }
+
+    @GetMapping("teams/member-count/check")
+    public List<String> checkMemberCounts() {
+        return teamMemberCountRepository.checkConsistency();
+    }
+}
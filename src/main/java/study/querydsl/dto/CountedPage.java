@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * total 이 정확한 값인지(totalExact) 함께 담는 PageImpl
+ * - 근사치(MemberTotalEstimator)로 채운 total 이면 totalExact = false → 화면에는 "약 N 건" 으로 보여준다
+ * - 응답 JSON 에는 PageImpl 필드와 함께 totalExact 가 나간다
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    /**
+     * CountedPage 가 아닌 Page 는 정확한 total 로 본다
+     */
+    public static boolean isTotalExact(Page<?> page) {
+        return !(page instanceof CountedPage<?> counted) || counted.totalExact;
+    }
+}
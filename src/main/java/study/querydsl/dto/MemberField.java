@@ -0,0 +1,61 @@
+package study.querydsl.dto;
+
+import java.util.Set;
+
+/**
+ * 회원 검색 응답에서 고를 수 있는 필드 (fields=memberId,username)
+ * - property 는 MemberTeamDto 의 JSON 필드 이름
+ * - teamName 을 고르지 않고 teamName 조건도 없으면 team 조인을 하지 않는다 (teamId 는 member 의 FK 로 읽는다)
+ */
+public enum MemberField {
+    MEMBER_ID("memberId", false),
+    USERNAME("username", false),
+    AGE("age", false),
+    TEAM_ID("teamId", false),
+    TEAM_NAME("teamName", true);
+
+    /**
+     * MemberTeamDto 의 @JsonFilter id
+     */
+    public static final String FILTER = "memberFields";
+
+    private final String property;
+    private final boolean teamJoin;
+
+    MemberField(String property, boolean teamJoin) {
+        this.property = property;
+        this.teamJoin = teamJoin;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * 이 필드를 읽으려면 team 을 조인해야 하는지
+     */
+    public boolean needsTeamJoin() {
+        return teamJoin;
+    }
+
+    /**
+     * 요청 파라미터 값(JSON 필드 이름)으로 찾는다
+     *
+     * @throws IllegalArgumentException 없는 필드 이름
+     */
+    public static MemberField fromProperty(String property) {
+        for (MemberField field : values()) {
+            if (field.property.equals(property.strip())) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("unknown member field: " + property);
+    }
+
+    /**
+     * fields 가 비어 있으면(지정하지 않으면) 모든 필드를 포함한 것으로 본다
+     */
+    public static boolean includes(Set<MemberField> fields, MemberField field) {
+        return fields == null || fields.isEmpty() || fields.contains(field);
+    }
+}
@@ -2,11 +2,14 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.Set;
+
 @Data
 public class MemberSearchCondition {
     private String username;
     private String teamName;
     private Integer ageGoe; // >=
     private Integer ageLoe; // <=
+    private Set<MemberField> fields; // 조회/응답할 필드 (비어 있으면 전부)
 
 }
@@ -0,0 +1,22 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class MemberTeamAvgDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    private Long teamId;
+    private String teamName;
+    private double teamAvgAge;
+
+    public MemberTeamAvgDto(Long memberId, String username, int age, Long teamId, String teamName, double teamAvgAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.teamAvgAge = teamAvgAge;
+    }
+}
@@ -1,9 +1,14 @@
 package study.querydsl.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 
+/**
+ * fields 요청 파라미터로 고른 필드만 직렬화한다 (SparseFieldsBodyAdvice 가 MemberField.FILTER 를 채운다)
+ */
 @Data
+@JsonFilter(MemberField.FILTER)
 public class MemberTeamDto {
     private Long memberId;
     private String username;
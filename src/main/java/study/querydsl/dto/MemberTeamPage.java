@@ -0,0 +1,49 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PageImpl 대신 쓰는 가벼운 페이지 응답
+ * - pageable/sort 메타데이터 없이 content, total, page, size, next 만 내려준다
+ * - next: 다음 페이지 번호 (마지막 페이지면 null)
+ * - totalExact: total 이 근사치면 false (CountedPage)
+ * - 직렬화는 MemberTeamPageSerializer 가 JsonGenerator 로 직접 쓴다 (JSON/CBOR/Smile 공통)
+ * - fields 를 지정하면 content 항목에 그 필드만 쓴다 (비어 있으면 전부)
+ */
+@Getter
+@JsonSerialize(using = MemberTeamPageSerializer.class)
+public class MemberTeamPage {
+    private final List<MemberTeamDto> content;
+    private final long total;
+    private final boolean totalExact;
+    private final int page;
+    private final int size;
+    private final Integer next;
+    private final Set<MemberField> fields;
+
+    public MemberTeamPage(List<MemberTeamDto> content, long total, boolean totalExact, int page, int size,
+                          Integer next, Set<MemberField> fields) {
+        this.content = content;
+        this.total = total;
+        this.totalExact = totalExact;
+        this.page = page;
+        this.size = size;
+        this.next = next;
+        this.fields = fields == null || fields.isEmpty() ? EnumSet.allOf(MemberField.class) : EnumSet.copyOf(fields);
+    }
+
+    public static MemberTeamPage of(Page<MemberTeamDto> page) {
+        return of(page, null);
+    }
+
+    public static MemberTeamPage of(Page<MemberTeamDto> page, Set<MemberField> fields) {
+        return new MemberTeamPage(page.getContent(), page.getTotalElements(), CountedPage.isTotalExact(page),
+                page.getNumber(), page.getSize(), page.hasNext() ? page.getNumber() + 1 : null, fields);
+    }
+}
@@ -0,0 +1,99 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MemberTeamPage 전용 직렬화기
+ * - 리플렉션/빈 introspection 없이 필드를 순서대로 JsonGenerator 에 바로 쓴다
+ * - 필드 이름은 미리 인코딩된 SerializedString 을 재사용한다
+ */
+public class MemberTeamPageSerializer extends StdSerializer<MemberTeamPage> {
+
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString TOTAL = new SerializedString("total");
+    private static final SerializedString TOTAL_EXACT = new SerializedString("totalExact");
+    private static final SerializedString PAGE = new SerializedString("page");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString NEXT = new SerializedString("next");
+
+    private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString TEAM_ID = new SerializedString("teamId");
+    private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+    public MemberTeamPageSerializer() {
+        super(MemberTeamPage.class);
+    }
+
+    @Override
+    public void serialize(MemberTeamPage page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+
+        gen.writeFieldName(CONTENT);
+        List<MemberTeamDto> content = page.getContent();
+        gen.writeStartArray(content, content.size());
+        Set<MemberField> fields = page.getFields();
+        for (MemberTeamDto dto : content) {
+            writeMemberTeam(dto, fields, gen);
+        }
+        gen.writeEndArray();
+
+        gen.writeFieldName(TOTAL);
+        gen.writeNumber(page.getTotal());
+        gen.writeFieldName(TOTAL_EXACT);
+        gen.writeBoolean(page.isTotalExact());
+        gen.writeFieldName(PAGE);
+        gen.writeNumber(page.getPage());
+        gen.writeFieldName(SIZE);
+        gen.writeNumber(page.getSize());
+        gen.writeFieldName(NEXT);
+        if (page.getNext() != null) {
+            gen.writeNumber(page.getNext());
+        } else {
+            gen.writeNull();
+        }
+
+        gen.writeEndObject();
+    }
+
+    static void writeMemberTeam(MemberTeamDto dto, Set<MemberField> fields, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(dto);
+        if (fields.contains(MemberField.MEMBER_ID)) {
+            gen.writeFieldName(MEMBER_ID);
+            writeNullableNumber(dto.getMemberId(), gen);
+        }
+        if (fields.contains(MemberField.USERNAME)) {
+            gen.writeFieldName(USERNAME);
+            gen.writeString(dto.getUsername());
+        }
+        if (fields.contains(MemberField.AGE)) {
+            gen.writeFieldName(AGE);
+            gen.writeNumber(dto.getAge());
+        }
+        if (fields.contains(MemberField.TEAM_ID)) {
+            gen.writeFieldName(TEAM_ID);
+            writeNullableNumber(dto.getTeamId(), gen);
+        }
+        if (fields.contains(MemberField.TEAM_NAME)) {
+            gen.writeFieldName(TEAM_NAME);
+            gen.writeString(dto.getTeamName());
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeNullableNumber(Long value, JsonGenerator gen) throws IOException {
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class QueryStatDto {
+    private String fingerprint;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long rows;
+
+    public QueryStatDto(String fingerprint, long count, long totalNanos, long maxNanos, long rows) {
+        this.fingerprint = fingerprint;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.rows = rows;
+    }
+
+    public double getAvgMillis() {
+        return count > 0 ? totalNanos / 1_000_000.0 / count : 0;
+    }
+}
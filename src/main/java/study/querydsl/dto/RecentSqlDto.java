@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class RecentSqlDto {
+    private long sequence;
+    private long timestamp; // epoch millis
+    private long elapsedNanos;
+    private boolean failed;
+    private String sql; // 바인딩 값 없는 SQL
+
+    public RecentSqlDto(long sequence, long timestamp, long elapsedNanos, boolean failed, String sql) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.elapsedNanos = elapsedNanos;
+        this.failed = failed;
+        this.sql = sql;
+    }
+}
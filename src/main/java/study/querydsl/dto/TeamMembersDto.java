@@ -0,0 +1,18 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TeamMembersDto {
+    private Long teamId;
+    private String teamName;
+    private List<MemberDto> members;
+
+    public TeamMembersDto(Long teamId, String teamName, List<MemberDto> members) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.members = members;
+    }
+}
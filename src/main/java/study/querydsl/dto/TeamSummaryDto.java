@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamSummaryDto {
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private Double avgAge; // 소속 회원이 없으면 null
+    private Integer minAge;
+    private Integer maxAge;
+
+    public TeamSummaryDto(Long teamId, String teamName, long memberCount, long ageSum, Integer minAge, Integer maxAge) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.avgAge = memberCount > 0 ? (double) ageSum / memberCount : null;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+}
@@ -3,13 +3,21 @@ package study.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.querydsl.entity.id.BlockSequenceGenerator;
 
 @Entity
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of={"id","username","age"})
 public class Member {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", type = BlockSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name="member_id")
     private Long id;
     private String username;
@@ -33,8 +41,20 @@ public class Member {
     public Member(String username, int age) {
         this(username, age, null);
     }
+    /**
+     * 연관관계 편의 메서드. FK 는 Member 쪽이 관리하므로 team.members 는 이미 메모리에 있을 때만 맞춘다
+     * - 초기화 안 된 Team 프록시에서 getMembers() 를 부르면 팀을 SELECT 하므로 건드리지 않는다
+     * - 새 팀: 로딩 전 members 에 add 하면 Hibernate 가 (mappedBy bag 이라) 초기화 없이 큐에 쌓아 둔다
+     * - 이전 팀: remove 는 컬렉션 전체를 초기화하므로 이미 로딩된 경우에만 뺀다
+     */
     public void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team)
+                && Hibernate.isInitialized(this.team.getMembers())) {
+            this.team.getMembers().remove(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        if (team != null && Hibernate.isInitialized(team)) {
+            team.getMembers().add(this);
+        }
     }
 }
@@ -2,6 +2,10 @@ package study.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import study.querydsl.entity.id.BlockSequenceGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,11 +16,23 @@ import java.util.List;
 @ToString(of={"id","name"})
 public class Team {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "team_seq")
+    @GenericGenerator(name = "team_seq", type = BlockSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "team_seq"))
     @Column(name="team_id")
     private Long id;
 
     private String name;
+
+    /**
+     * 팀 회원 수 (비정규화)
+     * - 가입/탈퇴는 team_member_count_delta 에 쌓이고 TeamMemberCountRepository.merge 가 주기적으로 한 번에 더한다
+     * - 엔티티 update 로는 쓰지 않는다 (updatable = false). 최신 값은 TeamMemberCountRepository.count 로 조회
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "member_count", nullable = false, updatable = false)
+    private long memberCount;
+
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
@@ -0,0 +1,28 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 아직 Team.memberCount 에 더해지지 않은 회원 수 변경분
+ * - 가입/탈퇴 트랜잭션 안에서 insert 만 한다 (team 행을 잠그지 않는다)
+ * - TeamMemberCountRepository.merge 가 팀별로 합쳐 member_count 에 더하고 지운다
+ * - team 에 FK 를 걸지 않는다. 팀이 먼저 지워진 delta 는 다음 merge 에서 그냥 지워진다
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "team_member_count_delta", indexes = @Index(name = "idx_team_member_count_delta_team", columnList = "team_id"))
+public class TeamMemberCountDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "delta_id")
+    private Long id;
+
+    @Column(name = "team_id", nullable = false)
+    private Long teamId;
+
+    private long delta;
+}
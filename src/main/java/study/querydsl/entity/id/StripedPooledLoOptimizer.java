@@ -0,0 +1,103 @@
+package study.querydsl.entity.id;
+
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * pooled-lo 방식 id 블록을 스트라이프별로 나눠 잠금 없이 내주는 Optimizer
+ * - 시퀀스 값 v 하나가 [v, v + incrementSize) 블록이다 (시퀀스는 increment by incrementSize)
+ *   → 여러 노드가 같은 DB 시퀀스를 써도 블록이 겹치지 않는다
+ * - 스레드 id 로 스트라이프를 고르고, 스트라이프의 현재 블록에서 getAndIncrement 로 하나씩 꺼낸다
+ *   Hibernate 기본 optimizer 들은 generate 가 synchronized 라 동시 insert 가 여기서 줄을 선다
+ * - 블록이 바닥나면 잠금 없이 새 블록을 받아 CAS 로 바꿔 끼운다. 두 스레드가 동시에 받으면 진 쪽 블록은 버린다
+ *   (시퀀스 id 는 원래 빈 번호를 허용한다)
+ * - id 는 스트라이프마다 증가하지만 전체로는 삽입 순서와 다를 수 있다
+ */
+public class StripedPooledLoOptimizer implements Optimizer {
+
+    private static final Range EXHAUSTED = new Range(0, 0);
+
+    private final Class<?> returnClass;
+    private final int incrementSize;
+    private final AtomicReferenceArray<Range> ranges;
+    private final int mask;
+    private volatile IntegralDataTypeHolder lastSourceValue;
+
+    /**
+     * OptimizerFactory 가 (반환 타입, incrementSize) 생성자로 만든다
+     */
+    public StripedPooledLoOptimizer(Class<?> returnClass, int incrementSize) {
+        this(returnClass, incrementSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedPooledLoOptimizer(Class<?> returnClass, int incrementSize, int stripes) {
+        if (incrementSize < 1) {
+            throw new IllegalArgumentException("incrementSize must be positive: " + incrementSize);
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.returnClass = returnClass;
+        this.incrementSize = incrementSize;
+        this.ranges = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ranges.set(i, EXHAUSTED);
+        }
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback) {
+        int index = (int) Thread.currentThread().getId() & mask;
+        while (true) {
+            Range range = ranges.get(index);
+            long id = range.next.getAndIncrement();
+            if (id < range.hi) {
+                return toReturnType(id);
+            }
+            IntegralDataTypeHolder value = callback.getNextValue();
+            lastSourceValue = value;
+            long lo = value.makeValue().longValue();
+            ranges.compareAndSet(index, range, new Range(lo, lo + incrementSize));
+        }
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue() {
+        return lastSourceValue;
+    }
+
+    @Override
+    public int getIncrementSize() {
+        return incrementSize;
+    }
+
+    @Override
+    public boolean applyIncrementSizeToSourceValues() {
+        return true;
+    }
+
+    private Serializable toReturnType(long id) {
+        if (returnClass == Long.class || returnClass == long.class) {
+            return id;
+        }
+        return (Serializable) IdentifierGeneratorHelper.getIntegralDataTypeHolder(returnClass).initialize(id).makeValue();
+    }
+
+    /**
+     * [next, hi) 범위의 남은 id
+     */
+    private static final class Range {
+        final AtomicLong next;
+        final long hi;
+
+        Range(long lo, long hi) {
+            this.next = new AtomicLong(lo);
+            this.hi = hi;
+        }
+    }
+}
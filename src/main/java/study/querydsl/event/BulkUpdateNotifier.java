@@ -0,0 +1,38 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * 벌크 연산(queryFactory.update/delete) 후 PostCommitEntityListener 들에게 onBulkUpdate 를 전달한다
+ * - 트랜잭션 안이면 커밋된 뒤에 전달하고, 롤백되면 전달하지 않는다
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkUpdateNotifier {
+
+    private final List<PostCommitEntityListener> listeners;
+
+    public void afterCommit(Class<?> entityType) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifyListeners(entityType);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifyListeners(entityType);
+            }
+        });
+    }
+
+    private void notifyListeners(Class<?> entityType) {
+        for (PostCommitEntityListener listener : listeners) {
+            listener.onBulkUpdate(entityType);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.event;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member/Team 데이터 버전
+ * - 커밋된 변경이 있을 때마다 단조 증가한다 (DataVersionEventListener)
+ * - 재시작하면 시작 시각부터 다시 센다 → 이전 프로세스가 발급한 ETag 와 겹치지 않는다
+ * - 벌크 연산(queryFactory.update/delete)은 BulkUpdateNotifier 로 알리면 커밋 후 올라간다
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    public long bump() {
+        return version.incrementAndGet();
+    }
+}
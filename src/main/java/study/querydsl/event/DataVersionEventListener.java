@@ -0,0 +1,44 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@Component
+@RequiredArgsConstructor
+public class DataVersionEventListener implements PostCommitEntityListener {
+
+    private final DataVersion dataVersion;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onBulkUpdate(Class<?> entityType) {
+        if (entityType == Member.class || entityType == Team.class) {
+            dataVersion.bump();
+        }
+    }
+
+    private void bumpIfTracked(Object entity) {
+        if (entity instanceof Member || entity instanceof Team) {
+            dataVersion.bump();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.event;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 스프링 빈으로 등록된 PostCommitEntityListener 를 Hibernate 이벤트 레지스트리에 연결한다
+ * - TeamMemberCountDeltaListener 는 커밋 전(flush 시점) 이벤트에 연결한다
+ */
+@Configuration
+@RequiredArgsConstructor
+public class HibernateEventListenerConfig {
+
+    private final EntityManagerFactory emf;
+    private final List<PostCommitEntityListener> listeners;
+    private final TeamMemberCountDeltaListener teamMemberCountDeltaListener;
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        for (PostCommitEntityListener listener : listeners) {
+            registry.getEventListenerGroup(EventType.POST_COMMIT_INSERT).appendListener(listener);
+            registry.getEventListenerGroup(EventType.POST_COMMIT_UPDATE).appendListener(listener);
+            registry.getEventListenerGroup(EventType.POST_COMMIT_DELETE).appendListener(listener);
+        }
+        registry.getEventListenerGroup(EventType.POST_INSERT).appendListener(teamMemberCountDeltaListener);
+        registry.getEventListenerGroup(EventType.POST_UPDATE).appendListener(teamMemberCountDeltaListener);
+        registry.getEventListenerGroup(EventType.POST_DELETE).appendListener(teamMemberCountDeltaListener);
+    }
+}
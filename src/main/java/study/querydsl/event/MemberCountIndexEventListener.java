@@ -0,0 +1,93 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.invalidation.InvalidationMessage;
+import study.querydsl.repository.MemberCountIndex;
+
+import java.util.List;
+
+import static study.querydsl.event.PostCommitEntityListener.propertyValue;
+
+/**
+ * 커밋된 Member/Team 변경을 MemberCountIndex 에 반영한다
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCountIndexEventListener implements PostCommitEntityListener {
+
+    private final MemberCountIndex index;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            index.teamSaved(team.getId(), team.getName());
+        } else if (event.getEntity() instanceof Member member) {
+            index.memberAdded(member.getId(), teamId(member.getTeam()), member.getAge());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            index.teamSaved(team.getId(), team.getName());
+            return;
+        }
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            index.markStale();
+            return;
+        }
+        index.memberChanged((Long) event.getId(),
+                teamId((Team) propertyValue(event.getPersister(), oldState, "team")),
+                (Integer) propertyValue(event.getPersister(), oldState, "age"),
+                teamId((Team) propertyValue(event.getPersister(), event.getState(), "team")),
+                (Integer) propertyValue(event.getPersister(), event.getState(), "age"));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            index.teamRemoved((Long) event.getId());
+        } else if (event.getEntity() instanceof Member) {
+            Integer age = (Integer) propertyValue(event.getPersister(), event.getDeletedState(), "age");
+            index.memberRemoved((Long) event.getId(),
+                    teamId((Team) propertyValue(event.getPersister(), event.getDeletedState(), "team")),
+                    age != null ? age : 0);
+        }
+    }
+
+    @Override
+    public void onBulkUpdate(Class<?> entityType) {
+        if (entityType == Member.class || entityType == Team.class) {
+            index.markStale();
+        }
+    }
+
+    /**
+     * 다른 노드의 id entry 는 그 행만 다시 읽는다. 전체(all)이거나 id 가 너무 많으면 stale 로 두고 다시 적재한다
+     */
+    @Override
+    public void onRemoteInvalidation(InvalidationMessage.Entry entry) {
+        List<Long> ids = PostCommitEntityListener.reloadIds(entry);
+        if (ids == null) {
+            onBulkUpdate(entry.entityType());
+        } else if (entry.entityType() == Member.class) {
+            index.reloadMembers(ids);
+        } else if (entry.entityType() == Team.class) {
+            index.reloadTeams(ids);
+        }
+    }
+
+    private static Long teamId(Team team) {
+        return team != null ? team.getId() : null;
+    }
+}
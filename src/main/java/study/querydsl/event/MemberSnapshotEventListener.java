@@ -0,0 +1,86 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.invalidation.InvalidationMessage;
+import study.querydsl.repository.MemberSnapshotRepository;
+import study.querydsl.repository.snapshot.MemberRow;
+import study.querydsl.repository.snapshot.MemberSnapshotStore;
+
+import java.util.List;
+
+import static study.querydsl.event.PostCommitEntityListener.propertyValue;
+
+/**
+ * 커밋된 Member/Team 변경을 MemberSnapshotStore 에 반영한다 (스냅샷이 적재되지 않았으면 무시된다)
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberSnapshotEventListener implements PostCommitEntityListener {
+
+    private final MemberSnapshotStore store;
+    private final MemberSnapshotRepository repository;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            store.teamSaved(team.getId(), team.getName());
+        } else if (event.getEntity() instanceof Member member) {
+            store.memberSaved(new MemberRow(member.getId(), member.getUsername(), member.getAge(),
+                    teamId(member.getTeam())));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            store.teamSaved(team.getId(), team.getName());
+        } else if (event.getEntity() instanceof Member) {
+            Object[] state = event.getState();
+            store.memberSaved(new MemberRow((Long) event.getId(),
+                    (String) propertyValue(event.getPersister(), state, "username"),
+                    (Integer) propertyValue(event.getPersister(), state, "age"),
+                    teamId((Team) propertyValue(event.getPersister(), state, "team"))));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            store.teamRemoved((Long) event.getId());
+        } else if (event.getEntity() instanceof Member) {
+            store.memberRemoved((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onBulkUpdate(Class<?> entityType) {
+        if (entityType == Member.class || entityType == Team.class) {
+            store.markStale();
+        }
+    }
+
+    /**
+     * 다른 노드의 id entry 는 그 행만 다시 읽는다. 전체(all)이거나 id 가 너무 많으면 stale 로 두고 다시 적재한다
+     */
+    @Override
+    public void onRemoteInvalidation(InvalidationMessage.Entry entry) {
+        List<Long> ids = PostCommitEntityListener.reloadIds(entry);
+        if (ids == null) {
+            onBulkUpdate(entry.entityType());
+        } else if (entry.entityType() == Member.class) {
+            repository.reloadMembers(ids);
+        } else if (entry.entityType() == Team.class) {
+            repository.reloadTeams(ids);
+        }
+    }
+
+    private static Long teamId(Team team) {
+        return team != null ? team.getId() : null;
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.event;
+
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import study.querydsl.event.invalidation.InvalidationMessage;
+
+import java.util.List;
+
+/**
+ * 커밋이 성공한 엔티티 변경만 전달받는 Hibernate 리스너
+ * - 롤백된 트랜잭션의 변경은 전달되지 않는다
+ * - 빈으로 등록하면 HibernateEventListenerConfig 가 insert/update/delete 그룹에 모두 붙여준다
+ * - 벌크 연산(queryFactory.update/delete)은 영속성 컨텍스트를 거치지 않으므로 행 단위 이벤트가 발생하지 않는다
+ *   → 벌크 연산을 실행한 쪽이 BulkUpdateNotifier 로 알리면 커밋 후 onBulkUpdate 가 호출된다
+ * - 다른 노드의 변경은 무효화 버스를 켜면 onRemoteInvalidation 으로 전달된다
+ */
+public interface PostCommitEntityListener extends PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    /**
+     * 다른 노드의 id entry 를 행 단위로 다시 읽는 최대 id 수. 넘으면 전체를 다시 적재하는 편이 싸다
+     */
+    int REMOTE_RELOAD_LIMIT = 4096;
+
+    @Override
+    default void onPostInsert(PostInsertEvent event) {
+    }
+
+    @Override
+    default void onPostUpdate(PostUpdateEvent event) {
+    }
+
+    @Override
+    default void onPostDelete(PostDeleteEvent event) {
+    }
+
+    @Override
+    default void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    default void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    default void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    /**
+     * entityType 테이블에 대한 벌크 연산이 커밋된 뒤 호출된다. 어떤 행이 바뀌었는지는 알 수 없다
+     */
+    default void onBulkUpdate(Class<?> entityType) {
+    }
+
+    /**
+     * 다른 노드에서 커밋된 변경 (InvalidationReceiver). 행 데이터가 없으므로 기본은 벌크 연산과 같이 처리한다
+     * - id 가 실린 entry 는 InvalidationReceiver 가 remote-debounce 동안 모아 합친 뒤 한 번 보낸다
+     * - 전체(all) entry 는 다른 노드의 벌크 연산이나 빠진 메시지(version 건너뜀)일 때만 오고 바로 전달된다
+     * - 메모리에 행을 들고 있는 리스너는 재정의해서 reloadIds(entry) 의 행만 DB 에서 다시 읽어 반영한다
+     * - 회원 entry 에는 그 회원이 드나든 팀 id 가 Team entry 로 함께 온다 (InvalidationPublisher)
+     */
+    default void onRemoteInvalidation(InvalidationMessage.Entry entry) {
+        onBulkUpdate(entry.entityType());
+    }
+
+    @Override
+    default boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    /**
+     * 다른 노드의 entry 에서 다시 읽을 id. all 이거나 REMOTE_RELOAD_LIMIT 보다 많으면 null → 전체를 다시 적재한다
+     */
+    static List<Long> reloadIds(InvalidationMessage.Entry entry) {
+        if (entry.all() || entry.size() > REMOTE_RELOAD_LIMIT) {
+            return null;
+        }
+        return entry.ids();
+    }
+
+    /**
+     * 이벤트의 상태 배열에서 프로퍼티 값을 꺼낸다
+     */
+    static Object propertyValue(EntityPersister persister, Object[] state, String propertyName) {
+        if (state == null) {
+            return null;
+        }
+        return state[persister.getEntityMetamodel().getPropertyIndex(propertyName)];
+    }
+}
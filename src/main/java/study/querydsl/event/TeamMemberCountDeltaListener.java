@@ -0,0 +1,110 @@
+package study.querydsl.event;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.event.PostCommitEntityListener.propertyValue;
+
+/**
+ * 회원 가입/팀 이동/탈퇴를 같은 트랜잭션 안에서 team_member_count_delta 행으로 남긴다
+ * - 커밋 후 이벤트가 아니라 flush 시점 이벤트라서 member 변경과 delta 가 함께 커밋되거나 함께 롤백된다
+ * - 세션(트랜잭션)마다 팀별로 합쳐 두었다가 커밋 직전에 팀당 한 행씩 batch insert 한다
+ */
+@Component
+public class TeamMemberCountDeltaListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    private static final String INSERT_DELTA = "insert into team_member_count_delta (team_id, delta) values (?, ?)";
+
+    private final Map<SharedSessionContractImplementor, Map<Long, Long>> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member member) {
+            add(event.getSession(), teamId(member.getTeam()), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            // oldState 가 없으면 (detached merge 등) 팀 변경을 알 수 없다 → 커밋 후 TeamMemberCountEventListener 가 stale 처리
+            return;
+        }
+        Long oldTeamId = teamId((Team) propertyValue(event.getPersister(), event.getOldState(), "team"));
+        Long newTeamId = teamId((Team) propertyValue(event.getPersister(), event.getState(), "team"));
+        if (!Objects.equals(oldTeamId, newTeamId)) {
+            add(event.getSession(), oldTeamId, -1);
+            add(event.getSession(), newTeamId, 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            add(event.getSession(), teamId((Team) propertyValue(event.getPersister(), event.getDeletedState(), "team")), -1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void add(EventSource session, Long teamId, long delta) {
+        if (teamId == null) {
+            return;
+        }
+        Map<Long, Long> deltas = pending.get(session);
+        if (deltas == null) {
+            deltas = new HashMap<>();
+            pending.put(session, deltas);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::writeDeltas);
+            // 롤백되면 writeDeltas 가 불리지 않으므로 여기서 버린다
+            session.getActionQueue().registerProcess(
+                    (AfterTransactionCompletionProcess) (success, s) -> pending.remove(s));
+        }
+        deltas.merge(teamId, delta, Long::sum);
+    }
+
+    private void writeDeltas(SharedSessionContractImplementor session) {
+        Map<Long, Long> deltas = pending.remove(session);
+        if (deltas == null || deltas.values().stream().allMatch(delta -> delta == 0)) {
+            return;
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_DELTA)) {
+                for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                    if (entry.getValue() != 0) {
+                        ps.setLong(1, entry.getKey());
+                        ps.setLong(2, entry.getValue());
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    private static Long teamId(Team team) {
+        return team != null ? team.getId() : null;
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.event.invalidation.InvalidationMessage;
+import study.querydsl.repository.TeamMemberCountRepository;
+
+/**
+ * 행 단위 delta 를 남길 수 없는 변경(벌크 연산, oldState 없는 update)이 커밋되면 회원 수를 stale 로 표시한다
+ * - 행 단위 가입/팀 이동/탈퇴는 TeamMemberCountDeltaListener 가 같은 트랜잭션에서 DB 에 남긴다
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamMemberCountEventListener implements PostCommitEntityListener {
+
+    private final TeamMemberCountRepository repository;
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member && event.getOldState() == null) {
+            repository.markStale();
+        }
+    }
+
+    @Override
+    public void onBulkUpdate(Class<?> entityType) {
+        if (entityType == Member.class) {
+            repository.markStale();
+        }
+    }
+
+    @Override
+    public void onRemoteInvalidation(InvalidationMessage.Entry entry) {
+        // delta 는 DB 에 있으므로 count() 는 다른 노드의 변경도 본다. 벌크 연산은 그 노드가 재계산한다
+    }
+}
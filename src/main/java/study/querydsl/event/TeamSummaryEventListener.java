@@ -0,0 +1,99 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.invalidation.InvalidationMessage;
+import study.querydsl.repository.TeamSummaryRepository;
+import study.querydsl.repository.TeamSummaryStore;
+
+import java.util.List;
+import java.util.Objects;
+
+import static study.querydsl.event.PostCommitEntityListener.propertyValue;
+
+/**
+ * 커밋된 Member/Team 변경을 TeamSummaryStore 에 증분 반영한다
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamSummaryEventListener implements PostCommitEntityListener {
+
+    private final TeamSummaryStore store;
+    private final TeamSummaryRepository repository;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            store.teamAdded(team.getId(), team.getName());
+        } else if (event.getEntity() instanceof Member member) {
+            store.memberAdded(member.getId(), teamId(member.getTeam()), member.getAge());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Team team) {
+            store.teamRenamed(team.getId(), team.getName());
+            return;
+        }
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            store.markStale();
+            return;
+        }
+        Long oldTeamId = teamId((Team) propertyValue(event.getPersister(), oldState, "team"));
+        Long newTeamId = teamId((Team) propertyValue(event.getPersister(), event.getState(), "team"));
+        int oldAge = (Integer) propertyValue(event.getPersister(), oldState, "age");
+        int newAge = (Integer) propertyValue(event.getPersister(), event.getState(), "age");
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+        store.memberChanged((Long) event.getId(), oldTeamId, oldAge, newTeamId, newAge);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Team) {
+            store.teamRemoved((Long) event.getId());
+        } else if (event.getEntity() instanceof Member) {
+            Team team = (Team) propertyValue(event.getPersister(), event.getDeletedState(), "team");
+            Integer age = (Integer) propertyValue(event.getPersister(), event.getDeletedState(), "age");
+            store.memberRemoved((Long) event.getId(), teamId(team), age != null ? age : 0);
+        }
+    }
+
+    @Override
+    public void onBulkUpdate(Class<?> entityType) {
+        if (entityType == Member.class || entityType == Team.class) {
+            store.markStale();
+        }
+    }
+
+    /**
+     * 다른 노드의 id entry 는 그 행만 다시 읽는다. 전체(all)이거나 id 가 너무 많으면 stale 로 두고 다시 적재한다
+     * - 집계는 회원이 드나든 팀(Team entry)만 다시 읽는다. 회원 entry 는 적재 중일 때만 쓴다
+     */
+    @Override
+    public void onRemoteInvalidation(InvalidationMessage.Entry entry) {
+        List<Long> ids = PostCommitEntityListener.reloadIds(entry);
+        if (ids == null) {
+            onBulkUpdate(entry.entityType());
+        } else if (entry.entityType() == Member.class) {
+            repository.reloadMembers(ids);
+        } else if (entry.entityType() == Team.class) {
+            repository.reloadTeams(ids);
+        }
+    }
+
+    private static Long teamId(Team team) {
+        return team != null ? team.getId() : null;
+    }
+}
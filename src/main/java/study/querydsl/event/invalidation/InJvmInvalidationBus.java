@@ -0,0 +1,71 @@
+package study.querydsl.event.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 같은 JVM 안의 버스끼리 메시지를 주고받는 구현 (테스트 / 한 프로세스에 여러 컨텍스트를 띄울 때)
+ * - 같은 channel 이름으로 만든 인스턴스들이 하나의 노드 묶음이다
+ * - 네트워크 전송과 같게 인코딩된 바이트를 넘기고, 받는 쪽 전용 스레드에서 디코딩해 전달한다
+ */
+@Slf4j
+public class InJvmInvalidationBus implements InvalidationBus {
+
+    private static final Map<String, List<InJvmInvalidationBus>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private final List<Consumer<InvalidationMessage>> receivers = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery;
+
+    public InJvmInvalidationBus(String channel) {
+        this.channel = channel;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-in-jvm-" + channel);
+            thread.setDaemon(true);
+            return thread;
+        });
+        CHANNELS.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        byte[] bytes = message.encode();
+        for (InJvmInvalidationBus peer : CHANNELS.getOrDefault(channel, List.of())) {
+            peer.deliver(bytes);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void close() {
+        CHANNELS.getOrDefault(channel, List.of()).remove(this);
+        delivery.shutdownNow();
+    }
+
+    private void deliver(byte[] bytes) {
+        if (delivery.isShutdown()) {
+            return;
+        }
+        delivery.execute(() -> {
+            InvalidationMessage message = InvalidationMessage.decode(bytes);
+            for (Consumer<InvalidationMessage> receiver : receivers) {
+                try {
+                    receiver.accept(message);
+                } catch (RuntimeException e) {
+                    log.warn("invalidation receiver failed: {}", message, e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package study.querydsl.event.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * 노드 간 캐시 무효화 메시지 전송 (구현: InJvmInvalidationBus, UdpInvalidationBus)
+ * - publish 는 막히지 않는다. 전달은 최선 노력이고 순서/도착을 보장하지 않는다
+ *   → 받는 쪽(InvalidationReceiver)이 version 으로 빠진 메시지를 알아채고 전체 무효화한다
+ * - 자기가 보낸 메시지도 받을 수 있다 (받는 쪽이 origin 으로 거른다)
+ */
+public interface InvalidationBus extends AutoCloseable {
+
+    void publish(InvalidationMessage message);
+
+    void subscribe(Consumer<InvalidationMessage> receiver);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,47 @@
+package study.querydsl.event.invalidation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 무효화 버스 구현 선택 (querydsl.invalidation.transport, 기본 udp)
+ * - in-jvm: 같은 JVM 의 같은 channel 끼리 (테스트용)
+ * - udp: udp.bind 로 받고 udp.peers 로 보낸다 (host:port, 쉼표 구분). bind 기본값은 loopback
+ */
+@Configuration
+@ConditionalOnProperty(name = "querydsl.invalidation.enabled", havingValue = "true")
+public class InvalidationConfig {
+
+    @Bean(destroyMethod = "close")
+    InvalidationBus invalidationBus(@Value("${querydsl.invalidation.transport:udp}") String transport,
+                                    @Value("${querydsl.invalidation.channel:querydsl}") String channel,
+                                    @Value("${querydsl.invalidation.udp.bind:127.0.0.1:7071}") String bind,
+                                    @Value("${querydsl.invalidation.udp.peers:}") String[] peers) {
+        return switch (transport) {
+            case "in-jvm" -> new InJvmInvalidationBus(channel);
+            case "udp" -> {
+                List<InetSocketAddress> addresses = new ArrayList<>();
+                for (String peer : peers) {
+                    addresses.add(address(peer));
+                }
+                yield new UdpInvalidationBus(address(bind), addresses);
+            }
+            default -> throw new IllegalArgumentException("unknown invalidation transport: " + transport);
+        };
+    }
+
+    private static InetSocketAddress address(String hostAndPort) {
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("expected host:port but was " + hostAndPort);
+        }
+        return new InetSocketAddress(hostAndPort.substring(0, colon).trim(),
+                Integer.parseInt(hostAndPort.substring(colon + 1).trim()));
+    }
+}
@@ -0,0 +1,255 @@
+package study.querydsl.event.invalidation;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 다른 노드에 보내는 캐시 무효화 메시지 (한 노드가 flush 한 번에 보내는 묶음)
+ * - origin: 보낸 노드, version: 노드별로 1 씩 증가하는 메시지 번호 (받는 쪽이 빠진 메시지를 알아챈다)
+ * - entries: 엔티티 타입별로 바뀐 id 구간 [from, to] 목록, 또는 all(벌크 연산처럼 어떤 행인지 모를 때)
+ * 인코딩 (바이트 배열):
+ * <pre>
+ * format(1) | origin 길이(1) + UTF-8 | version(varlong) | entry 수(varint)
+ *   entry = type(1) | all(1) | 구간 수(varint) | 구간마다 (앞 구간 끝과의 차이, 구간 길이 - 1) varlong
+ * </pre>
+ * → 연속된 id 는 구간 하나, 가까운 id 는 작은 차이값이라 몇 바이트로 끝난다
+ */
+public final class InvalidationMessage {
+
+    private static final byte FORMAT = 1;
+    // 메시지에 싣는 엔티티 타입 (순서 = 타입 코드)
+    private static final List<Class<?>> TYPES = List.of(Member.class, Team.class);
+
+    private final String origin;
+    private final long version;
+    private final List<Entry> entries;
+
+    public InvalidationMessage(String origin, long version, List<Entry> entries) {
+        if (origin.getBytes(StandardCharsets.UTF_8).length > 255) {
+            throw new IllegalArgumentException("origin is too long: " + origin);
+        }
+        this.origin = origin;
+        this.version = version;
+        this.entries = List.copyOf(entries);
+    }
+
+    public static boolean isTracked(Class<?> entityType) {
+        return TYPES.contains(entityType);
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 같은 origin/version 으로 모든 타입을 all 로 바꾼 메시지 (구간을 실을 수 없거나 메시지가 빠졌을 때)
+     */
+    public static InvalidationMessage all(String origin, long version) {
+        List<Entry> entries = new ArrayList<>();
+        for (Class<?> type : TYPES) {
+            entries.add(Entry.all(type));
+        }
+        return new InvalidationMessage(origin, version, entries);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        out.write(FORMAT);
+        byte[] originBytes = origin.getBytes(StandardCharsets.UTF_8);
+        out.write(originBytes.length);
+        out.write(originBytes, 0, originBytes.length);
+        writeVarLong(out, version);
+        writeVarLong(out, entries.size());
+        for (Entry entry : entries) {
+            out.write(TYPES.indexOf(entry.entityType()));
+            out.write(entry.all() ? 1 : 0);
+            long[] ranges = entry.ranges();
+            writeVarLong(out, ranges.length / 2);
+            long previous = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                writeVarLong(out, ranges[i] - previous);
+                writeVarLong(out, ranges[i + 1] - ranges[i]);
+                previous = ranges[i + 1];
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static InvalidationMessage decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    public static InvalidationMessage decode(ByteBuffer buffer) {
+        try {
+            if (buffer.get() != FORMAT) {
+                throw new IllegalArgumentException("unknown invalidation message format");
+            }
+            byte[] originBytes = new byte[buffer.get() & 0xff];
+            buffer.get(originBytes);
+            long version = readVarLong(buffer);
+            int count = (int) readVarLong(buffer);
+            List<Entry> entries = new ArrayList<>(count);
+            for (int e = 0; e < count; e++) {
+                int type = buffer.get();
+                if (type < 0 || type >= TYPES.size()) {
+                    throw new IllegalArgumentException("unknown entity type code: " + type);
+                }
+                boolean all = buffer.get() != 0;
+                long[] ranges = new long[(int) readVarLong(buffer) * 2];
+                long previous = 0;
+                for (int i = 0; i < ranges.length; i += 2) {
+                    ranges[i] = previous + readVarLong(buffer);
+                    ranges[i + 1] = ranges[i] + readVarLong(buffer);
+                    previous = ranges[i + 1];
+                }
+                entries.add(new Entry(TYPES.get(type), all, ranges));
+            }
+            return new InvalidationMessage(new String(originBytes, StandardCharsets.UTF_8), version, entries);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated invalidation message", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InvalidationMessage(origin=" + origin + ", version=" + version + ", entries=" + entries + ")";
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varlong");
+    }
+
+    /**
+     * 한 엔티티 타입의 바뀐 id 구간 (ranges = [from0, to0, from1, to1, ...], 오름차순, 겹치지 않음)
+     */
+    public record Entry(Class<?> entityType, boolean all, long[] ranges) {
+
+        public static Entry all(Class<?> entityType) {
+            return new Entry(entityType, true, new long[0]);
+        }
+
+        /**
+         * 정렬된 id 들을 연속 구간으로 합친다
+         */
+        public static Entry of(Class<?> entityType, long[] sortedIds) {
+            long[] ranges = new long[sortedIds.length * 2];
+            int size = 0;
+            for (long id : sortedIds) {
+                if (size > 0 && id <= ranges[size - 1] + 1) {
+                    ranges[size - 1] = Math.max(ranges[size - 1], id);
+                } else {
+                    ranges[size++] = id;
+                    ranges[size++] = id;
+                }
+            }
+            return new Entry(entityType, false, Arrays.copyOf(ranges, size));
+        }
+
+        /**
+         * 같은 타입의 id entry 들을 구간 하나의 목록으로 합친다 (겹치거나 이어진 구간은 하나로)
+         */
+        public static Entry union(Class<?> entityType, List<Entry> entries) {
+            List<long[]> ranges = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.all()) {
+                    return all(entityType);
+                }
+                for (int i = 0; i < entry.ranges().length; i += 2) {
+                    ranges.add(new long[]{entry.ranges()[i], entry.ranges()[i + 1]});
+                }
+            }
+            ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+            long[] merged = new long[ranges.size() * 2];
+            int size = 0;
+            for (long[] range : ranges) {
+                if (size > 0 && range[0] <= merged[size - 1] + 1) {
+                    merged[size - 1] = Math.max(merged[size - 1], range[1]);
+                } else {
+                    merged[size++] = range[0];
+                    merged[size++] = range[1];
+                }
+            }
+            return new Entry(entityType, false, Arrays.copyOf(merged, size));
+        }
+
+        /**
+         * 구간에 든 id 수 (all 이면 0)
+         */
+        public long size() {
+            long size = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                size += ranges[i + 1] - ranges[i] + 1;
+            }
+            return size;
+        }
+
+        /**
+         * 구간을 id 목록으로 펼친다 (all 이면 빈 목록)
+         */
+        public List<Long> ids() {
+            List<Long> ids = new ArrayList<>((int) Math.min(size(), Integer.MAX_VALUE));
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (long id = ranges[i]; id <= ranges[i + 1]; id++) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        }
+
+        public boolean contains(long id) {
+            if (all) {
+                return true;
+            }
+            int low = 0;
+            int high = ranges.length / 2 - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (id < ranges[mid * 2]) {
+                    high = mid - 1;
+                } else if (id > ranges[mid * 2 + 1]) {
+                    low = mid + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return entityType.getSimpleName() + (all ? "[all]" : Arrays.toString(ranges));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package study.querydsl.event.invalidation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.PostCommitEntityListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.event.PostCommitEntityListener.propertyValue;
+
+/**
+ * 커밋된 Member/Team 변경을 모아 다른 노드에 무효화 메시지로 보낸다 (querydsl.invalidation.enabled=true 일 때만 등록)
+ * - 행 단위 커밋 이벤트는 타입별 id 로, 벌크 연산(BulkUpdateNotifier)은 타입 전체(all)로 쌓는다
+ * - 회원 변경은 그 회원이 드나든 팀(변경 전/후)의 id 도 Team 으로 쌓는다 → 받는 쪽은 팀 집계를 그 팀만 다시 읽는다
+ * - flush-interval 마다, 또는 쌓인 id 가 max-ids 를 넘으면 한 메시지로 보낸다
+ *   → 같은 id 는 한 번만, 연속된 id 는 구간 하나로 합쳐진다. 타입 전체가 바뀌었으면 그 타입의 id 는 버린다
+ * - 다른 노드에서 온 무효화(onRemoteInvalidation)는 다시 보내지 않는다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "querydsl.invalidation.enabled", havingValue = "true")
+public class InvalidationPublisher implements PostCommitEntityListener {
+
+    private final InvalidationBus bus;
+    private final String nodeId;
+    private final int maxIds;
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong version = new AtomicLong();
+    private final Counter published;
+    private final Object lock = new Object();
+    // 번호를 매기고 보내는 것까지 한 flush 씩. 번호 순서와 보내는 순서가 달라지면 받는 쪽이 빈 번호로 본다
+    private final Object sendLock = new Object();
+    private Map<Class<?>, PendingIds> pendingIds = new HashMap<>();
+    private Set<Class<?>> pendingAll = new HashSet<>();
+    private int pendingCount;
+
+    public InvalidationPublisher(InvalidationBus bus, MeterRegistry meterRegistry,
+                                 @Value("${querydsl.invalidation.node-id:}") String nodeId,
+                                 @Value("${querydsl.invalidation.flush-interval:5ms}") Duration flushInterval,
+                                 @Value("${querydsl.invalidation.max-ids:4096}") int maxIds) {
+        this.bus = bus;
+        this.nodeId = StringUtils.hasText(nodeId) ? nodeId : UUID.randomUUID().toString().substring(0, 8);
+        this.maxIds = maxIds;
+        this.published = Counter.builder("invalidation.published").register(meterRegistry);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long nanos = flushInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getEntity().getClass(), event.getId());
+        if (event.getEntity() instanceof Member member) {
+            teamChanged(member.getTeam());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getEntity().getClass(), event.getId());
+        if (event.getEntity() instanceof Member) {
+            if (event.getOldState() == null) {
+                // 이전 팀을 모른다
+                onBulkUpdate(Team.class);
+            } else {
+                teamChanged((Team) propertyValue(event.getPersister(), event.getOldState(), "team"));
+            }
+            teamChanged((Team) propertyValue(event.getPersister(), event.getState(), "team"));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getEntity().getClass(), event.getId());
+        if (event.getEntity() instanceof Member) {
+            teamChanged((Team) propertyValue(event.getPersister(), event.getDeletedState(), "team"));
+        }
+    }
+
+    @Override
+    public void onBulkUpdate(Class<?> entityType) {
+        if (!InvalidationMessage.isTracked(entityType)) {
+            return;
+        }
+        synchronized (lock) {
+            pendingAll.add(entityType);
+        }
+    }
+
+    @Override
+    public void onRemoteInvalidation(InvalidationMessage.Entry entry) {
+        // 다른 노드의 변경이다. 다시 보내면 노드끼리 메시지가 돌고 돈다
+    }
+
+    /**
+     * 쌓인 변경을 지금 보낸다. 보낸 메시지 번호, 보낼 것이 없으면 0
+     */
+    public long flush() {
+        // flush 는 flusher 스레드와 종료/테스트 호출이 겹칠 수 있다
+        synchronized (sendLock) {
+            Map<Class<?>, PendingIds> ids;
+            Set<Class<?>> all;
+            synchronized (lock) {
+                if (pendingIds.isEmpty() && pendingAll.isEmpty()) {
+                    return 0;
+                }
+                ids = pendingIds;
+                all = pendingAll;
+                pendingIds = new HashMap<>();
+                pendingAll = new HashSet<>();
+                pendingCount = 0;
+            }
+            List<InvalidationMessage.Entry> entries = new ArrayList<>();
+            for (Class<?> type : all) {
+                entries.add(InvalidationMessage.Entry.all(type));
+            }
+            ids.forEach((type, pending) -> {
+                if (!all.contains(type)) {
+                    entries.add(InvalidationMessage.Entry.of(type, pending.sorted()));
+                }
+            });
+            long next = version.incrementAndGet();
+            bus.publish(new InvalidationMessage(nodeId, next, entries));
+            published.increment();
+            return next;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdownNow();
+        flushQuietly();
+    }
+
+    private void changed(Class<?> entityType, Object id) {
+        if (!InvalidationMessage.isTracked(entityType) || !(id instanceof Long longId)) {
+            return;
+        }
+        boolean full;
+        synchronized (lock) {
+            if (pendingAll.contains(entityType)) {
+                return;
+            }
+            pendingIds.computeIfAbsent(entityType, type -> new PendingIds()).add(longId);
+            full = ++pendingCount >= maxIds;
+        }
+        if (full) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void teamChanged(Team team) {
+        if (team != null) {
+            changed(Team.class, team.getId());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("invalidation flush failed", e);
+        }
+    }
+
+    /**
+     * 타입별로 쌓인 id (중복 허용, 보낼 때 정렬/중복 제거)
+     */
+    private static final class PendingIds {
+        private long[] ids = new long[16];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package study.querydsl.event.invalidation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.event.PostCommitEntityListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 다른 노드가 보낸 무효화 메시지를 이 노드의 PostCommitEntityListener 들에 onRemoteInvalidation 으로 전달한다
+ * - 자기가 보낸 메시지는 거른다 (origin)
+ * - 노드별 version 이 1 씩 늘지 않으면 (유실/순서 바뀜) 그 메시지를 전체 무효화로 바꿔 바로 전달한다
+ * - id 가 실린 entry 는 remote-debounce 동안 타입별로 모아 구간을 합친 뒤 한 번에 전달한다
+ *   → 다른 노드가 flush-interval 마다 보내도 메모리 저장소들이 메시지마다 다시 적재하지 않는다
+ *   → 전체 무효화(all)는 기다리지 않고 전달하고, 모아 둔 그 타입의 id 는 버린다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "querydsl.invalidation.enabled", havingValue = "true")
+public class InvalidationReceiver {
+
+    private final List<PostCommitEntityListener> listeners;
+    private final String nodeId;
+    private final long debounceNanos;
+    private final Map<String, Long> lastVersions = new ConcurrentHashMap<>();
+    private final Counter received;
+    private final Counter gaps;
+    private final ScheduledExecutorService debouncer;
+    private final Object lock = new Object();
+    private Map<Class<?>, List<InvalidationMessage.Entry>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    public InvalidationReceiver(InvalidationBus bus, InvalidationPublisher publisher,
+                                List<PostCommitEntityListener> listeners, MeterRegistry meterRegistry,
+                                @Value("${querydsl.invalidation.remote-debounce:100ms}") Duration debounce) {
+        this.listeners = listeners;
+        this.nodeId = publisher.getNodeId();
+        this.debounceNanos = debounce.toNanos();
+        this.received = Counter.builder("invalidation.received").tag("result", "applied").register(meterRegistry);
+        this.gaps = Counter.builder("invalidation.received").tag("result", "gap").register(meterRegistry);
+        this.debouncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+        bus.subscribe(this::receive);
+    }
+
+    void receive(InvalidationMessage message) {
+        if (nodeId.equals(message.getOrigin())) {
+            return;
+        }
+        Long last = lastVersions.put(message.getOrigin(), message.getVersion());
+        if (last != null && message.getVersion() != last + 1) {
+            log.info("invalidation from {} jumped from version {} to {}, invalidating everything",
+                    message.getOrigin(), last, message.getVersion());
+            gaps.increment();
+            message = InvalidationMessage.all(message.getOrigin(), message.getVersion());
+        }
+        received.increment();
+
+        List<InvalidationMessage.Entry> now = new ArrayList<>();
+        boolean schedule = false;
+        synchronized (lock) {
+            for (InvalidationMessage.Entry entry : message.getEntries()) {
+                if (entry.all()) {
+                    pending.remove(entry.entityType());
+                    now.add(entry);
+                } else if (debounceNanos == 0) {
+                    now.add(entry);
+                } else {
+                    pending.computeIfAbsent(entry.entityType(), type -> new ArrayList<>()).add(entry);
+                    if (!flushScheduled) {
+                        flushScheduled = true;
+                        schedule = true;
+                    }
+                }
+            }
+        }
+        deliver(now);
+        if (schedule) {
+            debouncer.schedule(this::flushPending, debounceNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 모아 둔 id entry 를 타입별로 합쳐 지금 전달한다
+     */
+    void flushPending() {
+        Map<Class<?>, List<InvalidationMessage.Entry>> entries;
+        synchronized (lock) {
+            entries = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        List<InvalidationMessage.Entry> merged = new ArrayList<>(entries.size());
+        entries.forEach((type, list) -> merged.add(InvalidationMessage.Entry.union(type, list)));
+        deliver(merged);
+    }
+
+    @PreDestroy
+    public void close() {
+        debouncer.shutdownNow();
+    }
+
+    private void deliver(List<InvalidationMessage.Entry> entries) {
+        for (InvalidationMessage.Entry entry : entries) {
+            for (PostCommitEntityListener listener : listeners) {
+                try {
+                    listener.onRemoteInvalidation(entry);
+                } catch (RuntimeException e) {
+                    log.warn("remote invalidation failed: {} -> {}", entry, listener.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.event.invalidation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * UDP 데이터그램으로 peer 노드들에 메시지를 보내는 구현 (기본은 loopback 주소)
+ * - 인증이 없으므로 모든 인터페이스(0.0.0.0, ::)에는 bind 하지 않는다. loopback 이나 지정한 인터페이스 주소만 받는다
+ * - peers 에 있는 주소(host:port)에서 온 데이터그램만 받는다. 나머지는 버린다
+ * - 메시지 하나 = 데이터그램 하나. 구간이 너무 많아 max-datagram 을 넘으면 같은 version 의 전체 무효화(all)로 보낸다
+ * - 수신은 데몬 스레드 하나가 블로킹 receive 로 처리한다
+ * - UDP 라 유실될 수 있다 → 받는 쪽이 version 이 건너뛴 것을 보고 전체 무효화한다
+ */
+@Slf4j
+public class UdpInvalidationBus implements InvalidationBus {
+
+    static final int MAX_DATAGRAM = 8192;
+
+    private final DatagramChannel channel;
+    private final List<InetSocketAddress> peers;
+    private final List<Consumer<InvalidationMessage>> receivers = new CopyOnWriteArrayList<>();
+    private final Thread receiverThread;
+
+    /**
+     * @param bind  수신 주소 (포트 0 이면 임의 포트, getLocalAddress 로 확인). 와일드카드 주소는 안 된다
+     * @param peers 보낼 노드 주소이자 받을 수 있는 발신 주소 (자기 자신이 있어도 된다)
+     */
+    public UdpInvalidationBus(InetSocketAddress bind, List<InetSocketAddress> peers) {
+        if (bind.getAddress() == null || bind.getAddress().isAnyLocalAddress()) {
+            throw new IllegalArgumentException("invalidation socket must bind to loopback or a specific interface: " + bind);
+        }
+        try {
+            this.channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 1 << 20);
+            channel.bind(bind);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot bind invalidation socket " + bind, e);
+        }
+        this.peers = new CopyOnWriteArrayList<>(peers);
+        this.receiverThread = new Thread(this::receive, "invalidation-udp-" + getLocalAddress().getPort());
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void addPeer(InetSocketAddress peer) {
+        peers.add(peer);
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        byte[] bytes = message.encode();
+        if (bytes.length > MAX_DATAGRAM) {
+            bytes = InvalidationMessage.all(message.getOrigin(), message.getVersion()).encode();
+        }
+        for (InetSocketAddress peer : peers) {
+            try {
+                channel.send(ByteBuffer.wrap(bytes), peer);
+            } catch (IOException e) {
+                log.warn("invalidation send to {} failed", peer, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close(); // 블로킹 receive 가 AsynchronousCloseException 으로 끝난다
+        } catch (IOException e) {
+            log.debug("invalidation socket close failed", e);
+        }
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                SocketAddress source = channel.receive(buffer);
+                if (!peers.contains(source)) {
+                    log.debug("invalidation datagram from unknown source {} dropped", source);
+                    continue;
+                }
+                buffer.flip();
+                InvalidationMessage message = InvalidationMessage.decode(buffer);
+                for (Consumer<InvalidationMessage> receiver : receivers) {
+                    receiver.accept(message);
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("invalidation receive failed", e);
+            }
+        }
+    }
+}
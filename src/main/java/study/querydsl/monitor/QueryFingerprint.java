@@ -0,0 +1,31 @@
+package study.querydsl.monitor;
+
+import java.util.regex.Pattern;
+
+/**
+ * 실행된 SQL 을 리터럴이 제거된 형태(fingerprint)로 정규화한다
+ * - 'abc' / 123 / 1.5 → ?
+ * - in (?, ?, ?) → in (?+)  : IN 목록 길이가 달라도 같은 모양으로 묶는다
+ * - 공백 정리, 소문자화
+ * MemberSearchCondition 조합마다 where 절 모양이 달라지므로 조건 조합별로 통계가 분리된다
+ */
+public final class QueryFingerprint {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("in\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QueryFingerprint() {
+    }
+
+    public static String of(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase();
+        return IN_LIST.matcher(normalized).replaceAll("in (?+)");
+    }
+}
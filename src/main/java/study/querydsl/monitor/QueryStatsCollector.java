@@ -0,0 +1,130 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.QueryStatDto;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * p6spy 로 실행되는 모든 SQL 을 fingerprint 별로 집계한다
+ * - ConcurrentHashMap + LongAdder/LongAccumulator 로 락 없이 갱신한다 (셀 단위로 스트라이핑됨)
+ * - fingerprint 종류가 maxFingerprints 를 넘으면 이후 새 모양은 OTHER 한 칸에 합산한다 (메모리 상한)
+ * - SQL → fingerprint 정규화 결과는 캐시해서 같은 PreparedStatement 는 정규식을 다시 돌리지 않는다
+ */
+@Component
+public class QueryStatsCollector extends SimpleJdbcEventListener {
+
+    public static final String OTHER = "<other>";
+
+    private final int maxFingerprints;
+    private final ConcurrentHashMap<String, Stat> stats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> fingerprintCache = new ConcurrentHashMap<>();
+
+    public QueryStatsCollector(@Value("${querydsl.query-stats.max-fingerprints:500}") int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        stat(statementInformation.getSql()).recordExecution(timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos,
+                                    int[] updateCounts, SQLException e) {
+        super.onAfterExecuteBatch(statementInformation, timeElapsedNanos, updateCounts, e);
+        if (updateCounts != null) {
+            long rows = 0;
+            for (int count : updateCounts) {
+                rows += Math.max(count, 0);
+            }
+            stat(statementInformation.getSql()).rows.add(rows);
+        }
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation,
+                                     long timeElapsedNanos, int rowCount, SQLException e) {
+        super.onAfterExecuteUpdate(statementInformation, timeElapsedNanos, rowCount, e);
+        stat(statementInformation.getSql()).rows.add(Math.max(rowCount, 0));
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos,
+                                     boolean hasNext, SQLException e) {
+        if (hasNext) {
+            stat(resultSetInformation.getSql()).rows.increment();
+        }
+    }
+
+    /**
+     * 총 실행 시간 기준 상위 N 개
+     */
+    public List<QueryStatDto> top(int limit) {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .sorted(Comparator.comparingLong(QueryStatDto::getTotalNanos).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        stats.clear();
+        fingerprintCache.clear();
+    }
+
+    private Stat stat(String sql) {
+        String fingerprint = fingerprint(sql);
+        Stat stat = stats.get(fingerprint);
+        if (stat != null) {
+            return stat;
+        }
+        if (stats.size() >= maxFingerprints) {
+            return stats.computeIfAbsent(OTHER, key -> new Stat());
+        }
+        return stats.computeIfAbsent(fingerprint, key -> new Stat());
+    }
+
+    private String fingerprint(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        String fingerprint = fingerprintCache.get(sql);
+        if (fingerprint == null) {
+            fingerprint = QueryFingerprint.of(sql);
+            // 리터럴이 박힌 SQL 이 끝없이 들어와도 캐시가 커지지 않도록 상한을 넘으면 비운다
+            if (fingerprintCache.size() >= maxFingerprints * 4) {
+                fingerprintCache.clear();
+            }
+            fingerprintCache.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private static class Stat {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+
+        void recordExecution(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        QueryStatDto toDto(String fingerprint) {
+            return new QueryStatDto(fingerprint, count.sum(), totalNanos.sum(), maxNanos.get(), rows.sum());
+        }
+    }
+}
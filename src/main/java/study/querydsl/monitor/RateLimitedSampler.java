@@ -0,0 +1,31 @@
+package study.querydsl.monitor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 1초 구간마다 permitsPerSecond 개까지만 통과시킨다 (고정 윈도)
+ * - 구간 경계에서 동시에 들어오면 한도를 조금 넘길 수 있다. 로그 샘플링 용도라 허용한다
+ */
+public final class RateLimitedSampler {
+
+    private final int permitsPerSecond;
+    private final AtomicLong window = new AtomicLong(-1);
+    private final AtomicInteger used = new AtomicInteger();
+
+    public RateLimitedSampler(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public boolean tryAcquire() {
+        if (permitsPerSecond <= 0) {
+            return false;
+        }
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = window.get();
+        if (second != current && window.compareAndSet(current, second)) {
+            used.set(0);
+        }
+        return used.get() < permitsPerSecond && used.incrementAndGet() <= permitsPerSecond;
+    }
+}
@@ -0,0 +1,73 @@
+package study.querydsl.monitor;
+
+import study.querydsl.dto.RecentSqlDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 최근 실행된 SQL 을 고정 크기 배열에 돌려가며 기록한다 (오래된 것부터 덮어쓴다)
+ * - 기록은 칸 번호를 getAndIncrement 로 받고 primitive 배열/참조만 채운다. 락도 객체 생성도 없다
+ * - SQL 문자열은 PreparedStatement 의 SQL(바인딩 전) 참조를 그대로 담으므로 복사하지 않는다
+ * - 칸마다 stamp 를 두어 읽는 도중 덮어쓰인 칸은 건너뛴다
+ */
+public final class RecentSqlBuffer {
+
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray stamps;
+    private final String[] sqls;
+    private final long[] timestamps;
+    private final long[] elapsedNanos;
+    private final boolean[] failed;
+
+    public RecentSqlBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.stamps = new AtomicLongArray(size);
+        this.sqls = new String[size];
+        this.timestamps = new long[size];
+        this.elapsedNanos = new long[size];
+        this.failed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            stamps.set(i, -1);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public void record(String sql, long elapsed, boolean error) {
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq & mask);
+        stamps.set(slot, -1);
+        sqls[slot] = sql;
+        timestamps[slot] = System.currentTimeMillis();
+        elapsedNanos[slot] = elapsed;
+        failed[slot] = error;
+        stamps.set(slot, seq);
+    }
+
+    /**
+     * 오래된 것 → 최근 순
+     */
+    public List<RecentSqlDto> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(0, end - capacity());
+        List<RecentSqlDto> result = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            if (stamps.get(slot) != seq) {
+                continue; // 아직 쓰는 중이거나 이미 덮어쓰임
+            }
+            RecentSqlDto dto = new RecentSqlDto(seq, timestamps[slot], elapsedNanos[slot], failed[slot], sqls[slot]);
+            if (stamps.get(slot) == seq) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,163 @@
+package study.querydsl.monitor;
+
+/**
+ * 요청 하나의 구간별 소요 시간 (Server-Timing 응답 헤더용)
+ * - db-pool: 커넥션 획득, sql-N: SQL 실행 + ResultSet 읽기, projection: DTO 프로젝션, serialize: 응답 직렬화
+ * - coalesced: single-flight 로 다른 요청의 조회 결과를 기다린 시간. 합류한 요청은 SQL 을 직접 실행하지 않으므로
+ *   sql 항목 대신 이 항목이 나온다 (기다린 시간이 곧 공유한 SQL 의 남은 실행 시간)
+ * - 기록은 primitive 필드/배열 누적만 한다 (객체 생성 없음). 헤더 문자열은 요청 끝에 한 번 만든다
+ * - 요청 스레드와 Callable 작업 스레드가 번갈아 쓰지만 동시에 쓰지는 않으므로 잠그지 않는다
+ * - 현재 스레드에 bind() 되어 있을 때만 기록한다. 꺼져 있으면 current() 가 null 이라 아무것도 하지 않는다
+ */
+public final class ServerTiming {
+
+    public static final String HEADER = "Server-Timing";
+    public static final String ATTRIBUTE = ServerTiming.class.getName();
+
+    // 개별로 보여줄 SQL 수. 넘는 SQL 은 sql 합계에만 들어간다
+    private static final int MAX_SQL = 16;
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] sqlNanos = new long[MAX_SQL];
+    private int sqlCount;
+    private long sqlTotalNanos;
+    private long poolNanos;
+    private int poolCount;
+    private long projectionNanos;
+    private long coalescedNanos;
+    private long serializationStart;
+    private long serializationNanos;
+
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static void connectionAcquired(long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.poolNanos += nanos;
+            timing.poolCount++;
+        }
+    }
+
+    public static void sqlExecuted(long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            if (timing.sqlCount < MAX_SQL) {
+                timing.sqlNanos[timing.sqlCount] = nanos;
+            }
+            timing.sqlCount++;
+            timing.sqlTotalNanos += nanos;
+        }
+    }
+
+    /**
+     * ResultSet.next() 시간은 직전에 실행한 SQL 에 더한다
+     */
+    public static void resultSetRead(long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null && timing.sqlCount > 0) {
+            if (timing.sqlCount <= MAX_SQL) {
+                timing.sqlNanos[timing.sqlCount - 1] += nanos;
+            }
+            timing.sqlTotalNanos += nanos;
+        }
+    }
+
+    /**
+     * 프로젝션 구간 시작. 반환값을 projectionEnd 에 넘긴다
+     * - 구간 안에서 실행된 커넥션 획득/SQL 시간은 빼야 하므로 "현재 시각 - 지금까지의 JDBC 시간" 을 기준점으로 쓴다
+     */
+    public static long projectionStart() {
+        ServerTiming timing = CURRENT.get();
+        return timing != null ? System.nanoTime() - timing.jdbcNanos() : 0;
+    }
+
+    public static void projectionEnd(long mark) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.projectionNanos += System.nanoTime() - timing.jdbcNanos() - mark;
+        }
+    }
+
+    public static void coalesced(long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.coalescedNanos += nanos;
+        }
+    }
+
+    public static void serializationStarted() {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null && timing.serializationStart == 0) {
+            timing.serializationStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * 응답 본문을 다 쓴 뒤 호출한다
+     */
+    public void serializationFinished() {
+        if (serializationStart != 0) {
+            serializationNanos = System.nanoTime() - serializationStart;
+        }
+    }
+
+    /**
+     * 예) db-pool;dur=0.05, sql-1;dur=1.20, sql-2;dur=0.31, sql;dur=1.51;desc="2 queries", projection;dur=0.40, serialize;dur=0.90, total;dur=4.80
+     */
+    public String toHeaderValue() {
+        StringBuilder sb = new StringBuilder(64 + Math.min(sqlCount, MAX_SQL) * 20);
+        if (poolCount > 0) {
+            append(sb, "db-pool", poolNanos);
+        }
+        for (int i = 0; i < Math.min(sqlCount, MAX_SQL); i++) {
+            append(sb, "sql-" + (i + 1), sqlNanos[i]);
+        }
+        if (sqlCount > 0) {
+            append(sb, "sql", sqlTotalNanos);
+            sb.append(";desc=\"").append(sqlCount).append(sqlCount == 1 ? " query\"" : " queries\"");
+        }
+        if (coalescedNanos > 0) {
+            append(sb, "coalesced", coalescedNanos);
+            sb.append(";desc=\"shared query\"");
+        }
+        if (projectionNanos > 0) {
+            append(sb, "projection", projectionNanos);
+        }
+        if (serializationNanos > 0) {
+            append(sb, "serialize", serializationNanos);
+        }
+        append(sb, "total", System.nanoTime() - startNanos);
+        return sb.toString();
+    }
+
+    private long jdbcNanos() {
+        return sqlTotalNanos + poolNanos;
+    }
+
+    /**
+     * dur 는 밀리초, 소수점 둘째 자리까지
+     */
+    private static void append(StringBuilder sb, String name, long nanos) {
+        if (!sb.isEmpty()) {
+            sb.append(", ");
+        }
+        long hundredths = Math.max(0, nanos) / 10_000;
+        sb.append(name).append(";dur=").append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * 커넥션 획득 / SQL 실행 / ResultSet 읽기 시간을 현재 요청의 ServerTiming 에 더한다
+ * - querydsl.server-timing.enabled=false 면 빈이 등록되지 않아 JDBC 호출마다 드는 비용도 없다
+ */
+@Component
+@ConditionalOnProperty(name = "querydsl.server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        ServerTiming.connectionAcquired(connectionInformation.getTimeToGetConnectionNs());
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        ServerTiming.sqlExecuted(timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos,
+                                     boolean hasNext, SQLException e) {
+        ServerTiming.resultSetRead(timeElapsedNanos);
+    }
+}
@@ -0,0 +1,91 @@
+package study.querydsl.monitor;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.RecentSqlDto;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 운영용 SQL 로그 (prod 프로필, querydsl.sql-log.enabled=true)
+ * - 모든 SQL 을 RecentSqlBuffer 에 기록만 하고(포맷팅 없음), 로그로는 일부만 남긴다
+ *   - slow-threshold 이상 걸린 SQL 은 항상 WARN
+ *   - 나머지는 초당 sample-per-second 건까지만 INFO
+ * - 실패한 SQL 은 WARN 으로 남기고 최근 버퍼를 함께 덤프한다 (dump-interval 에 한 번까지)
+ * - 로거 이름은 sql. logback-spring.xml 의 prod 설정이 AsyncAppender(bounded, neverBlock) 로 내보낸다
+ *   → 요청 스레드는 큐에 넣기만 하고, 큐가 차면 기다리지 않고 버린다
+ */
+@Component
+@ConditionalOnProperty(name = "querydsl.sql-log.enabled", havingValue = "true")
+public class SqlLogListener extends SimpleJdbcEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger("sql");
+
+    private final RecentSqlBuffer buffer;
+    private final RateLimitedSampler sampler;
+    private final long slowNanos;
+    private final long dumpIntervalNanos;
+    private final AtomicLong lastDump = new AtomicLong(Long.MIN_VALUE);
+
+    public SqlLogListener(@Value("${querydsl.sql-log.sample-per-second:10}") int samplePerSecond,
+                          @Value("${querydsl.sql-log.slow-threshold:200ms}") Duration slowThreshold,
+                          @Value("${querydsl.sql-log.buffer-size:512}") int bufferSize,
+                          @Value("${querydsl.sql-log.dump-interval:10s}") Duration dumpInterval) {
+        this.buffer = new RecentSqlBuffer(bufferSize);
+        this.sampler = new RateLimitedSampler(samplePerSecond);
+        this.slowNanos = slowThreshold.toNanos();
+        this.dumpIntervalNanos = dumpInterval.toNanos();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        buffer.record(statementInformation.getSql(), timeElapsedNanos, e != null);
+        if (e != null) {
+            log.warn("failed {}ms {} - {}", TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos),
+                    statementInformation.getSqlWithValues(), e.getMessage());
+            dumpOnError();
+        } else if (timeElapsedNanos >= slowNanos) {
+            log.warn("slow {}ms {}", TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos),
+                    statementInformation.getSqlWithValues());
+        } else if (log.isInfoEnabled() && sampler.tryAcquire()) {
+            log.info("{}ms {}", TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos),
+                    statementInformation.getSqlWithValues());
+        }
+    }
+
+    public List<RecentSqlDto> recent() {
+        return buffer.snapshot();
+    }
+
+    /**
+     * 최근 버퍼를 로그로 내보낸다
+     *
+     * @return 내보낸 SQL 수
+     */
+    public int dump(String reason) {
+        List<RecentSqlDto> recent = buffer.snapshot();
+        log.warn("recent sql dump ({}): {} statements", reason, recent.size());
+        for (RecentSqlDto sql : recent) {
+            log.warn("  #{} {}ms{} {}", sql.getSequence(), TimeUnit.NANOSECONDS.toMillis(sql.getElapsedNanos()),
+                    sql.isFailed() ? " FAILED" : "", sql.getSql());
+        }
+        return recent.size();
+    }
+
+    private void dumpOnError() {
+        long now = System.nanoTime();
+        long last = lastDump.get();
+        if ((last == Long.MIN_VALUE || now - last >= dumpIntervalNanos) && lastDump.compareAndSet(last, now)) {
+            dump("sql error");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package study.querydsl.repository;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 그룹 커밋으로 회원을 저장한다 (querydsl.group-commit.enabled=true 일 때만 등록)
+ * - save 는 큐에 넣고 바로 future 를 돌려준다. future 는 커밋이 끝난 뒤 회원 id 로 완료된다
+ * - 쓰기 스레드 하나가 첫 요청부터 max-delay 가 지나거나 max-batch 건이 모이면
+ *   한 트랜잭션에서 MemberJpaRepository.save 후 JDBC 배치로 flush 하고 한 번 커밋한다
+ *   → 동시 쓰기가 많을수록 커밋/트랜잭션 비용이 여러 건에 나눠진다. 혼자 쓸 때는 max-delay 만큼 늦어진다
+ * - 묶음 트랜잭션이 실패하면 id 를 되돌리고 건마다 따로 커밋해서, 실패한 건의 future 만 예외로 끝낸다
+ * - 큐가 가득 차면 save 가 RejectedExecutionException 으로 끝난 future 를 돌려준다
+ * - 넘긴 Member 는 커밋 전까지 다른 스레드(쓰기 스레드)가 다루므로 future 완료 전에는 건드리지 않는다
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "querydsl.group-commit.enabled", havingValue = "true")
+public class GroupCommitMemberWriter {
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingSave> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public GroupCommitMemberWriter(MemberJpaRepository memberJpaRepository, EntityManager em,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${querydsl.group-commit.max-batch:128}") int maxBatch,
+                                   @Value("${querydsl.group-commit.max-delay:2ms}") Duration maxDelay,
+                                   @Value("${querydsl.group-commit.queue-capacity:10000}") int queueCapacity) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.em = em;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = new Thread(this::run, "member-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public CompletableFuture<Long> save(Member member) {
+        PendingSave pending = new PendingSave(member);
+        if (!running || !queue.offer(pending)) {
+            pending.future.completeExceptionally(new RejectedExecutionException("group commit queue is full or closed"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * 새 요청을 받지 않고, 큐에 남은 요청까지 커밋한 뒤 쓰기 스레드를 끝낸다
+     * - JDBC 실행 중 인터럽트를 피하려고 interrupt 대신 플래그 + poll 타임아웃으로 멈춘다
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        List<PendingSave> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                running = false; // 남은 요청만 커밋하고 끝낸다
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        PendingSave late;
+        while ((late = queue.poll()) != null) { // 종료 직전에 들어온 요청
+            late.future.completeExceptionally(new RejectedExecutionException("group commit writer is closed"));
+        }
+    }
+
+    /**
+     * 첫 요청을 기다린 뒤, 그때부터 max-delay 동안 max-batch 건까지 모은다
+     */
+    private void collect(List<PendingSave> batch) throws InterruptedException {
+        PendingSave first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatch) {
+            if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingSave next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingSave> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                em.unwrap(Session.class).setJdbcBatchSize(batch.size());
+                for (PendingSave pending : batch) {
+                    memberJpaRepository.save(pending.member);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("group commit of {} members failed, retrying one by one", batch.size(), e);
+            commitOneByOne(batch);
+            return;
+        }
+        for (PendingSave pending : batch) {
+            pending.future.complete(pending.member.getId());
+        }
+    }
+
+    private void commitOneByOne(List<PendingSave> batch) {
+        for (PendingSave pending : batch) {
+            pending.member.setId(null); // 롤백된 트랜잭션에서 받은 id 를 지우지 않으면 detached 로 취급된다
+        }
+        for (PendingSave pending : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> memberJpaRepository.save(pending.member));
+                pending.future.complete(pending.member.getId());
+            } catch (RuntimeException e) {
+                pending.member.setId(null);
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class PendingSave {
+        final Member member;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        PendingSave(Member member) {
+            this.member = member;
+        }
+    }
+}
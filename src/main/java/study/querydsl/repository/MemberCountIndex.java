@@ -0,0 +1,331 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.CompressedBitmap;
+import study.querydsl.repository.support.InClause;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 검색 total 용 비트맵 인덱스
+ * - 팀 ID 별, 나이별로 회원 ID 비트맵(CompressedBitmap)을 유지한다 (커밋 이벤트로 증분 갱신)
+ * - teamName / ageGoe / ageLoe 조합의 건수를 비트맵 OR(같은 이름의 팀, 나이 범위) + AND 로 계산한다
+ * - username 조건은 인덱스가 없으므로 count 쿼리로 계산한다
+ * - 적재 전이거나 stale 이면 count 쿼리로 계산하고, 재적재는 백그라운드로 돈다
+ * - 적재 상태와 적재 중 변경 재적용은 LoadState 가 맡는다 (잠금은 이 인덱스의 write lock)
+ * - 다른 노드에서 바뀐 회원/팀은 그 id 만 DB 에서 다시 읽어 반영한다 (reloadMembers / reloadTeams)
+ */
+@Slf4j
+@Repository
+public class MemberCountIndex {
+
+    private final JPAQueryFactory queryFactory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final Map<Long, CompressedBitmap> teams = new HashMap<>();
+    private final TreeMap<Integer, CompressedBitmap> ages = new TreeMap<>();
+    private final Map<Long, String> teamNames = new HashMap<>();
+    private final LoadState loadState = new LoadState();
+    private final Counter indexed;
+    private final Counter queried;
+
+    public MemberCountIndex(JPAQueryFactory queryFactory, MeterRegistry meterRegistry) {
+        this.queryFactory = queryFactory;
+        this.indexed = Counter.builder("member.search.count").tag("source", "index").register(meterRegistry);
+        this.queried = Counter.builder("member.search.count").tag("source", "query").register(meterRegistry);
+    }
+
+    public LoadState.Status getStatus() {
+        return loadState.getStatus();
+    }
+
+    /**
+     * 조건에 맞는 회원 수. 인덱스로 답할 수 없으면 empty → 호출한 쪽이 count 쿼리를 실행한다
+     * - 읽기/쓰기 트랜잭션 안에서는 커밋 전 변경이 인덱스에 없으므로 사용하지 않는다
+     */
+    public OptionalLong count(MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getUsername()) || inReadWriteTransaction()
+                || !loadState.isReadyOrRebuild(this::rebuild)) {
+            queried.increment();
+            return OptionalLong.empty();
+        }
+        indexed.increment();
+
+        lock.readLock().lock();
+        try {
+            CompressedBitmap teamBitmap = null;
+            if (StringUtils.hasText(condition.getTeamName())) {
+                List<CompressedBitmap> matched = new ArrayList<>();
+                teamNames.forEach((teamId, name) -> {
+                    CompressedBitmap bitmap = teams.get(teamId);
+                    if (condition.getTeamName().equals(name) && bitmap != null) {
+                        matched.add(bitmap);
+                    }
+                });
+                if (matched.isEmpty()) {
+                    return OptionalLong.of(0);
+                }
+                teamBitmap = matched.size() == 1 ? matched.get(0) : CompressedBitmap.or(matched);
+            }
+
+            if (condition.getAgeGoe() == null && condition.getAgeLoe() == null) {
+                return OptionalLong.of((teamBitmap != null ? teamBitmap : all).cardinality());
+            }
+            int ageGoe = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+            int ageLoe = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+            if (ageGoe > ageLoe) {
+                return OptionalLong.of(0);
+            }
+            Collection<CompressedBitmap> ageBitmaps = ages.subMap(ageGoe, true, ageLoe, true).values();
+            if (teamBitmap != null) {
+                return OptionalLong.of(teamBitmap.andCardinality(ageBitmaps));
+            }
+            // 회원마다 나이는 하나라 나이별 비트맵은 서로 겹치지 않는다 → 나이별 건수를 더한다
+            long count = 0;
+            for (CompressedBitmap ageBitmap : ageBitmaps) {
+                count += ageBitmap.cardinality();
+            }
+            return OptionalLong.of(count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void memberAdded(long memberId, Long teamId, int age) {
+        apply(() -> add(memberId, teamId, age));
+    }
+
+    public void memberChanged(long memberId, Long oldTeamId, int oldAge, Long newTeamId, int newAge) {
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+        apply(() -> {
+            remove(memberId, oldTeamId, oldAge);
+            add(memberId, newTeamId, newAge);
+        });
+    }
+
+    public void memberRemoved(long memberId, Long teamId, int age) {
+        apply(() -> remove(memberId, teamId, age));
+    }
+
+    public void teamSaved(Long teamId, String name) {
+        apply(() -> teamNames.put(teamId, name));
+    }
+
+    public void teamRemoved(Long teamId) {
+        apply(() -> {
+            teamNames.remove(teamId);
+            teams.remove(teamId);
+        });
+    }
+
+    /**
+     * 다른 노드에서 바뀐 회원을 id 로 다시 읽어 반영한다 (DB 에 없으면 삭제)
+     * - 변경 전 팀/나이를 모르므로 그 회원을 모든 비트맵에서 빼고 다시 넣는다
+     * - 적재 전이거나 stale 이면 읽지 않는다 (다음 적재가 DB 에서 읽는다)
+     */
+    public void reloadMembers(Collection<Long> memberIds) {
+        if (!isLoadedOrLoading()) {
+            return;
+        }
+        List<Tuple> rows = new ArrayList<>();
+        for (List<Long> chunk : InClause.chunks(memberIds, InClause.DEFAULT_MAX_SIZE)) {
+            rows.addAll(queryFactory
+                    .select(member.id, member.team.id, member.age)
+                    .from(member)
+                    .where(member.id.in(chunk))
+                    .fetch());
+        }
+        apply(() -> {
+            memberIds.forEach(this::removeEverywhere);
+            for (Tuple row : rows) {
+                add(row.get(member.id), row.get(member.team.id), row.get(member.age));
+            }
+        });
+    }
+
+    /**
+     * 다른 노드에서 바뀐 팀의 이름을 id 로 다시 읽어 반영한다 (DB 에 없으면 삭제)
+     */
+    public void reloadTeams(Collection<Long> teamIds) {
+        if (!isLoadedOrLoading()) {
+            return;
+        }
+        Map<Long, String> names = new HashMap<>();
+        for (List<Long> chunk : InClause.chunks(teamIds, InClause.DEFAULT_MAX_SIZE)) {
+            for (Tuple row : queryFactory.select(team.id, team.name).from(team).where(team.id.in(chunk)).fetch()) {
+                names.put(row.get(team.id), row.get(team.name));
+            }
+        }
+        apply(() -> {
+            for (Long teamId : teamIds) {
+                if (names.containsKey(teamId)) {
+                    teamNames.put(teamId, names.get(teamId));
+                } else {
+                    teamNames.remove(teamId);
+                    teams.remove(teamId);
+                }
+            }
+        });
+    }
+
+    /**
+     * 변경 전 상태를 알 수 없을 때(벌크 연산 등) 호출한다. 다시 적재할 때까지 count 쿼리를 쓴다
+     */
+    public void markStale() {
+        lock.writeLock().lock();
+        try {
+            loadState.markStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            loadState.beginLoad();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        List<Tuple> members;
+        try {
+            for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+                names.put(row.get(team.id), row.get(team.name));
+            }
+            members = queryFactory.select(member.id, member.team.id, member.age).from(member).fetch();
+        } catch (RuntimeException e) {
+            markStale();
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!loadState.isLoading()) {
+                return;
+            }
+            clear();
+            teamNames.putAll(names);
+            for (Tuple row : members) {
+                add(row.get(member.id), row.get(member.team.id), row.get(member.age));
+            }
+            // 적재 중에 커밋된 변경을 다시 적용한다 (추가/삭제 모두 멱등)
+            loadState.finishLoad();
+            log.info("member count index loaded: members={}, teams={}, ages={}, bytes={}",
+                    all.cardinality(), teams.size(), ages.size(), sizeInBytes());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isLoadedOrLoading() {
+        LoadState.Status status = loadState.getStatus();
+        return status == LoadState.Status.READY || status == LoadState.Status.LOADING;
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void apply(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            loadState.apply(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(long memberId, Long teamId, int age) {
+        all.add(memberId);
+        ages.computeIfAbsent(age, key -> new CompressedBitmap()).add(memberId);
+        if (teamId != null) {
+            teams.computeIfAbsent(teamId, key -> new CompressedBitmap()).add(memberId);
+        }
+    }
+
+    private void remove(long memberId, Long teamId, int age) {
+        all.remove(memberId);
+        removeFrom(ages, age, memberId);
+        if (teamId != null) {
+            removeFrom(teams, teamId, memberId);
+        }
+    }
+
+    private void removeEverywhere(long memberId) {
+        if (!all.contains(memberId)) {
+            return;
+        }
+        all.remove(memberId);
+        removeFromAll(ages, memberId);
+        removeFromAll(teams, memberId);
+    }
+
+    private static <K> void removeFromAll(Map<K, CompressedBitmap> bitmaps, long memberId) {
+        Iterator<CompressedBitmap> iterator = bitmaps.values().iterator();
+        while (iterator.hasNext()) {
+            CompressedBitmap bitmap = iterator.next();
+            bitmap.remove(memberId);
+            if (bitmap.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedBitmap> bitmaps, K key, long memberId) {
+        CompressedBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.remove(memberId);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    private void clear() {
+        all.clear();
+        teams.clear();
+        ages.clear();
+        teamNames.clear();
+    }
+
+    private long sizeInBytes() {
+        long bytes = all.sizeInBytes();
+        for (CompressedBitmap bitmap : teams.values()) {
+            bytes += bitmap.sizeInBytes();
+        }
+        for (CompressedBitmap bitmap : ages.values()) {
+            bytes += bitmap.sizeInBytes();
+        }
+        return bytes;
+    }
+}
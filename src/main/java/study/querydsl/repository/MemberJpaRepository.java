@@ -4,6 +4,7 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Repository;
@@ -16,11 +17,19 @@ import study.querydsl.entity.QMember;
 import study.querydsl.entity.QMember.*;
 import study.querydsl.entity.QTeam;
 import study.querydsl.entity.QTeam.*;
+import study.querydsl.monitor.ServerTiming;
+import study.querydsl.repository.support.InClause;
+import study.querydsl.repository.support.MemberTeamProjection;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.QueryExecutionContext.applyTimeout;
 
 @Repository
 public class MemberJpaRepository {
@@ -38,24 +47,37 @@ public class MemberJpaRepository {
         return em.find(Member.class, id);
     }
     public List<Member> findAll(){
-        return em.createQuery("select m from Member m", Member.class).getResultList();
+        return applyTimeout(em.createQuery("select m from Member m", Member.class)).getResultList();
     }
     // QueryDSL 으로 findAll
     public List<Member> findAll_QueryDSL(){
-        return queryFactory.selectFrom(member).fetch();
+        return applyTimeout(queryFactory.selectFrom(member)).fetch();
     }
 
     public List<Member> findByUsername(String username){
-            return em.createQuery("select m from Member m where m.username = :username", Member.class)
-                    .setParameter("username", username)
+            return applyTimeout(em.createQuery("select m from Member m where m.username = :username", Member.class)
+                    .setParameter("username", username))
                     .getResultList();
     }
     // QueryDSL 으로 findByUsername
     public List<Member> findByUsername_QueryDSL(String username){
-        return queryFactory.selectFrom(member)
-                .where(member.username.eq(username))
+        return applyTimeout(queryFactory.selectFrom(member)
+                .where(member.username.eq(username)))
                 .fetch();
     }
+    // 여러 username 을 IN 절 묶음으로 한 번에 조회 (username 별 루프 조회 대체)
+    public Map<String, List<Member>> findByUsernames(Collection<String> usernames){
+        Map<String, List<Member>> result = new LinkedHashMap<>();
+        for (List<String> chunk : InClause.chunks(usernames, InClause.DEFAULT_MAX_SIZE)) {
+            List<Member> members = applyTimeout(queryFactory.selectFrom(member)
+                    .where(member.username.in(chunk)))
+                    .fetch();
+            for (Member m : members) {
+                result.computeIfAbsent(m.getUsername(), key -> new ArrayList<>()).add(m);
+            }
+        }
+        return result;
+    }
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
         BooleanBuilder builder = new BooleanBuilder();
         if(StringUtils.hasText(condition.getUsername())){
@@ -71,7 +93,7 @@ public class MemberJpaRepository {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory
+        return applyTimeout(queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -81,28 +103,28 @@ public class MemberJpaRepository {
                 ))
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(builder)
+                .where(builder))
                 .fetch();
     }
 
+    // condition.fields 로 고른 필드만 select 하고, teamName 이 필요 없으면 team 을 조인하지 않는다
     public List<MemberTeamDto> search(MemberSearchCondition condition){
-
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
+        long projection = ServerTiming.projectionStart();
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(MemberTeamProjection.of(condition))
+                .from(member);
+        if (MemberTeamProjection.needsTeam(condition)) {
+            query.leftJoin(member.team, team);
+        }
+        List<MemberTeamDto> result = applyTimeout(query
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
-                )
+                ))
                 .fetch();
+        ServerTiming.projectionEnd(projection);
+        return result;
     }
 
     private BooleanExpression ageLoe(Integer ageLoe) {
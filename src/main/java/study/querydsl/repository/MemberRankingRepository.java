@@ -0,0 +1,109 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberRankDto;
+import study.querydsl.dto.MemberTeamAvgDto;
+
+import java.util.List;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 팀 내 순위 / 팀 평균 비교 조회 (윈도 함수)
+ * - 상관 서브쿼리(JPAExpressions)는 회원 한 명마다 같은 팀을 다시 읽는다 → 팀 크기가 커질수록 O(팀 크기²)
+ * - 윈도 함수는 팀(partition) 별로 정렬/집계를 한 번만 하므로 member 를 한 번 읽고 끝난다
+ * - JPQL 에는 윈도 함수와 파생 테이블이 없으므로 Querydsl SQL(SQLQueryFactory) 로 같은 DataSource 에서 실행한다
+ *   → 영속성 컨텍스트를 거치지 않는다. 같은 트랜잭션의 미반영 변경을 보려면 먼저 flush 한다
+ * - 팀이 없는 회원은 대상이 아니다
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberRankingRepository {
+
+    private static final PathBuilder<Object> ranked = new PathBuilder<>(Object.class, "ranked");
+    private static final NumberPath<Long> rowNumber = ranked.getNumber("rn", Long.class);
+    private static final NumberPath<Double> teamAvgAge = ranked.getNumber("team_avg_age", Double.class);
+
+    private final SQLQueryFactory sqlQueryFactory;
+
+    /**
+     * 팀별 나이 많은 순 상위 limit 명 (나이가 같으면 회원 id 순)
+     * select ... from (select ..., row_number() over (partition by team_id order by age desc, member_id) rn
+     *                  from member join team) ranked where rn <= ?
+     */
+    public List<MemberRankDto> findOldestPerTeam(int limit) {
+        SQLQuery<?> numbered = sqlQueryFactory
+                .select(member.id, member.username, member.age, member.teamId, team.name,
+                        SQLExpressions.rowNumber().over()
+                                .partitionBy(member.teamId)
+                                .orderBy(member.age.desc(), member.id.asc())
+                                .as(rowNumber))
+                .from(member)
+                .join(team).on(member.teamId.eq(team.id));
+
+        return sqlQueryFactory
+                .select(Projections.constructor(MemberRankDto.class,
+                        ranked.getNumber("member_id", Long.class),
+                        ranked.getString("username"),
+                        ranked.getNumber("age", Integer.class),
+                        ranked.getNumber("team_id", Long.class),
+                        ranked.getString("name"),
+                        rowNumber))
+                .from(numbered, ranked)
+                .where(rowNumber.loe((long) limit))
+                .orderBy(ranked.getNumber("team_id", Long.class).asc(), rowNumber.asc())
+                .fetch();
+    }
+
+    /**
+     * 팀 안에서 나이 많은 순 순위 (같은 나이는 같은 순위, 다음 순위는 건너뛴다: RANK)
+     */
+    public List<MemberRankDto> rankWithinTeam() {
+        return sqlQueryFactory
+                .select(Projections.constructor(MemberRankDto.class,
+                        member.id, member.username, member.age, member.teamId, team.name,
+                        SQLExpressions.rank().over()
+                                .partitionBy(member.teamId)
+                                .orderBy(member.age.desc())))
+                .from(member)
+                .join(team).on(member.teamId.eq(team.id))
+                .orderBy(member.teamId.asc(), member.age.desc(), member.id.asc())
+                .fetch();
+    }
+
+    /**
+     * 소속 팀 평균 나이보다 나이가 많은 회원
+     * select ... from (select ..., avg(cast(age as double)) over (partition by team_id) team_avg_age
+     *                  from member join team) ranked where age > team_avg_age
+     */
+    public List<MemberTeamAvgDto> findAboveTeamAverage() {
+        SQLQuery<?> averaged = sqlQueryFactory
+                .select(member.id, member.username, member.age, member.teamId, team.name,
+                        SQLExpressions.avg(member.age.doubleValue()).over()
+                                .partitionBy(member.teamId)
+                                .as(teamAvgAge))
+                .from(member)
+                .join(team).on(member.teamId.eq(team.id));
+
+        return sqlQueryFactory
+                .select(Projections.constructor(MemberTeamAvgDto.class,
+                        ranked.getNumber("member_id", Long.class),
+                        ranked.getString("username"),
+                        ranked.getNumber("age", Integer.class),
+                        ranked.getNumber("team_id", Long.class),
+                        ranked.getString("name"),
+                        teamAvgAge))
+                .from(averaged, ranked)
+                .where(ranked.getNumber("age", Double.class).gt(teamAvgAge))
+                .orderBy(ranked.getNumber("team_id", Long.class).asc(), ranked.getNumber("member_id", Long.class).asc())
+                .fetch();
+    }
+}
@@ -4,11 +4,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface MemberRepositoryCustom{
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Map<String, List<Member>> findByUsernames(Collection<String> usernames);
+    long reassignTeam(Collection<Long> memberIds, Long teamId);
 }
@@ -1,74 +1,81 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.CountedPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
-
+import study.querydsl.entity.Team;
+import study.querydsl.event.BulkUpdateNotifier;
+import study.querydsl.monitor.ServerTiming;
+import study.querydsl.repository.support.InClause;
+import study.querydsl.repository.support.MemberTeamProjection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.QueryExecutionContext.applyTimeout;
 
 public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
 
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberRepositoryCustomImpl(JPAQueryFactory queryFactory) {
+    private final MemberCountIndex memberCountIndex;
+    private final MemberTotalEstimator memberTotalEstimator;
+    private final BulkUpdateNotifier bulkUpdateNotifier;
+
+    public MemberRepositoryCustomImpl(EntityManager em, JPAQueryFactory queryFactory,
+                                      MemberCountIndex memberCountIndex, MemberTotalEstimator memberTotalEstimator,
+                                      BulkUpdateNotifier bulkUpdateNotifier) {
+        this.em = em;
         this.queryFactory = queryFactory;
+        this.memberCountIndex = memberCountIndex;
+        this.memberTotalEstimator = memberTotalEstimator;
+        this.bulkUpdateNotifier = bulkUpdateNotifier;
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+        long projection = ServerTiming.projectionStart();
+        List<MemberTeamDto> result = applyTimeout(contentQuery(condition))
                 .fetch();
+        ServerTiming.projectionEnd(projection);
+        return result;
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-
-        QueryResults<MemberTeamDto> results = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+        // 비트맵 인덱스로 total 을 알 수 있으면 fetchResults(content + count) 대신 content 만 조회한다
+        OptionalLong indexedTotal = memberCountIndex.count(condition);
+        if (indexedTotal.isPresent()) {
+            return new PageImpl<>(fetchContent(condition, pageable), pageable, indexedTotal.getAsLong());
+        }
+
+        long projection = ServerTiming.projectionStart();
+        QueryResults<MemberTeamDto> results = applyTimeout(contentQuery(condition)
                 .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .limit(pageable.getPageSize()))
                 .fetchResults();
+        ServerTiming.projectionEnd(projection);
         List<MemberTeamDto> content = results.getResults();
         long total = results.getTotal();
         return new PageImpl<>(content, pageable, total);
@@ -76,37 +83,104 @@ public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
 
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        List<MemberTeamDto> content = fetchContent(condition, pageable);
 
+        boolean joinTeam = StringUtils.hasText(condition.getTeamName()); // to-one left join 은 건수를 바꾸지 않으므로 조건이 있을 때만
+        Predicate filter = ExpressionUtils.allOf(usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
         JPAQuery<Member> countQuery = queryFactory.select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
-        return PageableExecutionUtils.getPage(content, pageable, () -> countQuery.fetchCount());
+                .from(member);
+        if (joinTeam) {
+            countQuery.leftJoin(member.team, team);
+        }
+        countQuery.where(filter);
+        // 인덱스가 준비돼 있으면 비트맵으로 total 을 계산하고, 아니면 (켜져 있으면) 근사치, 그것도 안 되면 count 쿼리를 실행한다
+        // count 쿼리는 content 조회 후 실행되므로 그 시점의 남은 시간으로 힌트를 건다
+        boolean[] exact = {true};
+        Page<MemberTeamDto> page = PageableExecutionUtils.getPage(content, pageable, () -> {
+            OptionalLong indexed = memberCountIndex.count(condition);
+            if (indexed.isPresent()) {
+                return indexed.getAsLong();
+            }
+            OptionalLong estimated = memberTotalEstimator.estimate(filter, joinTeam);
+            if (estimated.isPresent()) {
+                exact[0] = false;
+                return estimated.getAsLong();
+            }
+            return applyTimeout(countQuery).fetchCount();
+        });
+        if (!memberTotalEstimator.isEnabled()) {
+            return page;
+        }
+        return new CountedPage<>(page.getContent(), pageable, page.getTotalElements(), exact[0]);
 //        return new PageImpl<>(content, pageable, total);
     }
 
+    private List<MemberTeamDto> fetchContent(MemberSearchCondition condition, Pageable pageable) {
+        long projection = ServerTiming.projectionStart();
+        List<MemberTeamDto> content = applyTimeout(contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize()))
+                .fetch();
+        ServerTiming.projectionEnd(projection);
+        return content;
+    }
+
+    /**
+     * 검색 content 쿼리. condition.fields 로 고른 필드만 select 하고, teamName 이 필요 없으면 team 을 조인하지 않는다
+     */
+    private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(MemberTeamProjection.of(condition))
+                .from(member);
+        if (MemberTeamProjection.needsTeam(condition)) {
+            query.leftJoin(member.team, team);
+        }
+        return query.where(usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+    }
+
+    @Override
+    public Map<String, List<Member>> findByUsernames(Collection<String> usernames) {
+        Map<String, List<Member>> result = new LinkedHashMap<>();
+        for (List<String> chunk : InClause.chunks(usernames, InClause.DEFAULT_MAX_SIZE)) {
+            List<Member> members = applyTimeout(queryFactory.selectFrom(member)
+                    .where(member.username.in(chunk)))
+                    .fetch();
+            for (Member m : members) {
+                result.computeIfAbsent(m.getUsername(), key -> new ArrayList<>()).add(m);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 회원들의 팀을 update 쿼리로 한 번에 바꾼다 (teamId 가 null 이면 팀에서 뺀다)
+     * - 엔티티를 읽지 않고 Team 도 getReference 로만 쓰므로 member/team SELECT 가 없다
+     * - 벌크 연산이라 영속성 컨텍스트를 거치지 않는다 → 실행 전 flush, 실행 후 clear 한다
+     * - 행 단위 커밋 이벤트가 없으므로 BulkUpdateNotifier 로 집계/인덱스에 알린다
+     *
+     * @return 바뀐 회원 수
+     */
+    @Override
+    @Transactional
+    public long reassignTeam(Collection<Long> memberIds, Long teamId) {
+        em.flush();
+        Team team = teamId != null ? em.getReference(Team.class, teamId) : null;
+        long updated = 0;
+        for (List<Long> chunk : InClause.chunks(memberIds, InClause.DEFAULT_MAX_SIZE)) {
+            JPAUpdateClause update = queryFactory.update(member).where(member.id.in(chunk));
+            updated += (team != null ? update.set(member.team, team) : update.setNull(member.team)).execute();
+        }
+        em.clear();
+        bulkUpdateNotifier.afterCommit(Member.class);
+        return updated;
+    }
+
     private BooleanExpression ageLoe(Integer ageLoe) {
         return ageLoe != null ? member.age.loe(ageLoe) : null;
     }
@@ -0,0 +1,149 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.snapshot.MemberRow;
+import study.querydsl.repository.snapshot.MemberSnapshotStore;
+import study.querydsl.repository.support.InClause;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 메모리 스냅샷(MemberSnapshotStore)으로 회원 검색
+ * - querydsl.search.snapshot.enabled 일 때만 사용한다
+ * - 적재 전이거나 stale 이면 isAvailable() 이 false → 호출한 쪽은 DB 로 조회하고, 재적재는 백그라운드로 돈다
+ * - 다른 노드에서 바뀐 회원/팀은 그 id 만 DB 에서 다시 읽어 반영한다 (reloadMembers / reloadTeams)
+ */
+@Slf4j
+@Repository
+public class MemberSnapshotRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberSnapshotStore store;
+    private final boolean enabled;
+
+    public MemberSnapshotRepository(JPAQueryFactory queryFactory,
+                                    MemberSnapshotStore store,
+                                    @Value("${querydsl.search.snapshot.enabled:false}") boolean enabled) {
+        this.queryFactory = queryFactory;
+        this.store = store;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isAvailable() {
+        return enabled && store.isReadyOrRebuild(this::rebuild);
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return store.search(condition, 0, Integer.MAX_VALUE).content();
+    }
+
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        MemberSnapshotStore.SearchResult result = store.search(condition, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(result.content(), pageable, result.total());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 다른 노드에서 바뀐 회원을 id 로 다시 읽어 반영한다 (DB 에 없으면 삭제). 적재 전이거나 stale 이면 읽지 않는다
+     */
+    public void reloadMembers(Collection<Long> memberIds) {
+        if (!isLoadedOrLoading()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(memberIds);
+        for (List<Long> chunk : InClause.chunks(memberIds, InClause.DEFAULT_MAX_SIZE)) {
+            for (Tuple row : queryFactory
+                    .select(member.id, member.username, member.age, member.team.id)
+                    .from(member)
+                    .where(member.id.in(chunk))
+                    .fetch()) {
+                missing.remove(row.get(member.id));
+                store.memberSaved(new MemberRow(row.get(member.id), row.get(member.username),
+                        row.get(member.age), row.get(member.team.id)));
+            }
+        }
+        missing.forEach(store::memberRemoved);
+    }
+
+    /**
+     * 다른 노드에서 바뀐 팀의 이름을 id 로 다시 읽어 반영한다 (DB 에 없으면 삭제)
+     */
+    public void reloadTeams(Collection<Long> teamIds) {
+        if (!isLoadedOrLoading()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(teamIds);
+        for (List<Long> chunk : InClause.chunks(teamIds, InClause.DEFAULT_MAX_SIZE)) {
+            for (Tuple row : queryFactory.select(team.id, team.name).from(team).where(team.id.in(chunk)).fetch()) {
+                missing.remove(row.get(team.id));
+                store.teamSaved(row.get(team.id), row.get(team.name));
+            }
+        }
+        missing.forEach(store::teamRemoved);
+    }
+
+    private boolean isLoadedOrLoading() {
+        LoadState.Status status = store.getStatus();
+        return enabled && (status == LoadState.Status.READY || status == LoadState.Status.LOADING);
+    }
+
+    /**
+     * member/team 전체를 읽어 스냅샷을 다시 만든다
+     */
+    public synchronized void rebuild() {
+        store.beginLoad();
+        try {
+            Map<Long, String> teams = new HashMap<>();
+            for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+                teams.put(row.get(team.id), row.get(team.name));
+            }
+            List<Tuple> members = queryFactory
+                    .select(member.id, member.username, member.age, member.team.id)
+                    .from(member)
+                    .orderBy(member.id.asc())
+                    .fetch();
+            List<MemberRow> rows = new ArrayList<>(members.size());
+            for (Tuple row : members) {
+                rows.add(new MemberRow(row.get(member.id), row.get(member.username),
+                        row.get(member.age), row.get(member.team.id)));
+            }
+            store.finishLoad(rows, teams);
+            log.info("member snapshot loaded: members={}, teams={}, offHeapBytes={}",
+                    rows.size(), teams.size(), store.offHeapBytes());
+        } catch (RuntimeException e) {
+            store.markStale();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.QueryExecutionContext.applyTimeout;
+
+/**
+ * 회원 검색 total 근사치 (querydsl.search.approximate-count.enabled=true 일 때만 동작)
+ * - 전체 회원 수는 테이블 통계(H2 INFORMATION_SCHEMA.TABLES.ROW_COUNT_ESTIMATE)로 읽는다
+ *   → 회원 수와 member_id 범위는 stats-ttl 동안 재사용한다
+ * - 조건이 있으면 member_id 구간 몇 개(층화 표본)에서 조건에 맞는 비율을 세서 전체 회원 수에 곱한다
+ *   → 표본 구간은 PK 범위 스캔이라 표본 크기만큼만 읽는다
+ *   → 구간 안의 행들은 서로 독립이 아니므로(가입 순서대로 몰려 있는 데이터) 구간을 집락으로 보고 오차를 구한다
+ * - 95% 신뢰구간의 상대 오차가 error-bound 를 넘거나, 근사치가 exact-threshold 보다 작으면 empty
+ *   → 호출한 쪽이 정확한 count 쿼리를 실행한다 (적게 나오는 결과는 정확한 count 도 싸다)
+ */
+@Slf4j
+@Repository
+public class MemberTotalEstimator {
+
+    private static final double Z_95 = 1.96;
+    // 자유도 1~10 의 t 분포 97.5% 분위수 (표본 구간이 적을 때 구간 간 분산의 불확실성 반영)
+    private static final double[] T_975 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228};
+    private static final String ROW_COUNT_ESTIMATE = "select row_count_estimate from information_schema.tables"
+            + " where table_schema = current_schema and table_name = 'MEMBER'";
+
+    private final JPAQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long exactThreshold;
+    private final double errorBound;
+    private final int sampleSize;
+    private final int sampleWindows;
+    private final long statsTtlNanos;
+    private final Counter estimated;
+    private volatile TableStats stats;
+
+    public MemberTotalEstimator(JPAQueryFactory queryFactory, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                @Value("${querydsl.search.approximate-count.enabled:false}") boolean enabled,
+                                @Value("${querydsl.search.approximate-count.exact-threshold:10000}") long exactThreshold,
+                                @Value("${querydsl.search.approximate-count.error-bound:0.05}") double errorBound,
+                                @Value("${querydsl.search.approximate-count.sample-size:4000}") int sampleSize,
+                                @Value("${querydsl.search.approximate-count.sample-windows:4}") int sampleWindows,
+                                @Value("${querydsl.search.approximate-count.stats-ttl:5s}") Duration statsTtl) {
+        this.queryFactory = queryFactory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.exactThreshold = exactThreshold;
+        this.errorBound = errorBound;
+        this.sampleSize = sampleSize;
+        this.sampleWindows = sampleWindows;
+        this.statsTtlNanos = statsTtl.toNanos();
+        this.estimated = Counter.builder("member.search.count").tag("source", "estimate").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * filter 에 맞는 회원 수 근사치. 꺼져 있거나 오차 한도 안에서 추정할 수 없으면 empty
+     *
+     * @param filter   검색 조건 (null 이면 전체)
+     * @param joinTeam filter 가 team 을 참조하면 true
+     */
+    public OptionalLong estimate(Predicate filter, boolean joinTeam) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        TableStats stats = stats();
+        long rows = stats.rows();
+        if (rows < exactThreshold || stats.minId() == null) {
+            return OptionalLong.empty();
+        }
+        if (filter == null) {
+            estimated.increment();
+            return OptionalLong.of(rows);
+        }
+
+        NumberExpression<Long> matched = new CaseBuilder().when(filter).then(1L).otherwise(0L).sum();
+        List<long[]> windows = sampleWindows(stats.minId(), stats.maxId(), rows);
+        long[] windowSampled = new long[windows.size()];
+        long[] windowHits = new long[windows.size()];
+        long sampled = 0;
+        long hits = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            long[] window = windows.get(i);
+            JPAQuery<Tuple> sample = queryFactory.select(member.count(), matched).from(member);
+            if (joinTeam) {
+                sample.leftJoin(member.team, team);
+            }
+            Tuple counts = applyTimeout(sample.where(member.id.between(window[0], window[1]))).fetchOne();
+            if (counts != null && counts.get(matched) != null) {
+                windowSampled[i] = counts.get(member.count());
+                windowHits[i] = counts.get(matched);
+                sampled += windowSampled[i];
+                hits += windowHits[i];
+            }
+        }
+        if (sampled == 0 || hits == 0) {
+            return OptionalLong.empty();
+        }
+
+        double p = (double) hits / sampled;
+        long estimate = Math.round(p * rows);
+        if (estimate < exactThreshold || relativeError(windowSampled, windowHits, rows) > errorBound) {
+            return OptionalLong.empty();
+        }
+        estimated.increment();
+        return OptionalLong.of(estimate);
+    }
+
+    /**
+     * 구간별 (표본 수, 맞는 수) 로 구한 비율의 95% 신뢰구간 반폭 / 비율
+     * - 구간을 집락으로 보는 비율 추정량의 분산: (1 - f) / (k * n̄²) * Σ(y_i - p * n_i)² / (k - 1)
+     *   → 조건에 맞는 행이 id 순서로 몰려 있으면 구간마다 비율이 크게 달라 오차가 커진다
+     * - 구간이 k 개뿐이라 분산 추정이 불안정하므로 t 분포 분위수를 쓰고,
+     *   구간끼리 우연히 비슷하게 나와도 행 단위 무작위 표본(이항) 오차보다 작게 잡지 않는다
+     */
+    static double relativeError(long[] sampled, long[] hits, long rows) {
+        int k = sampled.length;
+        long totalSampled = 0;
+        long totalHits = 0;
+        for (int i = 0; i < k; i++) {
+            totalSampled += sampled[i];
+            totalHits += hits[i];
+        }
+        if (totalHits == 0 || k < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double p = (double) totalHits / totalSampled;
+        double fpc = rows > 1 ? Math.max(0, (double) (rows - totalSampled) / (rows - 1)) : 0;
+        double binomial = Z_95 * Math.sqrt((1 - p) / totalHits * fpc);
+
+        double squares = 0;
+        for (int i = 0; i < k; i++) {
+            double residual = hits[i] - p * sampled[i];
+            squares += residual * residual;
+        }
+        double meanSampled = (double) totalSampled / k;
+        double variance = fpc * squares / (k - 1) / (k * meanSampled * meanSampled);
+        double t = k - 1 <= T_975.length ? T_975[k - 2] : Z_95;
+        double cluster = t * Math.sqrt(variance) / p;
+        return Math.max(binomial, cluster);
+    }
+
+    /**
+     * [minId, maxId] 를 sample-windows 개 층으로 나누고 층마다 임의 위치의 id 구간 [from, to] 하나를 고른다
+     * - id 가 고르게 퍼져 있다고 보고 구간 폭을 (표본 크기 / 회원 수) 비율로 잡는다
+     * - 구간마다 따로 조회한다 (between 을 OR 로 묶으면 H2 가 PK 범위 스캔 대신 전체를 읽는다)
+     */
+    private List<long[]> sampleWindows(long minId, long maxId, long rows) {
+        long span = maxId - minId + 1;
+        long stratum = Math.max(1, span / sampleWindows);
+        long width = Math.max(1, (long) ((double) span * sampleSize / rows / sampleWindows));
+        List<long[]> windows = new ArrayList<>(sampleWindows + 1);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long start = minId; start <= maxId; start += stratum) {
+            long from = start + (width < stratum ? random.nextLong(stratum - width + 1) : 0);
+            windows.add(new long[]{from, from + width - 1});
+        }
+        return windows;
+    }
+
+    private TableStats stats() {
+        TableStats current = stats;
+        long now = System.nanoTime();
+        if (current != null && now - current.readAt() < statsTtlNanos) {
+            return current;
+        }
+        long rows;
+        try {
+            Long estimate = jdbcTemplate.queryForObject(ROW_COUNT_ESTIMATE, Long.class);
+            rows = estimate != null ? estimate : 0;
+        } catch (DataAccessException e) {
+            log.debug("table statistics unavailable, using exact count", e);
+            rows = 0;
+        }
+        Tuple bounds = applyTimeout(queryFactory.select(member.id.min(), member.id.max()).from(member)).fetchOne();
+        current = new TableStats(rows, bounds != null ? bounds.get(member.id.min()) : null,
+                bounds != null ? bounds.get(member.id.max()) : null, now);
+        stats = current;
+        return current;
+    }
+
+    /**
+     * 회원 수(통계)와 member_id 범위. 회원이 없으면 minId/maxId 는 null
+     */
+    private record TableStats(long rows, Long minId, Long maxId, long readAt) {
+    }
+}
@@ -0,0 +1,232 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.LockModeType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.support.InClause;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamMemberCountDelta.teamMemberCountDelta;
+
+/**
+ * Team.memberCount 유지 / 조회
+ * - 가입/탈퇴는 같은 트랜잭션에서 team_member_count_delta 에 행을 추가만 한다 (TeamMemberCountDeltaListener, team 행 잠금 없음)
+ * - merge() 가 주기적으로 delta 행을 팀별로 합쳐 update team set member_count = member_count + ? 를 한 번 실행하고 지운다
+ *   (merge-batch-size 행씩 id 순으로 잠그고 비운다. 주기 실행은 merge-enabled 로 끌 수 있다)
+ *   → 인기 팀에 동시에 가입해도 트랜잭션마다 같은 team 행을 잠그지 않는다
+ * - count() = member_count + 아직 merge 되지 않은 delta 합. delta 가 DB 에 있으므로 재시작해도 잃지 않고 어느 노드에서 커밋된 변경이든 보인다
+ * - 벌크 연산 등으로 delta 를 알 수 없으면 stale 로 표시하고 다음 merge 에서 전체 재계산한다
+ * - 이전 실행이 재계산 전에 끝났을 수 있으므로 stale 로 시작해 기동 직후 재계산한다
+ */
+@Slf4j
+@Repository
+public class TeamMemberCountRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate tx;
+    private final boolean mergeEnabled;
+    private final int mergeBatchSize;
+    private volatile boolean stale = true;
+
+    public TeamMemberCountRepository(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager,
+                                     @Value("${querydsl.team-member-count.merge-enabled:true}") boolean mergeEnabled,
+                                     @Value("${querydsl.team-member-count.merge-batch-size:1000}") int mergeBatchSize) {
+        this.queryFactory = queryFactory;
+        this.mergeEnabled = mergeEnabled;
+        this.mergeBatchSize = mergeBatchSize;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recountOnStartup() {
+        merge();
+    }
+
+    /**
+     * 팀 회원 수. 팀이 없으면 0
+     */
+    public long count(Long teamId) {
+        if (stale) {
+            merge();
+        }
+        // member_count 와 delta 합을 한 쿼리로 읽어 merge 와 겹쳐도 같은 delta 가 두 번 / 0 번 보이지 않게 한다
+        JPQLQuery<Long> pendingDelta = pendingDelta();
+        Tuple row = queryFactory
+                .select(team.memberCount, pendingDelta)
+                .from(team)
+                .where(team.id.eq(teamId))
+                .fetchOne();
+        return row != null ? total(row, pendingDelta) : 0;
+    }
+
+    /**
+     * 전체 팀의 회원 수 (teamId 순)
+     */
+    public Map<Long, Long> findAll() {
+        if (stale) {
+            merge();
+        }
+        JPQLQuery<Long> pendingDelta = pendingDelta();
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        for (Tuple row : queryFactory.select(team.id, team.memberCount, pendingDelta)
+                .from(team)
+                .orderBy(team.id.asc())
+                .fetch()) {
+            counts.put(row.get(team.id), total(row, pendingDelta));
+        }
+        return counts;
+    }
+
+    private static JPQLQuery<Long> pendingDelta() {
+        return JPAExpressions
+                .select(teamMemberCountDelta.delta.sum())
+                .from(teamMemberCountDelta)
+                .where(teamMemberCountDelta.teamId.eq(team.id));
+    }
+
+    private static long total(Tuple row, JPQLQuery<Long> pendingDelta) {
+        Long delta = row.get(pendingDelta);
+        return row.get(team.memberCount) + (delta != null ? delta : 0);
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.team-member-count.merge-interval-ms:1000}")
+    public void scheduledMerge() {
+        if (mergeEnabled) {
+            merge();
+        }
+    }
+
+    /**
+     * 쌓인 delta 를 team.member_count 에 반영한다. stale 이면 전체 재계산한다
+     * - 여러 노드가 동시에 실행해도 delta 행을 잠그고 읽은 행만 더하고 지우므로 한 번씩만 반영된다
+     * - 쌓인 행이 없으면 잠그지 않고 끝낸다. 있으면 merge-batch-size 행씩 트랜잭션을 나눠 비운다
+     */
+    public synchronized void merge() {
+        if (stale) {
+            stale = false;
+            try {
+                long updated = tx.execute(status -> recount());
+                log.info("team member count recomputed: {} teams", updated);
+            } catch (RuntimeException e) {
+                stale = true;
+                throw e;
+            }
+            return;
+        }
+
+        if (queryFactory.selectOne().from(teamMemberCountDelta).fetchFirst() == null) {
+            return;
+        }
+        int batch;
+        do {
+            batch = tx.execute(status -> drain());
+        } while (batch == mergeBatchSize);
+    }
+
+    private int drain() {
+        List<Tuple> rows = queryFactory
+                .select(teamMemberCountDelta.id, teamMemberCountDelta.teamId, teamMemberCountDelta.delta)
+                .from(teamMemberCountDelta)
+                .orderBy(teamMemberCountDelta.id.asc())
+                .limit(mergeBatchSize)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> drained = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            ids.add(row.get(teamMemberCountDelta.id));
+            drained.merge(row.get(teamMemberCountDelta.teamId), row.get(teamMemberCountDelta.delta), Long::sum);
+        }
+        drained.forEach((teamId, delta) -> {
+            if (delta != 0) {
+                queryFactory
+                        .update(team)
+                        .set(team.memberCount, team.memberCount.add(delta))
+                        .where(team.id.eq(teamId))
+                        .execute();
+            }
+        });
+        // 읽은 뒤에 커밋된 delta 행은 건드리지 않도록 id 로 지운다
+        for (List<Long> chunk : InClause.chunks(ids, InClause.DEFAULT_MAX_SIZE)) {
+            queryFactory.delete(teamMemberCountDelta).where(teamMemberCountDelta.id.in(chunk)).execute();
+        }
+        return rows.size();
+    }
+
+    /**
+     * member 테이블 전체를 다시 세어 team.member_count 를 덮어쓴다 (정합성 검증 / 복구용)
+     * - 아직 merge 되지 않은 delta 는 count() 에서 더해지므로 member_count = 실제 회원 수 - 남은 delta 합 으로 맞춘다
+     */
+    public long recount() {
+        return queryFactory
+                .update(team)
+                .set(team.memberCount, Expressions.numberOperation(Long.class, Ops.SUB,
+                        JPAExpressions
+                                .select(member.count())
+                                .from(member)
+                                .where(member.team.eq(team)),
+                        JPAExpressions
+                                .select(teamMemberCountDelta.delta.sum().coalesce(0L))
+                                .from(teamMemberCountDelta)
+                                .where(teamMemberCountDelta.teamId.eq(team.id))))
+                .execute();
+    }
+
+    /**
+     * count() 와 group by 전체 재계산 결과를 비교해 불일치 내역을 반환한다. 비어 있으면 정합성 OK
+     */
+    public List<String> checkConsistency() {
+        Map<Long, Long> expected = new LinkedHashMap<>();
+        List<Tuple> rows = queryFactory
+                .select(team.id, member.count())
+                .from(team)
+                .leftJoin(team.members, member)
+                .groupBy(team.id)
+                .orderBy(team.id.asc())
+                .fetch();
+        for (Tuple row : rows) {
+            expected.put(row.get(team.id), row.get(member.count()));
+        }
+        Map<Long, Long> actual = findAll();
+
+        List<String> mismatches = new ArrayList<>();
+        expected.forEach((teamId, count) -> {
+            if (!Objects.equals(count, actual.get(teamId))) {
+                mismatches.add("teamId=" + teamId + ", expected=" + count + ", actual=" + actual.get(teamId));
+            }
+        });
+        return mismatches;
+    }
+}
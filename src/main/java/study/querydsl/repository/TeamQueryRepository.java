@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.QueryExecutionContext.applyTimeout;
+
+/**
+ * 팀 + 소속 회원 페이징 조회
+ * - 컬렉션 페치 조인에 offset/limit 을 걸면 Hibernate 가 전체 결과를 읽어 메모리에서 자른다 (HHH90003004)
+ * - 그래서 두 번에 나눠 조회한다
+ *   1) 페이지에 들어갈 team.id 만 DB 에서 offset/limit 으로 자른다
+ *   2) 그 id 들의 팀을 members 와 페치 조인해 쿼리 한 번으로 읽는다 (페이징 없음)
+ *   → 읽는 행 수는 페이지 크기(팀 수 × 팀당 회원 수)에 비례한다
+ */
+@Repository
+@RequiredArgsConstructor
+public class TeamQueryRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    /**
+     * sort 는 id, name 만 지원한다 (기본 id 오름차순)
+     */
+    public Page<TeamMembersDto> findTeamsWithMembers(Pageable pageable) {
+        List<Long> ids = applyTimeout(queryFactory
+                .select(team.id)
+                .from(team)
+                .orderBy(orderBy(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize()))
+                .fetch();
+
+        List<TeamMembersDto> content = ids.isEmpty() ? List.of() : fetchWithMembers(ids);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> applyTimeout(queryFactory.select(team.count()).from(team)).fetchOne());
+    }
+
+    private List<TeamMembersDto> fetchWithMembers(List<Long> ids) {
+        // 조회만 하므로 dirty checking 용 스냅샷을 만들지 않는다
+        List<Team> teams = applyTimeout(queryFactory
+                .selectFrom(team)
+                .distinct()
+                .leftJoin(team.members, member).fetchJoin()
+                .where(team.id.in(ids))
+                .setHint(HibernateHints.HINT_READ_ONLY, true))
+                .fetch();
+
+        // 1) 에서 정한 페이지 순서대로 다시 맞춘다
+        Map<Long, Team> byId = teams.stream().collect(Collectors.toMap(Team::getId, Function.identity()));
+        List<TeamMembersDto> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Team t = byId.get(id);
+            if (t == null) {
+                continue; // 1) 과 2) 사이에 삭제된 팀
+            }
+            List<MemberDto> members = t.getMembers().stream()
+                    .sorted(Comparator.comparing(Member::getId))
+                    .map(m -> new MemberDto(m.getUsername(), m.getAge()))
+                    .toList();
+            content.add(new TeamMembersDto(t.getId(), t.getName(), members));
+        }
+        return content;
+    }
+
+    private static OrderSpecifier<?>[] orderBy(Sort sort) {
+        Sort.Order name = sort.getOrderFor("name");
+        if (name != null) {
+            return new OrderSpecifier<?>[]{name.isAscending() ? team.name.asc() : team.name.desc(), team.id.asc()};
+        }
+        Sort.Order id = sort.getOrderFor("id");
+        return new OrderSpecifier<?>[]{id != null && id.isDescending() ? team.id.desc() : team.id.asc()};
+    }
+}
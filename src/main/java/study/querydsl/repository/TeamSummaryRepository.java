@@ -0,0 +1,209 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamSummaryDto;
+import study.querydsl.repository.support.InClause;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀별 집계 조회
+ * - findAll(): TeamSummaryStore 에서 바로 반환 (회원 스캔 없음)
+ * - recompute(): group by 로 전체 재계산 (정합성 검증용)
+ * - 적재 전이거나 stale 이면 findAll / checkConsistency 가 먼저 다시 적재한다
+ * - 다른 노드의 변경은 회원이 드나든 팀만 다시 집계한다 (reloadTeams, 적재 중이면 reloadMembers)
+ */
+@Repository
+public class TeamSummaryRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamSummaryStore store;
+    private final TransactionTemplate snapshotTx;
+
+    public TeamSummaryRepository(JPAQueryFactory queryFactory, TeamSummaryStore store,
+                                 PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.store = store;
+        // H2 의 REPEATABLE READ 는 테이블마다 따로 스냅샷을 잡는다. SERIALIZABLE 이어야 첫 조회 시점의 DB 전체 스냅샷을 본다
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        snapshotTx.setReadOnly(true);
+    }
+
+    public List<TeamSummaryDto> findAll() {
+        if (!store.isReady()) {
+            rebuild();
+        }
+        return store.findAll();
+    }
+
+    public List<TeamSummaryDto> recompute() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name, member.count(), member.age.longValue().sum(),
+                        member.age.min(), member.age.max())
+                .from(team)
+                .leftJoin(team.members, member)
+                .groupBy(team.id, team.name)
+                .orderBy(team.id.asc())
+                .fetch();
+
+        List<TeamSummaryDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long sum = row.get(member.age.longValue().sum());
+            result.add(new TeamSummaryDto(
+                    row.get(team.id),
+                    row.get(team.name),
+                    row.get(member.count()),
+                    sum != null ? sum : 0L,
+                    row.get(member.age.min()),
+                    row.get(member.age.max())));
+        }
+        return result;
+    }
+
+    /**
+     * 메모리 집계와 전체 재계산 결과를 비교해 불일치 내역을 반환한다. 비어 있으면 정합성 OK
+     */
+    public List<String> checkConsistency() {
+        if (!store.isReady()) {
+            rebuild();
+        }
+        if (!store.isReady()) {
+            return List.of("store is " + store.getStatus()); // 적재 중에 다시 stale 이 되었다
+        }
+        Map<Long, TeamSummaryDto> expected = new LinkedHashMap<>();
+        for (TeamSummaryDto dto : recompute()) {
+            expected.put(dto.getTeamId(), dto);
+        }
+        Map<Long, TeamSummaryDto> actual = new LinkedHashMap<>();
+        for (TeamSummaryDto dto : store.findAll()) {
+            actual.put(dto.getTeamId(), dto);
+        }
+
+        List<String> mismatches = new ArrayList<>();
+        expected.forEach((teamId, dto) -> {
+            if (!Objects.equals(dto, actual.get(teamId))) {
+                mismatches.add("expected=" + dto + ", actual=" + actual.get(teamId));
+            }
+        });
+        actual.keySet().stream()
+                .filter(teamId -> !expected.containsKey(teamId))
+                .forEach(teamId -> mismatches.add("unknown team in store: " + actual.get(teamId)));
+        return mismatches;
+    }
+
+    /**
+     * 다른 노드에서 회원이 드나든 팀(또는 바뀐 팀)의 이름과 나이 히스토그램을 한 스냅샷에서 다시 읽어 store 에 반영한다
+     * - 적재 전이거나 stale 이면 읽지 않는다 (다음 적재가 DB 에서 읽는다)
+     */
+    public void reloadTeams(Collection<Long> teamIds) {
+        LoadState.Status loadStatus = store.getStatus();
+        if (loadStatus != LoadState.Status.READY && loadStatus != LoadState.Status.LOADING) {
+            return;
+        }
+        snapshotTx.executeWithoutResult(status -> {
+            Map<Long, String> names = new HashMap<>();
+            Map<Long, Map<Integer, Long>> histograms = new HashMap<>();
+            for (List<Long> chunk : InClause.chunks(teamIds, InClause.DEFAULT_MAX_SIZE)) {
+                for (Tuple row : queryFactory.select(team.id, team.name).from(team).where(team.id.in(chunk)).fetch()) {
+                    names.put(row.get(team.id), row.get(team.name));
+                }
+                for (Tuple row : queryFactory
+                        .select(member.team.id, member.age, member.count())
+                        .from(member)
+                        .where(member.team.id.in(chunk))
+                        .groupBy(member.team.id, member.age)
+                        .fetch()) {
+                    histograms.computeIfAbsent(row.get(member.team.id), id -> new HashMap<>())
+                            .put(row.get(member.age), row.get(member.count()));
+                }
+            }
+            store.teamsReloaded(teamIds, names, histograms);
+        });
+    }
+
+    /**
+     * 적재 중일 때만 다른 노드에서 바뀐 회원의 지금 상태를 읽어 store 에 넘긴다 (READY 면 reloadTeams 가 팀 단위로 맡는다)
+     */
+    public void reloadMembers(Collection<Long> memberIds) {
+        if (store.getStatus() != LoadState.Status.LOADING) {
+            return;
+        }
+        Map<Long, TeamSummaryStore.MemberState> states = new HashMap<>();
+        memberIds.forEach(memberId -> states.put(memberId, null));
+        for (List<Long> chunk : InClause.chunks(memberIds, InClause.DEFAULT_MAX_SIZE)) {
+            for (Tuple row : queryFactory.select(member.id, member.team.id, member.age)
+                    .from(member).where(member.id.in(chunk)).fetch()) {
+                states.put(row.get(member.id),
+                        new TeamSummaryStore.MemberState(row.get(member.team.id), row.get(member.age)));
+            }
+        }
+        store.membersReloaded(states);
+    }
+
+    /**
+     * 팀 이름, 팀별 나이 히스토그램, 적재 중에 변경된 회원의 상태를 한 스냅샷에서 읽어 store 를 교체한다
+     * - 교체하기 전에 변경된 회원이 더 생기면 그 회원들만 같은 스냅샷에서 더 읽는다
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        store.beginLoad();
+        try {
+            snapshotTx.executeWithoutResult(status -> {
+                Map<Long, String> names = new HashMap<>();
+                for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+                    names.put(row.get(team.id), row.get(team.name));
+                }
+
+                Map<Long, Map<Integer, Long>> histograms = new HashMap<>();
+                List<Tuple> rows = queryFactory
+                        .select(member.team.id, member.age, member.count())
+                        .from(member)
+                        .where(member.team.isNotNull())
+                        .groupBy(member.team.id, member.age)
+                        .fetch();
+                for (Tuple row : rows) {
+                    histograms.computeIfAbsent(row.get(member.team.id), id -> new HashMap<>())
+                            .put(row.get(member.age), row.get(member.count()));
+                }
+
+                Map<Long, TeamSummaryStore.MemberState> memberStates = new HashMap<>();
+                do {
+                    Set<Long> missing = store.touchedMembers();
+                    missing.removeAll(memberStates.keySet());
+                    for (Long memberId : missing) {
+                        memberStates.put(memberId, null);
+                    }
+                    for (List<Long> chunk : InClause.chunks(missing, InClause.DEFAULT_MAX_SIZE)) {
+                        for (Tuple row : queryFactory.select(member.id, member.team.id, member.age)
+                                .from(member).where(member.id.in(chunk)).fetch()) {
+                            memberStates.put(row.get(member.id),
+                                    new TeamSummaryStore.MemberState(row.get(member.team.id), row.get(member.age)));
+                        }
+                    }
+                } while (!store.finishLoad(names, histograms, memberStates));
+            });
+        } catch (RuntimeException e) {
+            store.markStale();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package study.querydsl.repository;
+
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.TeamSummaryDto;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 팀별 회원 수 / 나이 합계 / 최소 / 최대를 메모리에 유지하는 저장소
+ * - 회원 insert/delete/update(팀 이동, 나이 변경) 시 증분으로 갱신한다
+ * - 조회는 회원을 스캔하지 않고 팀 수만큼만 순회한다 (O(teams))
+ * - 최소/최대는 삭제에도 대응하도록 나이별 인원 수(히스토그램)로 관리한다
+ * - 적재 상태는 LoadState 가 맡는다. 적재 중에 커밋된 회원 변경은 모아 두었다가 적재가 끝나면 다시 적용한다
+ *   → 증분(+1/-1)은 두 번 적용하면 틀리므로, 다시 적용할 때는 "적재 쿼리가 본 그 회원의 상태"를 빼고 마지막 상태를 더한다
+ *   → 그래서 적재하는 쪽은 touchedMembers() 의 회원 상태를 집계와 같은 스냅샷에서 읽어 finishLoad 에 넘긴다
+ * - 다른 노드의 변경은 회원의 변경 전 상태를 모르므로 회원이 드나든 팀의 집계를 DB 에서 다시 읽은 값으로 바꾼다 (teamsReloaded)
+ *   → 적재 중이면 집계 대신 회원의 마지막 상태를 로컬 변경과 같이 모아 둔다 (membersReloaded)
+ */
+@Component
+public class TeamSummaryStore {
+
+    private final Map<Long, TeamStats> teams = new ConcurrentHashMap<>();
+    private final LoadState loadState = new LoadState();
+    private final Set<Long> touched = new HashSet<>();
+    // 다시 적용하는 동안 회원 ID → 지금 집계에 들어가 있는 상태 (없으면 집계에 없음)
+    private Map<Long, MemberState> replayed = Map.of();
+
+    public void teamAdded(Long teamId, String name) {
+        apply(() -> stats(teamId).rename(name));
+    }
+
+    public void teamRenamed(Long teamId, String name) {
+        apply(() -> stats(teamId).rename(name));
+    }
+
+    public void teamRemoved(Long teamId) {
+        apply(() -> teams.remove(teamId));
+    }
+
+    public void memberAdded(long memberId, Long teamId, int age) {
+        apply(memberId, new MemberState(teamId, age), () -> add(teamId, age, 1));
+    }
+
+    public void memberChanged(long memberId, Long oldTeamId, int oldAge, Long newTeamId, int newAge) {
+        apply(memberId, new MemberState(newTeamId, newAge), () -> {
+            add(oldTeamId, oldAge, -1);
+            add(newTeamId, newAge, 1);
+        });
+    }
+
+    public void memberRemoved(long memberId, Long teamId, int age) {
+        apply(memberId, null, () -> add(teamId, age, -1));
+    }
+
+    /**
+     * 다른 노드에서 회원이 드나든 팀의 집계를 DB 에서 다시 읽은 값으로 바꾼다 (names 에 없는 팀은 삭제)
+     * - READY 일 때만 집계를 바꾼다. 적재 중이면 이름만 모아 두고 회원은 membersReloaded 로 반영한다
+     *
+     * @param histograms 팀 ID → (나이 → 인원 수), 회원이 없는 팀은 빠져 있다
+     */
+    public synchronized void teamsReloaded(Collection<Long> teamIds, Map<Long, String> names,
+                                           Map<Long, Map<Integer, Long>> histograms) {
+        if (loadState.isLoading()) {
+            for (Long teamId : teamIds) {
+                String name = names.get(teamId);
+                loadState.apply(name != null ? () -> stats(teamId).rename(name) : () -> teams.remove(teamId));
+            }
+            return;
+        }
+        loadState.apply(() -> {
+            for (Long teamId : teamIds) {
+                if (!names.containsKey(teamId)) {
+                    teams.remove(teamId);
+                    continue;
+                }
+                TeamStats stats = new TeamStats();
+                stats.rename(names.get(teamId));
+                histograms.getOrDefault(teamId, Map.of()).forEach((age, count) -> stats.add(age, count));
+                teams.put(teamId, stats);
+            }
+        });
+    }
+
+    /**
+     * 적재 중일 때 다른 노드에서 바뀐 회원의 마지막 상태를 모아 둔다 (값이 null 이면 삭제). READY 면 teamsReloaded 가 맡는다
+     */
+    public synchronized void membersReloaded(Map<Long, MemberState> states) {
+        if (!loadState.isLoading()) {
+            return;
+        }
+        states.forEach((memberId, after) -> {
+            touched.add(memberId);
+            loadState.apply(() -> replace(memberId, after));
+        });
+    }
+
+    /**
+     * 변경 전 상태를 알 수 없어 증분 갱신이 불가능할 때 호출한다. 다음 조회 시 재계산된다
+     */
+    public synchronized void markStale() {
+        loadState.markStale();
+        touched.clear();
+    }
+
+    public boolean isReady() {
+        return loadState.isReady();
+    }
+
+    public LoadState.Status getStatus() {
+        return loadState.getStatus();
+    }
+
+    public List<TeamSummaryDto> findAll() {
+        List<TeamSummaryDto> result = new ArrayList<>(teams.size());
+        teams.forEach((teamId, stats) -> result.add(stats.toDto(teamId)));
+        result.sort(Comparator.comparing(TeamSummaryDto::getTeamId));
+        return result;
+    }
+
+    public synchronized void beginLoad() {
+        loadState.beginLoad();
+        touched.clear();
+    }
+
+    /**
+     * 적재를 시작한 뒤 커밋 이벤트가 들어온 회원 ID
+     */
+    public synchronized Set<Long> touchedMembers() {
+        return new HashSet<>(touched);
+    }
+
+    /**
+     * 적재 결과로 교체하고 적재 중에 들어온 변경을 다시 적용한다
+     *
+     * @param names         팀 ID → 팀 이름
+     * @param ageHistograms 팀 ID → (나이 → 인원 수)
+     * @param memberStates  집계와 같은 스냅샷에서 읽은 회원 상태 (그 스냅샷에 없던 회원은 값이 null)
+     * @return 그 사이 상태를 모르는 회원이 더 들어왔으면 false → touchedMembers() 를 다시 읽어 넘겨야 한다
+     *         (적재 중에 stale 이 되었으면 결과를 버리고 true)
+     */
+    public synchronized boolean finishLoad(Map<Long, String> names, Map<Long, Map<Integer, Long>> ageHistograms,
+                                           Map<Long, MemberState> memberStates) {
+        if (!loadState.isLoading()) {
+            return true;
+        }
+        if (!memberStates.keySet().containsAll(touched)) {
+            return false;
+        }
+        Map<Long, TeamStats> loaded = new HashMap<>();
+        names.forEach((teamId, name) -> loaded.computeIfAbsent(teamId, id -> new TeamStats()).rename(name));
+        ageHistograms.forEach((teamId, histogram) -> {
+            TeamStats stats = loaded.computeIfAbsent(teamId, id -> new TeamStats());
+            histogram.forEach((age, count) -> stats.add(age, count));
+        });
+        teams.clear();
+        teams.putAll(loaded);
+
+        replayed = new HashMap<>(memberStates);
+        loadState.finishLoad();
+        replayed = Map.of();
+        touched.clear();
+        return true;
+    }
+
+    private synchronized void apply(Runnable change) {
+        loadState.apply(change);
+    }
+
+    /**
+     * READY 면 증분을 적용하고, 적재 중이면 "이 회원의 마지막 상태는 after" 로 모아 둔다 (after 가 null 이면 삭제)
+     */
+    private synchronized void apply(long memberId, MemberState after, Runnable incremental) {
+        if (loadState.isLoading()) {
+            touched.add(memberId);
+            loadState.apply(() -> replace(memberId, after));
+        } else {
+            loadState.apply(incremental);
+        }
+    }
+
+    private void replace(long memberId, MemberState after) {
+        MemberState before = replayed.get(memberId);
+        if (before != null) {
+            add(before.teamId(), before.age(), -1);
+        }
+        if (after != null) {
+            add(after.teamId(), after.age(), 1);
+            replayed.put(memberId, after);
+        } else {
+            replayed.remove(memberId);
+        }
+    }
+
+    private void add(Long teamId, int age, long delta) {
+        if (teamId != null) {
+            stats(teamId).add(age, delta);
+        }
+    }
+
+    private TeamStats stats(Long teamId) {
+        return teams.computeIfAbsent(teamId, id -> new TeamStats());
+    }
+
+    /**
+     * 집계에 들어가는 회원 한 명의 상태
+     */
+    public record MemberState(Long teamId, int age) {
+    }
+
+    private static class TeamStats {
+        private String name;
+        private long count;
+        private long ageSum;
+        private final TreeMap<Integer, Long> ageCounts = new TreeMap<>();
+
+        synchronized void rename(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(int age, long delta) {
+            count += delta;
+            ageSum += (long) age * delta;
+            ageCounts.merge(age, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        synchronized TeamSummaryDto toDto(Long teamId) {
+            return new TeamSummaryDto(teamId, name, count, ageSum,
+                    ageCounts.isEmpty() ? null : ageCounts.firstKey(),
+                    ageCounts.isEmpty() ? null : ageCounts.lastKey());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.repository.shard;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 샤드 하나 (DataSource + Querydsl SQL)
+ * - 샤드 DataSource 는 스프링 빈이 아니다 (기본 DataSource/JPA 자동 설정에 끼어들지 않게 MemberShards 가 직접 만들고 닫는다)
+ * - 트랜잭션 매니저가 없으므로 쿼리/insert 는 문장 단위로 autocommit 된다
+ */
+public final class MemberShard implements AutoCloseable {
+
+    private final int index;
+    private final HikariDataSource dataSource;
+    private final SQLQueryFactory queryFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    MemberShard(int index, ShardingProperties.Shard shard, int poolSize) {
+        this.index = index;
+        this.dataSource = new HikariDataSource();
+        dataSource.setPoolName("member-shard-" + index);
+        dataSource.setJdbcUrl(shard.getUrl());
+        dataSource.setUsername(shard.getUsername());
+        dataSource.setPassword(shard.getPassword());
+        dataSource.setMaximumPoolSize(poolSize);
+        this.queryFactory = new SQLQueryFactory(new com.querydsl.sql.Configuration(H2Templates.builder().build()), dataSource);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public SQLQueryFactory queryFactory() {
+        return queryFactory;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    @Override
+    public String toString() {
+        return "shard-" + index;
+    }
+}
@@ -0,0 +1,167 @@
+package study.querydsl.repository.shard;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.id.StripedPooledLoOptimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 회원 샤드 목록과 샤드 간 공용 기능
+ * - 회원은 team_id 로 샤드를 고른다: floorMod(team_id, 샤드 수), 팀이 없는 회원은 0번 샤드
+ * - 팀은 작은 참조 테이블이라 모든 샤드에 복제한다 → 샤드 안에서 member-team 조인이 끝난다
+ * - id 는 0번 샤드의 member_seq/team_seq 에서 StripedPooledLoOptimizer 로 블록 단위로 받는다 (샤드 간에 겹치지 않는다)
+ * - scatter 는 첫 샤드를 호출한 스레드에서, 나머지 샤드를 작업 스레드에서 병렬로 실행한다
+ *   → 작업 스레드는 샤드 수 × 샤드별 커넥션 풀 크기만큼 둔다. 동시에 들어온 scatter 들이
+ *     커넥션이 남아 있는데도 스레드가 모자라 줄 서지 않게 한다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "querydsl.sharding.enabled", havingValue = "true")
+public class MemberShards {
+
+    private final List<MemberShard> shards;
+    private final ExecutorService executor;
+    private final StripedPooledLoOptimizer memberIds;
+    private final StripedPooledLoOptimizer teamIds;
+    private final AccessCallback memberSequence;
+    private final AccessCallback teamSequence;
+
+    public MemberShards(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("querydsl.sharding.shards is empty");
+        }
+        List<MemberShard> shards = new ArrayList<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            shards.add(new MemberShard(shards.size(), shard, properties.getPoolSize()));
+        }
+        this.shards = Collections.unmodifiableList(shards);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(shards.size() * properties.getPoolSize(), runnable -> {
+            Thread thread = new Thread(runnable, "member-shard-scatter-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int blockSize = properties.getIdBlockSize();
+        if (properties.isInitSchema()) {
+            initSchema(blockSize);
+        }
+        this.memberIds = new StripedPooledLoOptimizer(Long.class, blockSize);
+        this.teamIds = new StripedPooledLoOptimizer(Long.class, blockSize);
+        this.memberSequence = new SequenceCallback("member_seq");
+        this.teamSequence = new SequenceCallback("team_seq");
+        log.info("member sharding: {} shards", shards.size());
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<MemberShard> all() {
+        return shards;
+    }
+
+    public MemberShard forTeam(Long teamId) {
+        return shards.get(teamId != null ? Math.floorMod(teamId, shards.size()) : 0);
+    }
+
+    public long nextMemberId() {
+        return (Long) memberIds.generate(memberSequence);
+    }
+
+    public long nextTeamId() {
+        return (Long) teamIds.generate(teamSequence);
+    }
+
+    /**
+     * targets 샤드마다 work 를 병렬로 실행하고 샤드 순서대로 결과를 돌려준다
+     * - 한 샤드라도 실패하면 그 예외를 던진다 (부분 결과는 돌려주지 않는다)
+     */
+    public <T> List<T> scatter(List<MemberShard> targets, Function<MemberShard, T> work) {
+        if (targets.isEmpty()) {
+            return List.of();
+        }
+        if (targets.size() == 1) {
+            return List.of(work.apply(targets.get(0)));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(targets.size() - 1);
+        for (MemberShard shard : targets.subList(1, targets.size())) {
+            futures.add(CompletableFuture.supplyAsync(() -> work.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>(targets.size());
+        try {
+            results.add(work.apply(targets.get(0)));
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        shards.forEach(MemberShard::close);
+    }
+
+    private void initSchema(int blockSize) {
+        for (MemberShard shard : shards) {
+            shard.jdbcTemplate().execute("create table if not exists team ("
+                    + "team_id bigint primary key, name varchar(255))");
+            shard.jdbcTemplate().execute("create table if not exists member ("
+                    + "member_id bigint primary key, username varchar(255), age integer not null, team_id bigint)");
+            shard.jdbcTemplate().execute("create index if not exists member_team_id_idx on member (team_id)");
+            shard.jdbcTemplate().execute("create index if not exists team_name_idx on team (name)");
+        }
+        MemberShard sequences = shards.get(0);
+        for (String sequence : new String[]{"member_seq", "team_seq"}) {
+            sequences.jdbcTemplate().execute("create sequence if not exists " + sequence
+                    + " start with 1 increment by " + blockSize);
+        }
+    }
+
+    /**
+     * 0번 샤드의 시퀀스에서 블록 시작 값을 받는다
+     */
+    private class SequenceCallback implements AccessCallback {
+        private final String sql;
+
+        SequenceCallback(String sequence) {
+            this.sql = "select next value for " + sequence;
+        }
+
+        @Override
+        public IntegralDataTypeHolder getNextValue() {
+            Long value = shards.get(0).jdbcTemplate().queryForObject(sql, Long.class);
+            return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class).initialize(value);
+        }
+
+        @Override
+        public String getTenantIdentifier() {
+            return null;
+        }
+    }
+}
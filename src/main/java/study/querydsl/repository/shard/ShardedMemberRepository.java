@@ -0,0 +1,203 @@
+package study.querydsl.repository.shard;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.sql.SQLQuery;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * team_id 로 나눈 회원 샤드에 저장/검색한다 (querydsl.sharding.enabled=true 일 때만 등록)
+ * - teamName 이 팀 하나(또는 같은 샤드의 팀들)로 정해지면 그 샤드만 조회하고, 아니면 모든 샤드에 병렬로 보낸다
+ * - 검색 결과는 회원 id 오름차순이다. 샤드마다 id 순으로 offset + size 건까지 읽어 병합한 뒤 offset 만큼 건너뛴다
+ *   (Pageable 의 sort 는 쓰지 않는다)
+ * - searchPageComplex 의 total 은 대상 샤드의 count 를 병렬로 실행해 더한다
+ * - 샤드 간 트랜잭션은 없다. 팀 저장은 샤드마다 따로 커밋되고, 중간에 실패하면 일부 샤드에만 팀이 남을 수 있다
+ */
+@Repository
+@ConditionalOnProperty(name = "querydsl.sharding.enabled", havingValue = "true")
+public class ShardedMemberRepository {
+
+    private static final Comparator<MemberTeamDto> BY_MEMBER_ID = Comparator.comparing(MemberTeamDto::getMemberId);
+
+    private final MemberShards shards;
+
+    public ShardedMemberRepository(MemberShards shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * 모든 샤드에 같은 id 로 팀을 넣는다
+     *
+     * @return 팀 id
+     */
+    public long saveTeam(String name) {
+        long teamId = shards.nextTeamId();
+        shards.scatter(shards.all(), shard -> shard.queryFactory().insert(team)
+                .set(team.id, teamId)
+                .set(team.name, name)
+                .execute());
+        return teamId;
+    }
+
+    /**
+     * 팀 id 로 고른 샤드에 회원을 넣는다 (팀이 없으면 0번 샤드)
+     *
+     * @return 회원 id
+     */
+    public long save(String username, int age, Long teamId) {
+        long memberId = shards.nextMemberId();
+        shards.forTeam(teamId).queryFactory().insert(member)
+                .set(member.id, memberId)
+                .set(member.username, username)
+                .set(member.age, age)
+                .set(member.teamId, teamId)
+                .execute();
+        return memberId;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        List<List<MemberTeamDto>> results = shards.scatter(route(condition),
+                shard -> contentQuery(shard, condition).fetch());
+        return merge(results, 0, Integer.MAX_VALUE);
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberShard> targets = route(condition);
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        List<List<MemberTeamDto>> results = shards.scatter(targets,
+                shard -> contentQuery(shard, condition).limit(limit).fetch());
+        List<MemberTeamDto> content = merge(results, pageable.getOffset(), pageable.getPageSize());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> shards.scatter(targets,
+                        shard -> countQuery(shard, condition).fetchCount())
+                .stream().mapToLong(Long::longValue).sum());
+    }
+
+    /**
+     * 조회할 샤드. teamName 이 있으면 그 이름의 팀 id 로 샤드를 고른다 (팀은 모든 샤드에 복제돼 있으므로 0번 샤드에서 찾는다)
+     * - 그런 팀이 없으면 빈 목록 → 조회하지 않는다
+     */
+    List<MemberShard> route(MemberSearchCondition condition) {
+        if (!StringUtils.hasText(condition.getTeamName())) {
+            return shards.all();
+        }
+        List<Long> teamIds = shards.all().get(0).queryFactory()
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(condition.getTeamName()))
+                .fetch();
+        Set<MemberShard> targets = new LinkedHashSet<>();
+        for (Long teamId : teamIds) {
+            targets.add(shards.forTeam(teamId));
+        }
+        return new ArrayList<>(targets);
+    }
+
+    private SQLQuery<MemberTeamDto> contentQuery(MemberShard shard, MemberSearchCondition condition) {
+        return shard.queryFactory()
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.id, member.username, member.age, member.teamId, team.name))
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.id))
+                .where(filter(condition))
+                .orderBy(member.id.asc());
+    }
+
+    private SQLQuery<Long> countQuery(MemberShard shard, MemberSearchCondition condition) {
+        SQLQuery<Long> query = shard.queryFactory().select(member.id).from(member);
+        if (StringUtils.hasText(condition.getTeamName())) {
+            query.leftJoin(team).on(member.teamId.eq(team.id)); // to-one 조인이라 조건이 있을 때만
+        }
+        return query.where(filter(condition));
+    }
+
+    /**
+     * 샤드별로 id 순 정렬된 결과를 id 순으로 병합해서 offset 건을 건너뛰고 limit 건을 돌려준다 (k-way merge)
+     */
+    static List<MemberTeamDto> merge(List<List<MemberTeamDto>> sorted, long offset, int limit) {
+        if (sorted.isEmpty()) {
+            return List.of();
+        }
+        if (sorted.size() == 1) {
+            List<MemberTeamDto> only = sorted.get(0);
+            int from = (int) Math.min(offset, only.size());
+            return only.subList(from, (int) Math.min(only.size(), from + (long) limit));
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(sorted.size(), Comparator.comparing(c -> c.head, BY_MEMBER_ID));
+        for (List<MemberTeamDto> rows : sorted) {
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Cursor(iterator.next(), iterator));
+            }
+        }
+        List<MemberTeamDto> merged = new ArrayList<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor cursor = heads.poll();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(cursor.head);
+            }
+            if (cursor.rest.hasNext()) {
+                cursor.head = cursor.rest.next();
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static Predicate filter(MemberSearchCondition condition) {
+        return ExpressionUtils.allOf(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+    }
+
+    private static BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private static BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private static BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private static BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private static final class Cursor {
+        MemberTeamDto head;
+        final Iterator<MemberTeamDto> rest;
+
+        Cursor(MemberTeamDto head, Iterator<MemberTeamDto> rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+    }
+}
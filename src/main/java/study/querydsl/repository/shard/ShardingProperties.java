@@ -0,0 +1,40 @@
+package study.querydsl.repository.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 회원 샤드 설정 (enabled=true 일 때 MemberShards / ShardedMemberRepository 를 등록한다)
+ * <pre>
+ * querydsl:
+ *   sharding:
+ *     enabled: true
+ *     shards:
+ *       - url: jdbc:h2:tcp://localhost/~/querydsl-shard0
+ *       - url: jdbc:h2:tcp://localhost/~/querydsl-shard1
+ * </pre>
+ * - 샤드 순서가 곧 샤드 번호다. 샤드를 늘리거나 순서를 바꾸면 team_id → 샤드 배치가 바뀌므로 데이터를 옮겨야 한다
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties("querydsl.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+    private boolean initSchema = true; // 샤드마다 member/team 테이블, 0번 샤드에 id 시퀀스를 만든다
+    private int idBlockSize = 100;     // id 시퀀스 increment (StripedPooledLoOptimizer 블록 크기)
+    private int poolSize = 4;          // 샤드별 커넥션 풀 크기
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Shard {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+    }
+}
@@ -0,0 +1,275 @@
+package study.querydsl.repository.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * 회원 스냅샷의 컬럼 저장소 (불변)
+ * - id / age / username 코드 / team 코드를 컬럼별로 direct buffer(off-heap) 에 둔다. 행은 id 오름차순
+ * - username 은 사전(dictionary) 인코딩한다. 사전도 정렬된 UTF-8 바이트로 off-heap 에 두고 이진 탐색으로 찾는다
+ * - team 코드 → team ID 표는 팀 수만큼이라 힙에 둔다 (팀 이름은 MemberSnapshotStore 가 관리)
+ * - 필터는 행 구간(chunk)마다 조건별로 selection 배열을 좁혀 가는 분기 없는 루프로 스캔한다
+ * - buffer 용량은 크기 등급(size class)으로 올려 잡는다. compaction 이 은퇴한 컬럼의 buffer 를 다시 채워 쓸 수 있다
+ *   → 읽는 중인 검색이 없을 때만 재사용한다 (acquire/release 로 센다)
+ */
+final class MemberColumns {
+
+    static final int ANY = -1;
+    static final int NONE = -2;
+    static final int NULL_CODE = -1;
+
+    private final int size;
+    private final LongBuffer ids;
+    private final IntBuffer ages;
+    private final IntBuffer usernameCodes;
+    private final IntBuffer teamCodes;
+    private final long[] teamIds;
+    private final int dictionarySize;
+    private final IntBuffer dictionaryOffsets;
+    private final ByteBuffer dictionaryBytes;
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private MemberColumns(int size, LongBuffer ids, IntBuffer ages, IntBuffer usernameCodes, IntBuffer teamCodes,
+                          long[] teamIds, int dictionarySize, IntBuffer dictionaryOffsets, ByteBuffer dictionaryBytes) {
+        this.size = size;
+        this.ids = ids;
+        this.ages = ages;
+        this.usernameCodes = usernameCodes;
+        this.teamCodes = teamCodes;
+        this.teamIds = teamIds;
+        this.dictionarySize = dictionarySize;
+        this.dictionaryOffsets = dictionaryOffsets;
+        this.dictionaryBytes = dictionaryBytes;
+    }
+
+    /**
+     * @param rows id 오름차순으로 정렬된 회원
+     */
+    static MemberColumns of(List<MemberRow> rows) {
+        return of(rows, null);
+    }
+
+    /**
+     * @param rows     id 오름차순으로 정렬된 회원
+     * @param recycled 더 이상 읽는 검색이 없는 이전 컬럼 (용량이 충분한 buffer 는 덮어써서 재사용한다). 없으면 null
+     */
+    static MemberColumns of(List<MemberRow> rows, MemberColumns recycled) {
+        int size = rows.size();
+
+        TreeSet<String> usernames = new TreeSet<>();
+        for (MemberRow row : rows) {
+            if (row.username() != null) {
+                usernames.add(row.username());
+            }
+        }
+        Map<String, Integer> usernameCodes = new HashMap<>(usernames.size() * 2);
+        byte[][] encoded = new byte[usernames.size()][];
+        int dictionaryLength = 0;
+        for (String username : usernames) {
+            int code = usernameCodes.size();
+            usernameCodes.put(username, code);
+            encoded[code] = username.getBytes(StandardCharsets.UTF_8);
+            dictionaryLength += encoded[code].length;
+        }
+        IntBuffer dictionaryOffsets = intColumn(recycled != null ? recycled.dictionaryOffsets : null, encoded.length + 1);
+        ByteBuffer dictionaryBytes = recycled != null && recycled.dictionaryBytes.capacity() >= dictionaryLength
+                ? recycled.dictionaryBytes
+                : ByteBuffer.allocateDirect(sizeClass(dictionaryLength));
+        int offset = 0;
+        for (int code = 0; code < encoded.length; code++) {
+            dictionaryOffsets.put(code, offset);
+            dictionaryBytes.put(offset, encoded[code]);
+            offset += encoded[code].length;
+        }
+        dictionaryOffsets.put(encoded.length, offset);
+
+        Map<Long, Integer> teamCodes = new HashMap<>();
+        LongBuffer ids = longColumn(recycled != null ? recycled.ids : null, size);
+        IntBuffer ages = intColumn(recycled != null ? recycled.ages : null, size);
+        IntBuffer usernameColumn = intColumn(recycled != null ? recycled.usernameCodes : null, size);
+        IntBuffer teamColumn = intColumn(recycled != null ? recycled.teamCodes : null, size);
+        for (int i = 0; i < size; i++) {
+            MemberRow row = rows.get(i);
+            ids.put(i, row.id());
+            ages.put(i, row.age());
+            usernameColumn.put(i, row.username() != null ? usernameCodes.get(row.username()) : NULL_CODE);
+            teamColumn.put(i, row.teamId() != null
+                    ? teamCodes.computeIfAbsent(row.teamId(), id -> teamCodes.size())
+                    : NULL_CODE);
+        }
+        long[] teamIds = new long[teamCodes.size()];
+        teamCodes.forEach((teamId, code) -> teamIds[code] = teamId);
+
+        return new MemberColumns(size, ids, ages, usernameColumn, teamColumn,
+                teamIds, encoded.length, dictionaryOffsets, dictionaryBytes);
+    }
+
+    /**
+     * 검색이 읽기 시작할 때 호출한다. 호출한 뒤 이 컬럼이 아직 state 의 base 인지 다시 확인해야 한다
+     * - 아니면 그 사이 은퇴한 컬럼이다 (재사용 중일 수 있으므로 읽지 않고 release() 한 뒤 state 를 다시 읽는다)
+     */
+    void acquire() {
+        readers.incrementAndGet();
+    }
+
+    void release() {
+        readers.decrementAndGet();
+    }
+
+    /**
+     * 읽는 검색이 없다 (은퇴한 뒤에는 새로 acquire 되지 않으므로 그대로 재사용할 수 있다)
+     */
+    boolean isIdle() {
+        return readers.get() == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long id(int row) {
+        return ids.get(row);
+    }
+
+    int age(int row) {
+        return ages.get(row);
+    }
+
+    String username(int row) {
+        return decode(usernameCodes.get(row));
+    }
+
+    Long teamId(int row) {
+        int code = teamCodes.get(row);
+        return code != NULL_CODE ? teamIds[code] : null;
+    }
+
+    MemberRow row(int row) {
+        return new MemberRow(id(row), username(row), age(row), teamId(row));
+    }
+
+    /**
+     * username 의 사전 코드. 사전에 없으면 NONE
+     */
+    int usernameCode(String username) {
+        int low = 0;
+        int high = dictionarySize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = decode(mid).compareTo(username);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * team 코드별 일치 여부 표. 인덱스는 team 코드 + 1 (0 은 팀 없음 → 항상 false)
+     */
+    boolean[] teamMatch(LongPredicate teamIdMatches) {
+        boolean[] match = new boolean[teamIds.length + 1];
+        for (int code = 0; code < teamIds.length; code++) {
+            match[code + 1] = teamIdMatches.test(teamIds[code]);
+        }
+        return match;
+    }
+
+    /**
+     * [from, to) 행 중 조건에 맞는 행 번호를 selection 에 오름차순으로 채우고 개수를 반환한다
+     *
+     * @param usernameCode ANY 면 username 조건 없음
+     * @param teamMatch    null 이면 팀 조건 없음
+     * @param selection    to - from 이상 길이
+     */
+    int select(int usernameCode, boolean[] teamMatch, int ageGoe, int ageLoe, int from, int to, int[] selection) {
+        if (usernameCode == NONE) {
+            return 0;
+        }
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            int age = ages.get(i);
+            selection[n] = i;
+            n += (age >= ageGoe & age <= ageLoe) ? 1 : 0;
+        }
+        if (usernameCode != ANY) {
+            int m = 0;
+            for (int k = 0; k < n; k++) {
+                int i = selection[k];
+                selection[m] = i;
+                m += usernameCodes.get(i) == usernameCode ? 1 : 0;
+            }
+            n = m;
+        }
+        if (teamMatch != null) {
+            int m = 0;
+            for (int k = 0; k < n; k++) {
+                int i = selection[k];
+                selection[m] = i;
+                m += teamMatch[teamCodes.get(i) + 1] ? 1 : 0;
+            }
+            n = m;
+        }
+        return n;
+    }
+
+    /**
+     * off-heap 에 잡힌 바이트 수 (크기 등급으로 올려 잡은 용량 포함)
+     */
+    long offHeapBytes() {
+        return (long) ids.capacity() * Long.BYTES
+                + (long) (ages.capacity() + usernameCodes.capacity() + teamCodes.capacity()) * Integer.BYTES
+                + (long) dictionaryOffsets.capacity() * Integer.BYTES
+                + dictionaryBytes.capacity();
+    }
+
+    private String decode(int code) {
+        if (code < 0) {
+            return null;
+        }
+        int start = dictionaryOffsets.get(code);
+        byte[] bytes = new byte[dictionaryOffsets.get(code + 1) - start];
+        dictionaryBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IntBuffer intColumn(IntBuffer recycled, int size) {
+        if (recycled != null && recycled.capacity() >= size) {
+            return recycled;
+        }
+        return ByteBuffer.allocateDirect(sizeClass(size) * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static LongBuffer longColumn(LongBuffer recycled, int size) {
+        if (recycled != null && recycled.capacity() >= size) {
+            return recycled;
+        }
+        return ByteBuffer.allocateDirect(sizeClass(size) * Long.BYTES)
+                .order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * 1024 이상에서는 2의 거듭제곱 구간을 4 등분한 경계로 올린다 (낭비는 25% 이하, 조금 늘어난 compaction 은 같은 등급)
+     */
+    static int sizeClass(int size) {
+        if (size <= 1024) {
+            return 1024;
+        }
+        int step = Integer.highestOneBit(size - 1) >> 2;
+        return (size + step - 1) / step * step;
+    }
+}
@@ -0,0 +1,7 @@
+package study.querydsl.repository.snapshot;
+
+/**
+ * 스냅샷에 들어가는 회원 한 건 (팀 이름은 팀 ID 로 따로 찾는다)
+ */
+public record MemberRow(long id, String username, int age, Long teamId) {
+}
@@ -0,0 +1,427 @@
+package study.querydsl.repository.snapshot;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 회원 검색용 메모리 스냅샷
+ * - 적재 시점의 회원은 MemberColumns(off-heap 컬럼)에, 이후 커밋된 변경은 id 별 delta 에 쌓는다
+ * - delta 는 ConcurrentSkipListMap 이다. 커밋된 변경 한 건은 O(log delta) 로 넣는다 (delta 를 복사하지 않는다)
+ * - delta 가 compactThreshold 를 넘으면 백그라운드 스레드가 컬럼을 다시 만든다 (DB 조회 없이 메모리에서 병합)
+ *   → 병합하는 동안 그 delta 는 frozen 으로 얼리고 새 변경은 새 delta 에 쌓는다. 검색은 base ← frozen ← delta 순으로 덮어 본다
+ *   → 은퇴한 컬럼은 한 벌 남겨 두었다가 읽는 검색이 없으면 다음 compaction 에서 buffer 를 재사용한다
+ * - 조회는 volatile state 하나만 읽으므로 잠금이 없다. 변경은 synchronized 로 반영한다
+ * - 선택 벡터는 CHUNK 행씩 스캔하므로 검색마다 CHUNK 크기 배열 하나만 쓴다
+ * - 적재 상태와 적재 중 변경 재적용은 LoadState 가 맡는다 (잠금은 이 store 의 synchronized)
+ */
+@Component
+public class MemberSnapshotStore {
+
+    private static final MemberRow DELETED = new MemberRow(-1, null, 0, null);
+    private static final int CHUNK = 4096;
+
+    private final int compactThreshold;
+    private final Map<Long, String> teamNames = new ConcurrentHashMap<>();
+    private final LoadState loadState = new LoadState();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-snapshot-compact");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile State state = new State(MemberColumns.of(List.of()), new Delta(), new Delta());
+    private MemberColumns spare;
+    private boolean compactScheduled;
+
+    public MemberSnapshotStore(@Value("${querydsl.search.snapshot.compact-threshold:4096}") int compactThreshold) {
+        this.compactThreshold = compactThreshold;
+    }
+
+    public LoadState.Status getStatus() {
+        return loadState.getStatus();
+    }
+
+    public boolean isReady() {
+        return loadState.isReady();
+    }
+
+    /**
+     * READY 가 아니면 false 를 돌려주고 rebuild 를 백그라운드로 건다
+     */
+    public boolean isReadyOrRebuild(Runnable rebuild) {
+        return loadState.isReadyOrRebuild(rebuild);
+    }
+
+    /**
+     * 컬럼 행 수 + delta 항목 수 (delta 의 갱신/삭제도 한 건으로 센다)
+     */
+    public int size() {
+        State current = state;
+        return current.base.size() + current.frozen.size + current.delta.size;
+    }
+
+    public int deltaSize() {
+        State current = state;
+        return current.frozen.size + current.delta.size;
+    }
+
+    public long offHeapBytes() {
+        return state.base.offHeapBytes();
+    }
+
+    public synchronized void beginLoad() {
+        loadState.beginLoad();
+    }
+
+    /**
+     * 적재 결과로 교체한다. 적재 중에 markStale() 이 호출됐다면 버리고 STALE 로 남긴다
+     *
+     * @param rows  id 오름차순으로 정렬된 회원
+     * @param teams 팀 ID → 팀 이름
+     */
+    public synchronized void finishLoad(List<MemberRow> rows, Map<Long, String> teams) {
+        if (!loadState.isLoading()) {
+            return;
+        }
+        teamNames.clear();
+        teams.forEach((teamId, name) -> teamNames.put(teamId, nameOrEmpty(name)));
+        MemberColumns retired = state.base;
+        state = new State(MemberColumns.of(rows, takeSpare()), new Delta(), new Delta());
+        retire(retired);
+        loadState.finishLoad();
+        compactIfNeeded();
+    }
+
+    /**
+     * 변경 내용을 알 수 없을 때(벌크 연산 등) 호출한다. 다시 적재할 때까지 DB 로 조회해야 한다
+     */
+    public synchronized void markStale() {
+        loadState.markStale();
+    }
+
+    public void memberSaved(MemberRow row) {
+        apply(() -> put(row.id(), row));
+    }
+
+    public void memberRemoved(long memberId) {
+        apply(() -> put(memberId, DELETED));
+    }
+
+    public void teamSaved(Long teamId, String name) {
+        apply(() -> teamNames.put(teamId, nameOrEmpty(name)));
+    }
+
+    public void teamRemoved(Long teamId) {
+        apply(() -> teamNames.remove(teamId));
+    }
+
+    /**
+     * 지금까지의 delta 를 컬럼에 병합하고 끝날 때까지 기다린다 (보통은 compactThreshold 를 넘으면 백그라운드로 돈다)
+     */
+    public void compact() {
+        try {
+            compactor.submit(this::compactNow).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("snapshot compaction failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        compactor.shutdownNow();
+    }
+
+    /**
+     * compactor 스레드에서만 실행된다
+     * - 잠금 안에서 delta 를 frozen 으로 얼리고, 잠금 밖에서 base + frozen 을 새 컬럼으로 만든 뒤, 잠금 안에서 교체한다
+     * - 그 사이 다시 적재됐다면(base 가 바뀜) 만든 컬럼은 버린다 (한 번도 공개되지 않았으므로 spare 로 둔다)
+     */
+    private void compactNow() {
+        State frozen;
+        MemberColumns recycled;
+        synchronized (this) {
+            compactScheduled = false;
+            State current = state;
+            if (current.delta.size == 0) {
+                return;
+            }
+            frozen = new State(current.base, current.delta, new Delta());
+            state = frozen;
+            recycled = takeSpare();
+        }
+
+        List<MemberRow> rows = new ArrayList<>(frozen.base.size() + frozen.frozen.size);
+        MemberColumns base = frozen.base;
+        var deltaRows = frozen.frozen.rows.entrySet().iterator();
+        var next = deltaRows.hasNext() ? deltaRows.next() : null;
+        for (int i = 0; i < base.size(); i++) {
+            long id = base.id(i);
+            while (next != null && next.getKey() < id) {
+                addIfPresent(rows, next.getValue());
+                next = deltaRows.hasNext() ? deltaRows.next() : null;
+            }
+            if (next != null && next.getKey() == id) {
+                addIfPresent(rows, next.getValue());
+                next = deltaRows.hasNext() ? deltaRows.next() : null;
+            } else {
+                rows.add(base.row(i));
+            }
+        }
+        while (next != null) {
+            addIfPresent(rows, next.getValue());
+            next = deltaRows.hasNext() ? deltaRows.next() : null;
+        }
+        MemberColumns columns = MemberColumns.of(rows, recycled);
+
+        synchronized (this) {
+            State current = state;
+            if (current.base == frozen.base && current.frozen == frozen.frozen) {
+                state = new State(columns, new Delta(), current.delta);
+                retire(frozen.base);
+            } else {
+                retire(columns);
+            }
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * MemberRepositoryCustom.search 와 같은 조건으로 검색한다. 결과는 회원 id 오름차순
+     *
+     * @param offset 건너뛸 건수
+     * @param limit  content 최대 건수 (total 은 전체 건수)
+     */
+    public SearchResult search(MemberSearchCondition condition, long offset, int limit) {
+        State current = state;
+        current.base.acquire();
+        while (state.base != current.base) {
+            current.base.release();
+            current = state;
+            current.base.acquire();
+        }
+        try {
+            return search(current, condition, offset, limit);
+        } finally {
+            current.base.release();
+        }
+    }
+
+    private SearchResult search(State current, MemberSearchCondition condition, long offset, int limit) {
+        MemberColumns base = current.base;
+        Overlay overlay = Overlay.of(current.frozen, current.delta);
+
+        String username = StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null;
+        String teamName = StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+        int ageGoe = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+        int ageLoe = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+
+        int usernameCode = username != null ? base.usernameCode(username) : MemberColumns.ANY;
+        boolean[] teamMatch = teamName != null
+                ? base.teamMatch(teamId -> teamName.equals(teamNames.get(teamId)))
+                : null;
+
+        List<MemberRow> deltaMatches = new ArrayList<>();
+        for (int i = 0; i < overlay.size; i++) {
+            MemberRow row = overlay.rows[i];
+            if (row != DELETED
+                    && (username == null || username.equals(row.username()))
+                    && (teamName == null || (row.teamId() != null && teamName.equals(teamNames.get(row.teamId()))))
+                    && row.age() >= ageGoe && row.age() <= ageLoe) {
+                deltaMatches.add(row);
+            }
+        }
+
+        // base 선택 결과와 delta 일치 결과를 id 순서로 병합한다. delta 에 있는 id 는 base 값을 가린다
+        Page page = new Page(offset, limit);
+        int[] selection = new int[Math.min(CHUNK, Math.max(1, base.size()))];
+        int d = 0;
+        for (int from = 0; from < base.size(); from += CHUNK) {
+            int selected = base.select(usernameCode, teamMatch, ageGoe, ageLoe,
+                    from, Math.min(base.size(), from + CHUNK), selection);
+            for (int k = 0; k < selected; k++) {
+                long id = base.id(selection[k]);
+                if (overlay.contains(id)) {
+                    continue;
+                }
+                while (d < deltaMatches.size() && deltaMatches.get(d).id() < id) {
+                    page.add(deltaMatches.get(d++));
+                }
+                page.add(base, selection[k]);
+            }
+        }
+        while (d < deltaMatches.size()) {
+            page.add(deltaMatches.get(d++));
+        }
+
+        List<MemberTeamDto> content = new ArrayList<>(page.rows.size());
+        for (MemberRow row : page.rows) {
+            content.add(toDto(row));
+        }
+        return new SearchResult(content, page.total);
+    }
+
+    private MemberTeamDto toDto(MemberRow row) {
+        String teamName = row.teamId() != null ? teamNames.get(row.teamId()) : null;
+        return new MemberTeamDto(row.id(), row.username(), row.age(), row.teamId(),
+                teamName != null && !teamName.isEmpty() ? teamName : null);
+    }
+
+    private synchronized void apply(Runnable change) {
+        loadState.apply(change);
+    }
+
+    private void put(long memberId, MemberRow row) {
+        state.delta.put(memberId, row);
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (!compactScheduled && state.delta.size > compactThreshold) {
+            compactScheduled = true;
+            compactor.execute(this::compactNow);
+        }
+    }
+
+    /**
+     * 더 이상 state 에 없는 컬럼. 앞서 남겨 둔 것은 버리고(GC 가 off-heap 을 회수) 이것을 다음 compaction 용으로 남긴다
+     */
+    private void retire(MemberColumns columns) {
+        spare = columns;
+    }
+
+    private MemberColumns takeSpare() {
+        MemberColumns recycled = spare != null && spare.isIdle() ? spare : null;
+        spare = null;
+        return recycled;
+    }
+
+    // ConcurrentHashMap 은 null 값을 못 넣으므로 이름 없는 팀은 "" 로 둔다 (toDto 에서 null 로 되돌림)
+    private static String nameOrEmpty(String name) {
+        return name != null ? name : "";
+    }
+
+    private static void addIfPresent(List<MemberRow> rows, MemberRow row) {
+        if (row != DELETED) {
+            rows.add(row);
+        }
+    }
+
+    public record SearchResult(List<MemberTeamDto> content, long total) {
+    }
+
+    /**
+     * @param frozen compaction 중인 delta (compaction 중이 아니면 비어 있다)
+     * @param delta  새 변경이 쌓이는 delta
+     */
+    private record State(MemberColumns base, Delta frozen, Delta delta) {
+    }
+
+    /**
+     * id → 변경된 행 (삭제는 DELETED). 변경은 store 잠금 안에서만 하고, 검색은 잠금 없이 순회한다
+     */
+    private static final class Delta {
+        private final ConcurrentSkipListMap<Long, MemberRow> rows = new ConcurrentSkipListMap<>();
+        private volatile int size;
+
+        void put(long memberId, MemberRow row) {
+            if (rows.put(memberId, row) == null) {
+                size++;
+            }
+        }
+    }
+
+    /**
+     * 검색 한 번이 보는 frozen + delta (id 오름차순, 같은 id 는 delta 값)
+     * - 한 번 순회해서 배열로 떠 두므로 검색 도중 들어온 변경은 다음 검색부터 보인다
+     */
+    private static final class Overlay {
+        private long[] ids;
+        private MemberRow[] rows;
+        private int size;
+
+        static Overlay of(Delta frozen, Delta delta) {
+            Overlay overlay = new Overlay(frozen.size + delta.size);
+            var older = frozen.rows.entrySet().iterator();
+            var newer = delta.rows.entrySet().iterator();
+            var o = older.hasNext() ? older.next() : null;
+            var n = newer.hasNext() ? newer.next() : null;
+            while (o != null || n != null) {
+                if (n == null || (o != null && o.getKey() < n.getKey())) {
+                    overlay.add(o.getKey(), o.getValue());
+                    o = older.hasNext() ? older.next() : null;
+                } else {
+                    if (o != null && o.getKey().equals(n.getKey())) {
+                        o = older.hasNext() ? older.next() : null;
+                    }
+                    overlay.add(n.getKey(), n.getValue());
+                    n = newer.hasNext() ? newer.next() : null;
+                }
+            }
+            return overlay;
+        }
+
+        private Overlay(int expected) {
+            ids = new long[Math.max(1, expected)];
+            rows = new MemberRow[ids.length];
+        }
+
+        private void add(long id, MemberRow row) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            ids[size] = id;
+            rows[size++] = row;
+        }
+
+        boolean contains(long id) {
+            return size > 0 && Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /**
+     * offset 을 건너뛰고 limit 건을 모으면서 전체 건수를 센다
+     */
+    private static final class Page {
+        private final long offset;
+        private final int limit;
+        private final List<MemberRow> rows = new ArrayList<>();
+        private long total;
+
+        Page(long offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        void add(MemberRow row) {
+            if (total >= offset && rows.size() < limit) {
+                rows.add(row);
+            }
+            total++;
+        }
+
+        // 페이지 밖의 행은 username 을 디코딩하지 않는다
+        void add(MemberColumns base, int row) {
+            if (total >= offset && rows.size() < limit) {
+                rows.add(base.row(row));
+            }
+            total++;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * member 테이블의 Querydsl SQL 메타모델 (Member 엔티티 매핑과 같은 컬럼)
+ * - 테이블이 작아 코드 생성 대신 직접 작성한다. 엔티티 컬럼이 바뀌면 같이 바꾼다
+ */
+public class SMember extends RelationalPathBase<SMember> {
+
+    public static final SMember member = new SMember("m");
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+    public final StringPath username = createString("username");
+    public final NumberPath<Integer> age = createNumber("age", Integer.class);
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public SMember(String variable) {
+        super(SMember.class, forVariable(variable), null, "member");
+        addMetadata(id, ColumnMetadata.named("member_id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(username, ColumnMetadata.named("username").withIndex(2).ofType(Types.VARCHAR));
+        addMetadata(age, ColumnMetadata.named("age").withIndex(3).ofType(Types.INTEGER).notNull());
+        addMetadata(teamId, ColumnMetadata.named("team_id").withIndex(4).ofType(Types.BIGINT));
+    }
+}
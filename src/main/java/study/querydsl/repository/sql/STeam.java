@@ -0,0 +1,27 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+/**
+ * team 테이블의 Querydsl SQL 메타모델 (조회에 쓰는 컬럼만)
+ */
+public class STeam extends RelationalPathBase<STeam> {
+
+    public static final STeam team = new STeam("t");
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+    public final StringPath name = createString("name");
+
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), null, "team");
+        addMetadata(id, ColumnMetadata.named("team_id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(name, ColumnMetadata.named("name").withIndex(2).ofType(Types.VARCHAR));
+    }
+}
@@ -0,0 +1,319 @@
+package study.querydsl.repository.support;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Roaring 방식으로 압축한 long ID 집합
+ * - ID 를 상위 48비트(컨테이너 키)와 하위 16비트로 나눈다
+ * - 컨테이너는 원소가 4096 개 이하면 정렬된 char 배열, 넘으면 65536 비트 비트맵(8KB)으로 바꾼다
+ * - AND 는 결과 집합을 만들지 않고 개수만 센다 (andCardinality)
+ * - 스레드 안전하지 않다. 동시 접근은 사용하는 쪽에서 잠근다
+ */
+public final class CompressedBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+
+    private final TreeMap<Long, Container> containers = new TreeMap<>();
+
+    public void add(long id) {
+        long key = id >>> 16;
+        char low = (char) id;
+        Container container = containers.get(key);
+        containers.put(key, container == null ? new ArrayContainer().add(low) : container.add(low));
+    }
+
+    public void remove(long id) {
+        long key = id >>> 16;
+        Container container = containers.get(key);
+        if (container == null) {
+            return;
+        }
+        Container removed = container.remove((char) id);
+        if (removed.cardinality() == 0) {
+            containers.remove(key);
+        } else {
+            containers.put(key, removed);
+        }
+    }
+
+    public boolean contains(long id) {
+        Container container = containers.get(id >>> 16);
+        return container != null && container.contains((char) id);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (Container container : containers.values()) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    public void clear() {
+        containers.clear();
+    }
+
+    public boolean isEmpty() {
+        return containers.isEmpty();
+    }
+
+    /**
+     * 두 집합의 교집합 크기
+     */
+    public long andCardinality(CompressedBitmap other) {
+        CompressedBitmap small = containers.size() <= other.containers.size() ? this : other;
+        CompressedBitmap large = small == this ? other : this;
+        long cardinality = 0;
+        for (Map.Entry<Long, Container> entry : small.containers.entrySet()) {
+            Container container = large.containers.get(entry.getKey());
+            if (container != null) {
+                cardinality += entry.getValue().andCardinality(container);
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * this 와 (bitmaps 의 합집합) 의 교집합 크기
+     * - 합집합을 비트맵으로 만들지 않고, this 에 있는 키만 키별 64K 비트 배열에 모아 한 번씩 AND 한다
+     */
+    public long andCardinality(Collection<CompressedBitmap> bitmaps) {
+        Map<Long, BitmapContainer> union = new HashMap<>();
+        for (CompressedBitmap bitmap : bitmaps) {
+            bitmap.containers.forEach((key, container) -> {
+                if (containers.containsKey(key)) {
+                    union.computeIfAbsent(key, k -> new BitmapContainer()).or(container);
+                }
+            });
+        }
+        long cardinality = 0;
+        for (Map.Entry<Long, BitmapContainer> entry : union.entrySet()) {
+            cardinality += containers.get(entry.getKey()).andCardinality(entry.getValue());
+        }
+        return cardinality;
+    }
+
+    /**
+     * 합집합을 새 비트맵으로 만든다 (입력은 바뀌지 않는다)
+     */
+    public static CompressedBitmap or(Collection<CompressedBitmap> bitmaps) {
+        Map<Long, BitmapContainer> union = new TreeMap<>();
+        for (CompressedBitmap bitmap : bitmaps) {
+            bitmap.containers.forEach((key, container) ->
+                    union.computeIfAbsent(key, k -> new BitmapContainer()).or(container));
+        }
+        CompressedBitmap result = new CompressedBitmap();
+        union.forEach((key, container) ->
+                result.containers.put(key, container.cardinality() <= ARRAY_MAX ? container.toArray() : container));
+        return result;
+    }
+
+    /**
+     * 대략적인 메모리 사용량 (컨테이너 데이터만)
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Container container : containers.values()) {
+            bytes += container.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private interface Container {
+        Container add(char value);
+
+        Container remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        int andCardinality(Container other);
+
+        long sizeInBytes();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        public Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            if (other instanceof BitmapContainer bitmap) {
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    count += bitmap.contains(values[i]) ? 1 : 0;
+                }
+                return count;
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (size > array.size) {
+                return array.andCardinality(this);
+            }
+            if (size * 16 < array.size) {
+                // 크기 차이가 크면 작은 쪽 원소를 큰 쪽에서 이진 탐색한다
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    count += array.contains(values[i]) ? 1 : 0;
+                }
+                return count;
+            }
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < array.size) {
+                char a = values[i];
+                char b = array.values[j];
+                if (a == b) {
+                    count++;
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) values.length * Character.BYTES;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        @Override
+        public Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            words[value >>> 6] = after;
+            cardinality += before != after ? 1 : 0;
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            words[value >>> 6] = after;
+            cardinality -= before != after ? 1 : 0;
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                count += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return count;
+        }
+
+        /**
+         * other 를 this 에 합친다
+         */
+        void or(Container other) {
+            if (other instanceof ArrayContainer array) {
+                for (int i = 0; i < array.size; i++) {
+                    add(array.values[i]);
+                }
+                return;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                words[i] |= otherWords[i];
+                count += Long.bitCount(words[i]);
+            }
+            cardinality = count;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) words.length * Long.BYTES;
+        }
+
+        private Container toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    array.values[array.size++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * IN 절 파라미터 분할/패딩
+ * - 입력을 maxSize 이하 묶음으로 나눈다 (DB 파라미터 개수 한도, 긴 IN 목록 방지)
+ * - 각 묶음의 길이를 2의 거듭제곱으로 맞추고 빈 칸은 마지막 값으로 채운다
+ *   → in (?, ?, ?) / in (?, ?, ?, ?, ?) 처럼 길이마다 다른 SQL 이 생기지 않아 Hibernate/H2 plan cache 가 작게 유지된다
+ * - null 과 중복은 제거한다
+ */
+public final class InClause {
+
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private InClause() {
+    }
+
+    public static <T> List<List<T>> chunks(Collection<T> values, int maxSize) {
+        if (Integer.bitCount(maxSize) != 1) {
+            throw new IllegalArgumentException("maxSize 는 2의 거듭제곱이어야 합니다: " + maxSize);
+        }
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(values));
+        distinct.removeIf(Objects::isNull);
+
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += maxSize) {
+            List<T> chunk = new ArrayList<>(distinct.subList(from, Math.min(from + maxSize, distinct.size())));
+            int padded = paddedSize(chunk.size());
+            T last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static int paddedSize(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+}
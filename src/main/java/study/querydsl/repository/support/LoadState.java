@@ -0,0 +1,87 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 커밋 이벤트로 증분 갱신되는 메모리 구조(MemberCountIndex, MemberSnapshotStore, TeamSummaryStore)의 적재 상태
+ * - EMPTY → (beginLoad) LOADING → (finishLoad) READY, 변경 내용을 알 수 없으면 (markStale) STALE
+ * - 적재 중에 들어온 변경은 모아 두었다가 finishLoad 에서 다시 적용한다 (변경은 모두 멱등이어야 한다)
+ * - 적재 중에 markStale() 이 호출되면 그 적재 결과는 버린다 (finishLoad 가 false)
+ * - 상태 전이와 apply 는 호출한 쪽이 자기 잠금(데이터를 지키는 잠금)을 잡고 부른다. 상태 읽기만 잠금 없이 된다
+ */
+public final class LoadState {
+
+    public enum Status {EMPTY, LOADING, READY, STALE}
+
+    private final List<Runnable> pending = new ArrayList<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Status status = Status.EMPTY;
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isReady() {
+        return status == Status.READY;
+    }
+
+    public void beginLoad() {
+        status = Status.LOADING;
+        pending.clear();
+    }
+
+    /**
+     * 적재한 데이터를 넣기 전에 확인한다. false 면 적재 중에 stale 이 되었으니 적재 결과를 버린다
+     */
+    public boolean isLoading() {
+        return status == Status.LOADING;
+    }
+
+    /**
+     * 적재한 데이터를 넣은 뒤 호출한다. 적재 중에 들어온 변경을 다시 적용하고 READY 로 바꾼다
+     */
+    public void finishLoad() {
+        pending.forEach(Runnable::run);
+        pending.clear();
+        status = Status.READY;
+    }
+
+    public void markStale() {
+        status = Status.STALE;
+        pending.clear();
+    }
+
+    /**
+     * READY 면 바로 적용하고, 적재 중이면 모아 두고, 그 밖에는 버린다 (다음 적재가 DB 에서 읽는다)
+     */
+    public void apply(Runnable change) {
+        if (status == Status.LOADING) {
+            pending.add(change);
+        } else if (status == Status.READY) {
+            change.run();
+        }
+    }
+
+    /**
+     * READY 면 true. 비었거나 stale 이면 false 를 돌려주고 rebuild 를 백그라운드로 한 번만 건다
+     */
+    public boolean isReadyOrRebuild(Runnable rebuild) {
+        Status current = status;
+        if (current == Status.READY) {
+            return true;
+        }
+        if (current != Status.LOADING && rebuilding.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    rebuild.run();
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 요청한 필드(MemberSearchCondition.fields)만 select 하는 MemberTeamDto 프로젝션
+ * - 고르지 않은 필드는 null (age 는 0) 로 채운다. 응답에서는 SparseFieldsBodyAdvice 가 빼고 쓴다
+ * - fields 가 비어 있으면 기존과 같은 QMemberTeamDto 를 쓴다
+ */
+public final class MemberTeamProjection extends FactoryExpressionBase<MemberTeamDto> {
+
+    private final MemberField[] fields;
+    private final List<Expression<?>> args;
+
+    private MemberTeamProjection(Set<MemberField> fields) {
+        super(MemberTeamDto.class);
+        this.fields = fields.toArray(new MemberField[0]);
+        List<Expression<?>> args = new ArrayList<>(this.fields.length);
+        for (MemberField field : this.fields) {
+            args.add(path(field));
+        }
+        this.args = Collections.unmodifiableList(args);
+    }
+
+    public static Expression<MemberTeamDto> of(MemberSearchCondition condition) {
+        Set<MemberField> fields = condition.getFields();
+        if (fields == null || fields.isEmpty() || fields.size() == MemberField.values().length) {
+            return new QMemberTeamDto(
+                    member.id.as("memberId"),
+                    member.username,
+                    member.age,
+                    team.id.as("teamId"),
+                    team.name.as("teamName"));
+        }
+        return new MemberTeamProjection(EnumSet.copyOf(fields));
+    }
+
+    /**
+     * teamName 을 고르지 않았고 teamName 조건도 없으면 member 만 읽으면 된다
+     */
+    public static boolean needsTeam(MemberSearchCondition condition) {
+        if (StringUtils.hasText(condition.getTeamName())) {
+            return true;
+        }
+        Set<MemberField> fields = condition.getFields();
+        if (fields == null || fields.isEmpty()) {
+            return true;
+        }
+        for (MemberField field : fields) {
+            if (field.needsTeamJoin()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    public MemberTeamDto newInstance(Object... values) {
+        Long memberId = null;
+        String username = null;
+        int age = 0;
+        Long teamId = null;
+        String teamName = null;
+        for (int i = 0; i < fields.length; i++) {
+            Object value = values[i];
+            switch (fields[i]) {
+                case MEMBER_ID -> memberId = (Long) value;
+                case USERNAME -> username = (String) value;
+                case AGE -> age = value != null ? (Integer) value : 0;
+                case TEAM_ID -> teamId = (Long) value;
+                case TEAM_NAME -> teamName = (String) value;
+            }
+        }
+        return new MemberTeamDto(memberId, username, age, teamId, teamName);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    private static Expression<?> path(MemberField field) {
+        return switch (field) {
+            case MEMBER_ID -> member.id;
+            case USERNAME -> member.username;
+            case AGE -> member.age;
+            case TEAM_ID -> member.team.id; // FK 컬럼이라 조인 없이 읽힌다
+            case TEAM_NAME -> team.name;
+        };
+    }
+}
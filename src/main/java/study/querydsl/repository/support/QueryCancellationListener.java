@@ -0,0 +1,56 @@
+package study.querydsl.repository.support;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * 실행 중인 Statement 를 현재 요청의 QueryExecutionContext 에 등록/해제하고
+ * 타임아웃·취소로 끝난 쿼리 수를 센다
+ */
+@Component
+public class QueryCancellationListener extends SimpleJdbcEventListener {
+
+    // H2: QUERY_TIMEOUT(57014) - 타임아웃과 Statement.cancel() 모두 이 코드로 끝난다
+    private static final String QUERY_CANCELED_STATE = "57014";
+
+    private final Counter timeouts;
+    private final Counter cancellations;
+
+    public QueryCancellationListener(MeterRegistry meterRegistry) {
+        this.timeouts = Counter.builder("member.search.query.timeout")
+                .description("쿼리 타임아웃으로 중단된 SQL 수").register(meterRegistry);
+        this.cancellations = Counter.builder("member.search.query.cancelled")
+                .description("클라이언트 연결 종료로 취소된 SQL 수").register(meterRegistry);
+    }
+
+    @Override
+    public void onBeforeAnyExecute(StatementInformation statementInformation) {
+        QueryExecutionContext context = QueryExecutionContext.current();
+        Statement statement = statementInformation.getStatement();
+        if (context != null && statement != null) {
+            context.register(statement);
+        }
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        QueryExecutionContext context = QueryExecutionContext.current();
+        if (context != null) {
+            context.unregister(statementInformation.getStatement());
+        }
+        if (e instanceof SQLTimeoutException || (e != null && QUERY_CANCELED_STATE.equals(e.getSQLState()))) {
+            if (context != null && context.isCancelled()) {
+                cancellations.increment();
+            } else {
+                timeouts.increment();
+            }
+        }
+    }
+}
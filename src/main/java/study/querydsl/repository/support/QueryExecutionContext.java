@@ -0,0 +1,162 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.Query;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 하나에서 실행되는 쿼리들의 타임아웃 / 취소 상태
+ * - 타임아웃은 요청 전체 기준(deadline)이다. content 쿼리가 오래 걸리면 count 쿼리에는 남은 시간만 준다
+ * - 실행 중인 JDBC Statement 를 기억해 두었다가 cancel() 이 호출되면 Statement.cancel() 로 DB 에서 중단시킨다
+ * - deadline 이 지나면 실행 중인 Statement 를 ms 단위로 정확히 cancel 한다 (JDBC 타임아웃은 초 단위라 보조로만 쓴다)
+ * - 쿼리를 실행하는 스레드에 bind() 해 두면 리포지토리/p6spy 리스너가 current() 로 꺼내 쓴다
+ */
+public class QueryExecutionContext {
+
+    public static final String TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    // 실행 시작 전에 도착해 무시된 cancel 을 다시 보내는 간격
+    private static final long CANCEL_RETRY_MILLIS = 10;
+
+    private static final ThreadLocal<QueryExecutionContext> CURRENT = new ThreadLocal<>();
+
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "query-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // 쿼리는 대부분 deadline 전에 끝나므로 취소된 예약은 바로 큐에서 뺀다
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    private final long deadlineNanos;
+    private final Map<Statement, ScheduledFuture<?>> running = new ConcurrentHashMap<>();
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    public QueryExecutionContext(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000;
+    }
+
+    private QueryExecutionContext(QueryExecutionContext source) {
+        this.deadlineNanos = source.deadlineNanos;
+    }
+
+    public static QueryExecutionContext current() {
+        return CURRENT.get();
+    }
+
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 같은 deadline 을 갖지만 취소 상태는 따로인 context (여러 요청이 공유하는 조회용)
+     */
+    public QueryExecutionContext detached() {
+        return new QueryExecutionContext(this);
+    }
+
+    /**
+     * 현재 요청에 타임아웃이 있으면 쿼리 힌트로 건다
+     * - 실제 타임아웃은 register() 가 deadline 에 맞춰 cancel 하는 것으로 ms 단위로 지킨다
+     * - 힌트는 JDBC setQueryTimeout(초 단위)으로 내려가므로 0(무제한)이 되지 않게 초 단위로 올림한 보조 장치다
+     */
+    public static <T> JPAQuery<T> applyTimeout(JPAQuery<T> query) {
+        QueryExecutionContext context = current();
+        return context != null ? query.setHint(TIMEOUT_HINT, context.remainingMillisRoundedUp()) : query;
+    }
+
+    public static <T extends Query> T applyTimeout(T query) {
+        QueryExecutionContext context = current();
+        if (context != null) {
+            query.setHint(TIMEOUT_HINT, context.remainingMillisRoundedUp());
+        }
+        return query;
+    }
+
+    private int remainingMillisRoundedUp() {
+        long remainingMillis = Math.max(1, (deadlineNanos - System.nanoTime()) / 1_000_000);
+        return (int) Math.min(Integer.MAX_VALUE, (remainingMillis + 999) / 1000 * 1000);
+    }
+
+    public void register(Statement statement) {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        // deadline 이 이미 지났으면 예약이 put 보다 먼저 돌 수 있다. compute 안에서 예약해야
+        // 그 작업의 computeIfPresent 가 등록이 끝날 때까지 기다렸다가 재시도를 이어 간다
+        running.compute(statement, (s, previous) -> DEADLINES.schedule(() -> cancelUntilFinished(s),
+                Math.max(0, remainingNanos), TimeUnit.NANOSECONDS));
+        if (cancelled) {
+            cancelUntilFinished(statement);
+        }
+    }
+
+    /**
+     * H2 는 명령을 시작할 때 취소 플래그를 지우므로 실행 직전에 도착한 Statement.cancel() 은 무시된다
+     * (deadline 이 이미 지난 채 register 된 경우 등). unregister 될 때까지 짧은 간격으로 다시 cancel 한다
+     */
+    private void cancelUntilFinished(Statement statement) {
+        cancelQuietly(statement);
+        running.computeIfPresent(statement, (s, previous) -> {
+            previous.cancel(false);
+            return DEADLINES.schedule(() -> cancelUntilFinished(s), CANCEL_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    public void unregister(Statement statement) {
+        ScheduledFuture<?> deadline = running.remove(statement);
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * cancel() 이 호출되면 한 번 실행된다. 이미 취소된 상태면 바로 실행한다
+     */
+    public void onCancel(Runnable listener) {
+        cancelListeners.add(listener);
+        if (cancelled && cancelListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 다른 스레드(클라이언트 연결 종료를 감지한 스레드)에서 호출된다
+     */
+    public void cancel() {
+        cancelled = true;
+        running.keySet().forEach(this::cancelUntilFinished);
+        for (Runnable listener : cancelListeners) {
+            if (cancelListeners.remove(listener)) {
+                listener.run();
+            }
+        }
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException ignored) {
+            // 이미 끝났거나 닫힌 Statement
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package study.querydsl.repository.support;
+
+import study.querydsl.monitor.ServerTiming;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키로 동시에 들어온 호출을 한 번의 실행으로 합친다 (single-flight)
+ * - 먼저 온 호출(leader)만 supplier 를 실행하고, 뒤에 온 호출은 그 결과를 같이 받는다
+ * - 결과 객체는 여러 요청이 공유하므로 호출한 쪽에서 수정하면 안 된다
+ * - 진행 중인 키가 maxKeys 이상이면 새 키는 합치지 않고 바로 실행한다 (키 테이블 상한)
+ * - 기다리다 timeout 이 지나면 leader 를 포기하고 직접 실행한다
+ * - 실행이 끝나면 키를 지우므로 결과를 캐시하지는 않는다
+ * - 합류한 호출이 기다린 시간은 Server-Timing 의 coalesced 항목으로 남긴다 (SQL 시간은 leader 요청에만 잡힌다)
+ * - leader 의 QueryExecutionContext 대신 같은 deadline 의 공유 context 로 실행한다
+ *   요청 하나가 취소되면 기다리는 요청 수만 줄이고, 기다리는 요청이 하나도 남지 않았을 때만 공유 쿼리를 취소한다
+ *   (context 가 없는 호출은 취소될 수 없으므로 끝까지 기다리는 것으로 센다)
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final int maxKeys;
+    private final Duration timeout;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    public SingleFlight(int maxKeys, Duration timeout) {
+        this.maxKeys = maxKeys;
+        this.timeout = timeout;
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        QueryExecutionContext requester = QueryExecutionContext.current();
+        Flight<V> mine = new Flight<>(requester);
+        Flight<V> existing;
+        if (inFlight.size() >= maxKeys) {
+            existing = inFlight.get(key);
+            if (existing == null) {
+                bypassed.increment();
+                executions.increment();
+                return supplier.get();
+            }
+        } else {
+            existing = inFlight.putIfAbsent(key, mine);
+        }
+
+        if (existing != null) {
+            Runnable leave = existing.join(requester);
+            if (leave == null) {
+                // 모든 요청이 떠나 취소 중인 실행에는 합류하지 않는다
+                bypassed.increment();
+                executions.increment();
+                return supplier.get();
+            }
+            coalesced.increment();
+            return await(existing, leave, supplier);
+        }
+
+        executions.increment();
+        mine.join(requester);
+        try {
+            V value = mine.run(supplier);
+            mine.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private V await(Flight<V> leader, Runnable leave, Supplier<V> supplier) {
+        long start = System.nanoTime();
+        try {
+            V value = leader.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            ServerTiming.coalesced(System.nanoTime() - start);
+            return value;
+        } catch (TimeoutException e) {
+            ServerTiming.coalesced(System.nanoTime() - start);
+            // 더 이상 leader 를 기다리지 않는다
+            leave.run();
+            coalesced.decrement();
+            timeouts.increment();
+            executions.increment();
+            return supplier.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("single-flight 대기 중 인터럽트", e);
+        }
+    }
+
+    /** 실제로 supplier 를 실행한 횟수 */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /** 다른 호출의 결과를 받아 실행을 아낀 횟수 */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    public long timeouts() {
+        return timeouts.sum();
+    }
+
+    public long bypassed() {
+        return bypassed.sum();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * 진행 중인 실행 하나. waiters 가 0 이 되면(모든 요청이 취소되면) 공유 context 를 취소한다
+     */
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final QueryExecutionContext context;
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        Flight(QueryExecutionContext leader) {
+            this.context = leader != null ? leader.detached() : null;
+        }
+
+        /**
+         * @return 기다리기를 그만둘 때 부르는 콜백 (여러 번 불러도 한 번만 센다). 이미 취소 중이면 null
+         */
+        Runnable join(QueryExecutionContext requester) {
+            int current;
+            do {
+                current = waiters.get();
+                if (current == 0 && context != null && context.isCancelled()) {
+                    return null;
+                }
+            } while (!waiters.compareAndSet(current, current + 1));
+
+            AtomicBoolean left = new AtomicBoolean();
+            Runnable leave = () -> {
+                if (left.compareAndSet(false, true) && waiters.decrementAndGet() == 0
+                        && context != null && !result.isDone()) {
+                    context.cancel();
+                }
+            };
+            if (requester != null) {
+                requester.onCancel(leave);
+            }
+            return leave;
+        }
+
+        V run(Supplier<V> supplier) {
+            if (context == null) {
+                return supplier.get();
+            }
+            QueryExecutionContext previous = QueryExecutionContext.current();
+            context.bind();
+            try {
+                return supplier.get();
+            } finally {
+                if (previous != null) {
+                    previous.bind();
+                } else {
+                    QueryExecutionContext.unbind();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package study.querydsl.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 재사용하는 direct ByteBuffer 에 CSV 를 인코딩하고, 가득 차면 FileChannel 로 내보낸다
+ * - 숫자는 문자열을 만들지 않고 바로 자릿수를 쓴다
+ * - 문자열은 CharsetEncoder 로 버퍼에 직접 UTF-8 인코딩한다
+ * - 스레드 하나(파티션 하나)에서만 쓴다
+ */
+class CsvChannelWriter implements Closeable {
+
+    private static final int MAX_LONG_DIGITS = 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private long bytesWritten;
+
+    CsvChannelWriter(FileChannel channel, ByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.clear();
+    }
+
+    CsvChannelWriter writeLong(Long value) throws IOException {
+        if (value == null) {
+            return this;
+        }
+        ensure(MAX_LONG_DIGITS);
+        long v = value;
+        if (v == 0) {
+            buffer.put((byte) '0');
+            return this;
+        }
+        if (v < 0) {
+            buffer.put((byte) '-');
+            v = -v;
+        }
+        int start = buffer.position();
+        while (v > 0) {
+            buffer.put((byte) ('0' + v % 10));
+            v /= 10;
+        }
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte tmp = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, tmp);
+        }
+        return this;
+    }
+
+    CsvChannelWriter writeString(String value) throws IOException {
+        if (value == null) {
+            return this;
+        }
+        if (needsQuote(value)) {
+            writeByte('"');
+            encode(value.replace("\"", "\"\""));
+            writeByte('"');
+        } else {
+            encode(value);
+        }
+        return this;
+    }
+
+    /**
+     * 이미 인코딩된 바이트(헤더 등)를 그대로 쓴다
+     */
+    CsvChannelWriter writeBytes(byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    CsvChannelWriter comma() throws IOException {
+        return writeByte(',');
+    }
+
+    CsvChannelWriter newLine() throws IOException {
+        return writeByte('\n');
+    }
+
+    long bytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    private CsvChannelWriter writeByte(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+        return this;
+    }
+
+    private void encode(String value) throws IOException {
+        CharBuffer in = CharBuffer.wrap(value);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isOverflow()) {
+                drain();
+                continue;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            break;
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static boolean needsQuote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        drain();
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.service;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 회원 내보내기 작업의 진행 상태
+ */
+public class MemberExportJob {
+
+    public enum Status {RUNNING, COMPLETED, FAILED}
+
+    @Getter private final String id;
+    @Getter private final int partitions;
+    private final long startedNanos = System.nanoTime();
+    private final LongAdder exportedRows = new LongAdder();
+    @Getter private volatile Status status = Status.RUNNING;
+    private volatile long elapsedNanos;
+    @Getter private volatile List<String> files = List.of();
+    @Getter private volatile String error;
+
+    public MemberExportJob(String id, int partitions) {
+        this.id = id;
+        this.partitions = partitions;
+    }
+
+    public long getRows() {
+        return exportedRows.sum();
+    }
+
+    public long getElapsedMillis() {
+        long nanos = status == Status.RUNNING ? System.nanoTime() - startedNanos : elapsedNanos;
+        return nanos / 1_000_000;
+    }
+
+    public long getRowsPerSecond() {
+        long millis = getElapsedMillis();
+        return millis > 0 ? getRows() * 1000 / millis : getRows();
+    }
+
+    /**
+     * nanos(System.nanoTime 기준) 전에 끝난 작업인지
+     */
+    boolean finishedBefore(long nanos) {
+        return status != Status.RUNNING && startedNanos + elapsedNanos - nanos < 0;
+    }
+
+    void rowExported() {
+        exportedRows.increment();
+    }
+
+    void complete(List<Path> files) {
+        this.files = files.stream().map(Path::toString).toList();
+        this.elapsedNanos = System.nanoTime() - startedNanos;
+        this.status = Status.COMPLETED;
+    }
+
+    void fail(Throwable e) {
+        this.error = e.toString();
+        this.elapsedNanos = System.nanoTime() - startedNanos;
+        this.status = Status.FAILED;
+    }
+}
@@ -0,0 +1,283 @@
+package study.querydsl.service;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberTeamDto 전체를 CSV 파일로 내보낸다
+ * - member_id 범위를 N 개 파티션으로 나누고, 파티션마다 별도 EntityManager(= 별도 커넥션)로 병렬 조회한다
+ * - 조회는 stream()(ScrollableResults) 으로 한 건씩 읽어서 힙에 전체 결과를 올리지 않는다
+ * - 각 워커는 버퍼 풀에서 빌린 direct ByteBuffer 에 CSV 를 인코딩해서 FileChannel 로 쓴다 (작업이 바뀌어도 재사용)
+ * - concatenate 면 파티션 파일을 transferTo 로 하나의 파일에 이어 붙인다 (커널에서 복사)
+ * - 파티션 수는 커넥션 풀 크기로 제한하고, 워커/작업 스레드는 전용 풀을 쓴다 (대기 작업 수가 차면 거절)
+ * - 끝난 작업은 job-ttl 이 지나면 목록에서 지운다
+ */
+@Slf4j
+@Service
+public class MemberExportService {
+
+    private static final byte[] HEADER = "memberId,username,age,teamId,teamName\n".getBytes(StandardCharsets.UTF_8);
+    private static final String FETCH_SIZE_HINT = "org.hibernate.fetchSize";
+
+    private final EntityManagerFactory emf;
+    private final Path directory;
+    private final int bufferSize;
+    private final int fetchSize;
+    private final int maxPartitions;
+    private final Duration jobTtl;
+    private final Map<String, MemberExportJob> jobs = new ConcurrentHashMap<>();
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final ExecutorService workers;
+    private final ThreadPoolExecutor coordinator;
+
+    public MemberExportService(EntityManagerFactory emf,
+                               DataSource dataSource,
+                               @Value("${querydsl.export.directory:${java.io.tmpdir}/querydsl-export}") Path directory,
+                               @Value("${querydsl.export.buffer-size:262144}") int bufferSize,
+                               @Value("${querydsl.export.fetch-size:1000}") int fetchSize,
+                               @Value("${querydsl.export.max-queued-jobs:4}") int maxQueuedJobs,
+                               @Value("${querydsl.export.job-ttl:1h}") Duration jobTtl) {
+        this.emf = emf;
+        this.directory = directory;
+        this.bufferSize = bufferSize;
+        this.fetchSize = fetchSize;
+        this.jobTtl = jobTtl;
+        // 파티션마다 커넥션 하나를 계속 잡고 있으므로 풀 크기보다 많이 나눠도 빨라지지 않고 대기만 늘어난다
+        this.maxPartitions = poolSize(dataSource);
+        this.buffers = new ArrayBlockingQueue<>(maxPartitions);
+        this.workers = Executors.newFixedThreadPool(maxPartitions, threadFactory("member-export-worker"));
+        this.coordinator = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueuedJobs), threadFactory("member-export"));
+    }
+
+    /**
+     * 백그라운드로 내보내기를 시작하고 바로 작업 정보를 반환한다. 진행 상황은 findJob 으로 확인한다
+     *
+     * @throws RejectedExecutionException 대기 중인 작업이 max-queued-jobs 개 있으면
+     */
+    public MemberExportJob start(int partitions, boolean concatenate) {
+        MemberExportJob job = newJob(partitions);
+        try {
+            coordinator.execute(() -> run(job, concatenate));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public MemberExportJob findJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * 호출한 스레드에서 끝까지 실행한다
+     */
+    public MemberExportJob export(int partitions, boolean concatenate) {
+        MemberExportJob job = newJob(partitions);
+        run(job, concatenate);
+        return job;
+    }
+
+    public int getMaxPartitions() {
+        return maxPartitions;
+    }
+
+    private MemberExportJob newJob(int partitions) {
+        evictExpired();
+        MemberExportJob job = new MemberExportJob(UUID.randomUUID().toString(), Math.min(partitions, maxPartitions));
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    private void evictExpired() {
+        long cutoff = System.nanoTime() - jobTtl.toNanos();
+        jobs.values().removeIf(job -> job.finishedBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void run(MemberExportJob job, boolean concatenate) {
+        List<Future<Path>> futures = new ArrayList<>();
+        try {
+            Path jobDirectory = Files.createDirectories(directory.resolve(job.getId()));
+            List<long[]> ranges = partition(job.getPartitions());
+
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                Path file = jobDirectory.resolve(String.format("members-part-%04d.csv", i));
+                futures.add(workers.submit(() -> exportPartition(range[0], range[1], file, job)));
+            }
+            List<Path> parts = new ArrayList<>();
+            for (Future<Path> future : futures) {
+                parts.add(future.get());
+            }
+
+            job.complete(concatenate ? List.of(concatenate(parts, jobDirectory.resolve("members.csv"))) : parts);
+            log.info("member export {} finished: rows={}, {}ms, {} rows/s",
+                    job.getId(), job.getRows(), job.getElapsedMillis(), job.getRowsPerSecond());
+        } catch (Exception e) {
+            log.warn("member export {} failed", job.getId(), e);
+            // 공유 워커 풀이므로 남은 파티션만 멈춘다
+            futures.forEach(future -> future.cancel(true));
+            job.fail(e);
+        }
+    }
+
+    /**
+     * [min(member_id), max(member_id)] 를 같은 폭의 구간 N 개로 나눈다
+     */
+    private List<long[]> partition(int partitions) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Tuple bounds = new JPAQueryFactory(em)
+                    .select(member.id.min(), member.id.max())
+                    .from(member)
+                    .fetchOne();
+            Long min = bounds != null ? bounds.get(member.id.min()) : null;
+            Long max = bounds != null ? bounds.get(member.id.max()) : null;
+            List<long[]> ranges = new ArrayList<>();
+            if (min == null || max == null) {
+                return ranges;
+            }
+            long width = (max - min + partitions) / partitions;
+            for (long from = min; from <= max; from += width) {
+                ranges.add(new long[]{from, Math.min(max, from + width - 1)});
+            }
+            return ranges;
+        } finally {
+            em.close();
+        }
+    }
+
+    private Path exportPartition(long fromId, long toId, Path file, MemberExportJob job) throws IOException {
+        EntityManager em = emf.createEntityManager();
+        ByteBuffer buffer = borrowBuffer();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             CsvChannelWriter writer = new CsvChannelWriter(channel, buffer);
+             Stream<MemberTeamDto> rows = new JPAQueryFactory(em)
+                     .select(new QMemberTeamDto(
+                             member.id.as("memberId"),
+                             member.username,
+                             member.age,
+                             team.id.as("teamId"),
+                             team.name.as("teamName")
+                     ))
+                     .from(member)
+                     .leftJoin(member.team, team)
+                     .where(member.id.between(fromId, toId))
+                     .orderBy(member.id.asc())
+                     .setHint(FETCH_SIZE_HINT, fetchSize)
+                     .stream()) {
+            writer.writeBytes(HEADER);
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                MemberTeamDto row = iterator.next();
+                writer.writeLong(row.getMemberId()).comma()
+                        .writeString(row.getUsername()).comma()
+                        .writeLong((long) row.getAge()).comma()
+                        .writeLong(row.getTeamId()).comma()
+                        .writeString(row.getTeamName()).newLine();
+                job.rowExported();
+            }
+        } finally {
+            em.close();
+            buffers.offer(buffer);
+        }
+        return file;
+    }
+
+    /**
+     * 동시에 도는 워커는 maxPartitions 개를 넘지 않으므로 버퍼도 그 수만큼만 만들어진다
+     */
+    private ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * p6spy 가 DataSource 를 감싸고 있으므로 unwrap 해서 Hikari 풀 크기를 읽는다 (Hikari 가 아니면 Hikari 기본값 10)
+     */
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("connection pool size unavailable", e);
+        }
+        return 10;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private Path concatenate(List<Path> parts, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap(HEADER));
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = HEADER.length;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
+            }
+        }
+        return target;
+    }
+}
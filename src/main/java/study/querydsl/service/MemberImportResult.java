@@ -0,0 +1,52 @@
+package study.querydsl.service;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 회원 가져오기 결과
+ * - accepted 는 커밋된 행 수. 실패(error)로 멈춘 경우 마지막 트랜잭션의 행은 accepted 에도 rejected 에도 들어가지 않는다
+ * - errors 는 거부된 행 중 앞쪽 max-errors 건의 사유만 담는다
+ */
+public class MemberImportResult {
+
+    @Getter private long accepted;
+    @Getter private long rejected;
+    @Getter private long teamsCreated;
+    @Getter private long transactions;
+    @Getter private long elapsedMillis;
+    @Getter private String error;
+    @Getter private final List<String> errors = new ArrayList<>();
+    private final int maxErrors;
+    private final long startedNanos = System.nanoTime();
+
+    MemberImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public long getRowsPerSecond() {
+        return elapsedMillis > 0 ? accepted * 1000 / elapsedMillis : accepted;
+    }
+
+    void committed(long rows, long teams) {
+        accepted += rows;
+        teamsCreated += teams;
+        transactions++;
+    }
+
+    void reject(long line, String reason) {
+        rejected++;
+        if (errors.size() < maxErrors) {
+            errors.add("line " + line + ": " + reason);
+        }
+    }
+
+    void finish(Exception e) {
+        if (e != null) {
+            error = e.toString();
+        }
+        elapsedMillis = (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,528 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.BulkUpdateNotifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 회원 대량 가져오기 (CSV / NDJSON 스트리밍)
+ * - 요청 본문을 한 줄씩 읽어서 바로 insert 한다. 본문 전체나 엔티티를 메모리에 올리지 않는다
+ *   → 메모리는 batch-size 만큼의 배열 + team-cache-size 만큼의 팀 이름 캐시로 고정된다
+ *   → max-line-length 를 넘는 줄은 버퍼에 담지 않고 건너뛴 뒤 거부한다 (줄바꿈 없는 본문으로 메모리를 채우지 못하게)
+ * - 영속성 컨텍스트를 거치지 않고 JdbcTemplate.batchUpdate 로 batch-size 건씩 보낸다
+ * - commit-size 건마다 트랜잭션을 나눠 커밋한다. 실패하면 그 트랜잭션만 롤백하고 멈춘다 (이전 트랜잭션은 남는다)
+ * - 팀은 이름으로 찾고(없으면 만든다) 이름 → id 를 가져오기 한 번 동안 LRU 로 캐시한다
+ * - id 는 엔티티와 같은 Hibernate 생성기(BlockSequenceGenerator)에서 받는다 → persist 로 만든 id 와 겹치지 않는다
+ * - 행 단위 커밋 이벤트가 없으므로 가져오기가 끝난 뒤 BulkUpdateNotifier 로 집계/인덱스에 한 번 알린다
+ *   → 청크마다 알리면 캐시/인덱스를 청크 수만큼 다시 만든다
+ */
+@Slf4j
+@Service
+public class MemberImportService {
+
+    public enum Format {CSV, NDJSON}
+
+    private static final String INSERT_MEMBER = "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+    private static final String INSERT_TEAM = "insert into team (team_id, name, member_count) values (?, ?, 0)";
+    private static final String FIND_TEAM = "select min(team_id) from team where name = ?";
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BulkUpdateNotifier bulkUpdateNotifier;
+    private final ObjectReader jsonReader;
+    private final IdentifierGenerator memberIdGenerator;
+    private final IdentifierGenerator teamIdGenerator;
+    private final int batchSize;
+    private final int commitSize;
+    private final int teamCacheSize;
+    private final int maxErrors;
+    private final int maxLineLength;
+
+    public MemberImportService(EntityManager em, EntityManagerFactory emf, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               BulkUpdateNotifier bulkUpdateNotifier, ObjectMapper objectMapper,
+                               @Value("${querydsl.import.batch-size:500}") int batchSize,
+                               @Value("${querydsl.import.commit-size:5000}") int commitSize,
+                               @Value("${querydsl.import.team-cache-size:10000}") int teamCacheSize,
+                               @Value("${querydsl.import.max-errors:20}") int maxErrors,
+                               @Value("${querydsl.import.max-line-length:4096}") int maxLineLength) {
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.bulkUpdateNotifier = bulkUpdateNotifier;
+        this.jsonReader = objectMapper.readerFor(JsonRow.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        MappingMetamodelImplementor metamodel = emf.unwrap(SessionFactoryImplementor.class).getMappingMetamodel();
+        this.memberIdGenerator = (IdentifierGenerator) metamodel.getEntityDescriptor(Member.class).getGenerator();
+        this.teamIdGenerator = (IdentifierGenerator) metamodel.getEntityDescriptor(Team.class).getGenerator();
+        this.batchSize = batchSize;
+        this.commitSize = Math.max(commitSize, batchSize);
+        this.teamCacheSize = teamCacheSize;
+        this.maxErrors = maxErrors;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * CSV 는 첫 줄이 헤더여야 하고 username 컬럼이 있어야 한다 (age, teamName 은 선택, 나머지 컬럼은 무시)
+     * → 내보내기 파일(memberId,username,age,teamId,teamName)도 그대로 가져올 수 있다
+     * NDJSON 은 한 줄에 {"username": ..., "age": ..., "teamName": ...} 하나
+     *
+     * @throws IllegalArgumentException CSV 헤더가 없거나 username 컬럼이 없을 때
+     */
+    public MemberImportResult importMembers(InputStream body, Format format) throws IOException {
+        LineReader reader = new LineReader(new InputStreamReader(body, StandardCharsets.UTF_8), maxLineLength);
+        RowSource source = format == Format.CSV ? new CsvRowSource(reader) : new NdjsonRowSource(reader);
+        MemberImportResult result = new MemberImportResult(maxErrors);
+        ImportState state = new ImportState(source, result);
+        try {
+            while (!state.eof) {
+                transactionTemplate.executeWithoutResult(status -> importChunk(state));
+                if (state.chunkRows > 0 || state.chunkTeams > 0) {
+                    result.committed(state.chunkRows, state.chunkTeams);
+                }
+            }
+            result.finish(null);
+        } catch (RuntimeException e) {
+            log.warn("member import failed after {} rows", result.getAccepted(), e);
+            result.finish(e instanceof UncheckedIOException io ? io.getCause() : e);
+        }
+        // 실패해도 앞서 커밋된 청크가 있으면 알린다
+        if (result.getAccepted() > 0) {
+            bulkUpdateNotifier.afterCommit(Member.class);
+        }
+        if (result.getTeamsCreated() > 0) {
+            bulkUpdateNotifier.afterCommit(Team.class);
+        }
+        log.info("member import finished: accepted={}, rejected={}, teamsCreated={}, {}ms, {} rows/s",
+                result.getAccepted(), result.getRejected(), result.getTeamsCreated(),
+                result.getElapsedMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * 트랜잭션 하나: commit-size 건까지 읽어서 batch-size 건씩 insert 한다
+     */
+    private void importChunk(ImportState state) {
+        state.chunkRows = 0;
+        state.chunkTeams = 0;
+        Batch batch = state.batch;
+        Row row = state.row;
+        while (state.chunkRows < commitSize) {
+            if (!state.source.next(row)) {
+                state.eof = true;
+                break;
+            }
+            String reason = row.validate();
+            if (reason != null) {
+                state.result.reject(row.line, reason);
+                continue;
+            }
+            batch.add(nextId(memberIdGenerator), row.username, row.age, resolveTeam(state, row.teamName));
+            state.chunkRows++;
+            if (batch.size == batchSize) {
+                batch.flush();
+            }
+        }
+        batch.flush();
+    }
+
+    private Long resolveTeam(ImportState state, String teamName) {
+        if (!StringUtils.hasText(teamName)) {
+            return null;
+        }
+        Long teamId = state.teams.get(teamName);
+        if (teamId == null) {
+            teamId = jdbcTemplate.queryForObject(FIND_TEAM, Long.class, teamName);
+            if (teamId == null) {
+                teamId = nextId(teamIdGenerator);
+                jdbcTemplate.update(INSERT_TEAM, teamId, teamName);
+                state.chunkTeams++;
+            }
+            state.teams.put(teamName, teamId);
+        }
+        return teamId;
+    }
+
+    /**
+     * 청크 트랜잭션 안에서 호출한다. 시퀀스를 읽어야 하면 그 트랜잭션의 커넥션(세션)을 쓴다
+     */
+    private long nextId(IdentifierGenerator generator) {
+        return ((Number) generator.generate(em.unwrap(SharedSessionContractImplementor.class), null)).longValue();
+    }
+
+    /**
+     * 가져오기 한 번 동안의 상태 (요청 스레드 하나만 쓴다)
+     */
+    private class ImportState {
+        final RowSource source;
+        final MemberImportResult result;
+        final Row row = new Row();
+        final Batch batch = new Batch();
+        final Map<String, Long> teams = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > teamCacheSize;
+            }
+        };
+        boolean eof;
+        long chunkRows;
+        long chunkTeams;
+
+        ImportState(RowSource source, MemberImportResult result) {
+            this.source = source;
+            this.result = result;
+        }
+    }
+
+    /**
+     * JDBC 배치 한 번에 보낼 행. 배열을 재사용한다
+     */
+    private class Batch {
+        final long[] ids = new long[batchSize];
+        final String[] usernames = new String[batchSize];
+        final int[] ages = new int[batchSize];
+        final Long[] teamIds = new Long[batchSize];
+        int size;
+
+        void add(long id, String username, int age, Long teamId) {
+            ids[size] = id;
+            usernames[size] = username;
+            ages[size] = age;
+            teamIds[size] = teamId;
+            size++;
+        }
+
+        void flush() {
+            if (size == 0) {
+                return;
+            }
+            int count = size;
+            jdbcTemplate.batchUpdate(INSERT_MEMBER, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, ids[i]);
+                    ps.setString(2, usernames[i]);
+                    ps.setInt(3, ages[i]);
+                    if (teamIds[i] != null) {
+                        ps.setLong(4, teamIds[i]);
+                    } else {
+                        ps.setNull(4, Types.BIGINT);
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+            size = 0;
+        }
+    }
+
+    /**
+     * 읽은 한 행. 행마다 새로 만들지 않고 채워 쓴다
+     */
+    private static class Row {
+        long line;
+        String username;
+        int age;
+        String teamName;
+        String error;
+
+        void reset(long line) {
+            this.line = line;
+            this.username = null;
+            this.age = 0;
+            this.teamName = null;
+            this.error = null;
+        }
+
+        String validate() {
+            if (error != null) {
+                return error;
+            }
+            if (!StringUtils.hasText(username)) {
+                return "username is required";
+            }
+            if (username.length() > MAX_NAME_LENGTH) {
+                return "username is longer than " + MAX_NAME_LENGTH;
+            }
+            if (age < 0) {
+                return "age must not be negative";
+            }
+            if (teamName != null && teamName.length() > MAX_NAME_LENGTH) {
+                return "teamName is longer than " + MAX_NAME_LENGTH;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * BufferedReader.readLine 과 같이 \n, \r, \r\n 으로 줄을 나눈다
+     * - maxLength 를 넘는 줄은 나머지를 버퍼에 담지 않고 줄 끝까지 건너뛰고 tooLong 으로 알린다
+     */
+    private static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+        private boolean tooLong;
+
+        LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * @return 줄바꿈을 뺀 다음 줄, 더 없으면 null. 너무 긴 줄이면 빈 문자열이고 isTooLong() 이 true
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+                    position = 0;
+                    if (limit == 0) {
+                        return read ? current() : null;
+                    }
+                }
+                char c = buffer[position++];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return current();
+                }
+                read = true;
+                if (line.length() < maxLength) {
+                    line.append(c);
+                } else {
+                    tooLong = true;
+                }
+            }
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        int maxLength() {
+            return maxLength;
+        }
+
+        private String current() {
+            return tooLong ? "" : line.toString();
+        }
+    }
+
+    private interface RowSource {
+        /**
+         * 다음 데이터 줄을 row 에 채운다. 빈 줄은 건너뛴다
+         *
+         * @return 더 읽을 줄이 없으면 false
+         */
+        boolean next(Row row);
+    }
+
+    private static class CsvRowSource implements RowSource {
+        private final LineReader reader;
+        private final int usernameIndex;
+        private final int ageIndex;
+        private final int teamNameIndex;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private long line = 1;
+
+        CsvRowSource(LineReader reader) throws IOException {
+            this.reader = reader;
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("csv header is required");
+            }
+            if (reader.isTooLong()) {
+                throw new IllegalArgumentException("csv header is longer than " + reader.maxLength());
+            }
+            List<String> split = split(header.strip());
+            if (split == null) {
+                throw new IllegalArgumentException("invalid csv header: " + header);
+            }
+            List<String> columns = new ArrayList<>(split);
+            this.usernameIndex = columns.indexOf("username");
+            this.ageIndex = columns.indexOf("age");
+            this.teamNameIndex = columns.indexOf("teamName");
+            if (usernameIndex < 0) {
+                throw new IllegalArgumentException("csv header must contain username: " + header);
+            }
+        }
+
+        @Override
+        public boolean next(Row row) {
+            String text = readLine();
+            while (text != null && !reader.isTooLong() && text.isBlank()) {
+                text = readLine();
+            }
+            if (text == null) {
+                return false;
+            }
+            row.reset(line);
+            if (reader.isTooLong()) {
+                row.error = "line is longer than " + reader.maxLength();
+                return true;
+            }
+            List<String> values = split(text);
+            if (values == null) {
+                row.error = "unterminated quote";
+                return true;
+            }
+            row.username = column(values, usernameIndex);
+            row.teamName = column(values, teamNameIndex);
+            String age = column(values, ageIndex);
+            if (StringUtils.hasText(age)) {
+                try {
+                    row.age = Integer.parseInt(age.strip());
+                } catch (NumberFormatException e) {
+                    row.error = "age is not a number: " + age;
+                }
+            }
+            return true;
+        }
+
+        private String readLine() {
+            try {
+                String text = reader.readLine();
+                if (text != null) {
+                    line++;
+                }
+                return text;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String column(List<String> values, int index) {
+            return index >= 0 && index < values.size() ? values.get(index) : null;
+        }
+
+        /**
+         * 쉼표로 나눈다. 큰따옴표로 감싼 필드 안의 쉼표/"" 를 처리한다 (필드 안 줄바꿈은 지원하지 않는다)
+         *
+         * @return 따옴표가 닫히지 않았으면 null
+         */
+        private List<String> split(String text) {
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private class NdjsonRowSource implements RowSource {
+        private final LineReader reader;
+        private long line;
+
+        NdjsonRowSource(LineReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean next(Row row) {
+            String text;
+            try {
+                do {
+                    text = reader.readLine();
+                    line++;
+                } while (text != null && !reader.isTooLong() && text.isBlank());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (text == null) {
+                return false;
+            }
+            row.reset(line);
+            if (reader.isTooLong()) {
+                row.error = "line is longer than " + reader.maxLength();
+                return true;
+            }
+            try {
+                JsonRow json = jsonReader.readValue(text);
+                row.username = json.username;
+                row.age = json.age != null ? json.age : 0;
+                row.teamName = json.teamName;
+            } catch (JsonProcessingException e) {
+                row.error = "invalid json: " + e.getOriginalMessage();
+            }
+            return true;
+        }
+    }
+
+    private static class JsonRow {
+        public String username;
+        public Integer age;
+        public String teamName;
+    }
+}
@@ -0,0 +1,114 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import study.querydsl.dto.CountedPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSnapshotRepository;
+import study.querydsl.repository.support.SingleFlight;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 컨트롤러와 리포지토리 사이에서 동일한 검색 요청을 합친다
+ * - 같은 (검색 종류, 조건, 페이지) 로 동시에 들어온 요청은 DB 조회 한 번을 공유한다
+ * - 반환된 List/Page 는 요청 간에 공유되므로 공유 전에 수정할 수 없는 복사본으로 감싼다 (DTO 자체도 수정하지 않는다)
+ * - 메모리 스냅샷이 켜져 있고 최신이면 DB 대신 스냅샷으로 답한다 (결과는 회원 id 오름차순)
+ */
+@Service
+public class MemberSearchService {
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberRepository memberRepository;
+    private final MemberSnapshotRepository memberSnapshotRepository;
+    private final SingleFlight<SearchKey, Object> singleFlight;
+    private final Counter snapshotHits;
+    private final Counter snapshotFallbacks;
+
+    public MemberSearchService(MemberJpaRepository memberJpaRepository,
+                               MemberRepository memberRepository,
+                               MemberSnapshotRepository memberSnapshotRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${querydsl.search.coalescing.max-keys:1024}") int maxKeys,
+                               @Value("${querydsl.search.coalescing.timeout:5s}") Duration timeout) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberRepository = memberRepository;
+        this.memberSnapshotRepository = memberSnapshotRepository;
+        this.singleFlight = new SingleFlight<>(maxKeys, timeout);
+
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::executions)
+                .tag("result", "executed").register(meterRegistry);
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::coalesced)
+                .tag("result", "saved").register(meterRegistry);
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::timeouts)
+                .tag("result", "timeout").register(meterRegistry);
+        FunctionCounter.builder("member.search.coalescing", singleFlight, SingleFlight::bypassed)
+                .tag("result", "bypassed").register(meterRegistry);
+        Gauge.builder("member.search.coalescing.in-flight", singleFlight, SingleFlight::inFlight)
+                .register(meterRegistry);
+        this.snapshotHits = Counter.builder("member.search.snapshot").tag("result", "hit").register(meterRegistry);
+        this.snapshotFallbacks = Counter.builder("member.search.snapshot").tag("result", "fallback").register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (useSnapshot()) {
+            return memberSnapshotRepository.search(condition);
+        }
+        return (List<MemberTeamDto>) singleFlight.execute(new SearchKey("search", condition, null),
+                () -> List.copyOf(memberJpaRepository.search(condition)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        if (useSnapshot()) {
+            return memberSnapshotRepository.searchPage(condition, pageable);
+        }
+        return (Page<MemberTeamDto>) singleFlight.execute(new SearchKey("searchPageSimple", condition, pageable),
+                () -> unmodifiable(memberRepository.searchPageSimple(condition, pageable)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        if (useSnapshot()) {
+            return memberSnapshotRepository.searchPage(condition, pageable);
+        }
+        return (Page<MemberTeamDto>) singleFlight.execute(new SearchKey("searchPageComplex", condition, pageable),
+                () -> unmodifiable(memberRepository.searchPageComplex(condition, pageable)));
+    }
+
+    // PageImpl.getContent() 는 읽기 전용 뷰일 뿐이라 원본 리스트를 복사해 둔다 (CountedPage 면 totalExact 도 그대로)
+    private static Page<MemberTeamDto> unmodifiable(Page<MemberTeamDto> page) {
+        List<MemberTeamDto> content = List.copyOf(page.getContent());
+        if (page instanceof CountedPage<MemberTeamDto> counted) {
+            return new CountedPage<>(content, page.getPageable(), page.getTotalElements(), counted.isTotalExact());
+        }
+        return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+    }
+
+    private boolean useSnapshot() {
+        if (!memberSnapshotRepository.isEnabled()) {
+            return false;
+        }
+        boolean available = memberSnapshotRepository.isAvailable();
+        (available ? snapshotHits : snapshotFallbacks).increment();
+        return available;
+    }
+
+    /**
+     * MemberSearchCondition(@Data) 과 PageRequest 의 equals/hashCode 를 그대로 키로 쓴다
+     */
+    private record SearchKey(String query, MemberSearchCondition condition, Pageable pageable) {
+    }
+}
@@ -0,0 +1,105 @@
+package study.querydsl.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 지연 시간 기울기(gradient)로 동시 실행 한도를 조절하는 limiter
+ * - minRtt: 최근 구간의 최소 지연 (부하가 없을 때의 처리 시간 추정치), rtt: 이번 요청 지연
+ * - gradient = clamp(tolerance * minRtt / rtt, 0.5, 1.0)
+ *   대기열이 생겨 지연이 늘어나면 gradient < 1 이 되어 한도가 줄어든다
+ * - minRtt 는 RTT_WINDOW 건마다 다시 측정해서 기준 처리 시간이 바뀌어도 따라간다
+ *   구간 최소값조차 tolerance * minRtt 를 넘으면(계속 포화) 한도를 절반으로 내려(probe) 대기열이 빠진 상태의 지연을 보도록 한다
+ * - newLimit = limit * gradient + sqrt(limit) : 지연이 평소 수준이면 큐 여유(sqrt) 만큼 천천히 늘린다
+ * - 요청이 실패(예: 커넥션 타임아웃)하면 곱셈 감소(AIMD 의 MD)로 즉시 줄인다
+ * - 한도에 도달하면 대기시키지 않고 바로 거절한다 (빠른 load shedding)
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int RTT_WINDOW = 500;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejections = new LongAdder();
+    private volatile double limit;
+    private long minRtt;
+    private long nextMinRtt = Long.MAX_VALUE;
+    private int samples;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @return 실행 가능하면 true. true 를 받았다면 반드시 onSuccess/onFailure 중 하나를 호출해야 한다
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejections.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess(long rttNanos) {
+        int inFlightAtStart = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtStart);
+    }
+
+    public void onFailure() {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        }
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtStart) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        nextMinRtt = Math.min(nextMinRtt, rttNanos);
+        if (minRtt == 0 || ++samples >= RTT_WINDOW) {
+            if (minRtt != 0 && nextMinRtt > TOLERANCE * minRtt) {
+                // 계속 포화 상태면 구간 최소값에도 대기 시간이 섞인다 → 한도를 절반으로 내려 대기열을 비우고 다시 잰다
+                limit = Math.max(minLimit, limit / 2);
+            }
+            minRtt = nextMinRtt;
+            nextMinRtt = Long.MAX_VALUE;
+            samples = 0;
+        }
+        minRtt = Math.min(minRtt, rttNanos);
+
+        // 한도의 절반도 쓰지 않는 상태에서는 늘릴 근거가 없다
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minRtt / rttNanos));
+        double estimated = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - SMOOTHING) + estimated * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원 검색 엔드포인트별 동시 실행 한도를 건다
+ * - 엔드포인트(매칭된 URL 패턴)마다 AdaptiveConcurrencyLimiter 를 하나씩 둔다
+ * - 한도에 도달하면 커넥션 풀에 줄 세우지 않고 바로 503 + Retry-After 로 거절한다
+ * - 처리 시간을 limiter 에 피드백해서 한도를 조절한다. 예외로 끝난 요청은 한도를 줄인다
+ * - 비동기(Callable) 요청은 첫 디스패치에서 permit 을 얻고, 결과를 쓰는 ASYNC 디스패치가 끝날 때 반납한다
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+    private static final String START = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    private final ConcurrentHashMap<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+
+    public ConcurrencyLimitInterceptor(MeterRegistry meterRegistry,
+                                       @Value("${querydsl.concurrency-limit.initial-limit:20}") int initialLimit,
+                                       @Value("${querydsl.concurrency-limit.min-limit:2}") int minLimit,
+                                       @Value("${querydsl.concurrency-limit.max-limit:200}") int maxLimit) {
+        this.meterRegistry = meterRegistry;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiter(endpoint(request));
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return false;
+        }
+        request.setAttribute(PERMIT, limiter);
+        request.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdaptiveConcurrencyLimiter limiter = (AdaptiveConcurrencyLimiter) request.getAttribute(PERMIT);
+        if (limiter == null) {
+            return;
+        }
+        request.removeAttribute(PERMIT);
+        if (ex != null || response.getStatus() >= 500) {
+            limiter.onFailure();
+        } else {
+            limiter.onSuccess(System.nanoTime() - (long) request.getAttribute(START));
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter limiter(String endpoint) {
+        return limiters.computeIfAbsent(endpoint, this::createLimiter);
+    }
+
+    private AdaptiveConcurrencyLimiter createLimiter(String endpoint) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit);
+        Gauge.builder("member.search.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("endpoint", endpoint).register(meterRegistry);
+        Gauge.builder("member.search.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("endpoint", endpoint).register(meterRegistry);
+        FunctionCounter.builder("member.search.concurrency.rejected", limiter, AdaptiveConcurrencyLimiter::getRejections)
+                .tag("endpoint", endpoint).register(meterRegistry);
+        return limiter;
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.web;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * DataVersionEtagInterceptor 가 계산해 둔 ETag 를 본문을 쓰기 직전에 헤더로 쓴다
+ * - 2xx 응답에만 붙인다. 검증 실패(4xx), 조회 실패(5xx), 동시 실행 한도 초과(503) 응답은 캐시되면 안 된다
+ * - 인터셉터가 속성을 남긴 요청(회원 검색 엔드포인트)만 처리한다
+ */
+@ControllerAdvice
+public class DataVersionEtagBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse
+                && servletRequest.getServletRequest().getAttribute(DataVersionEtagInterceptor.ETAG_ATTRIBUTE) instanceof String etag
+                && HttpStatusCode.valueOf(servletResponse.getServletResponse().getStatus()).is2xxSuccessful()) {
+            response.getHeaders().set(HttpHeaders.ETAG, etag);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import study.querydsl.event.DataVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 회원 검색 응답에 데이터 버전 기반 ETag 를 붙인다
+ * - ETag = 데이터 버전 + (경로, 정렬한 요청 파라미터, Accept) 의 SHA-256 앞 128비트
+ * - If-None-Match 가 현재 ETag 와 같으면 컨트롤러를 타지 않고 304 로 끝낸다 (DB 조회 없음)
+ * - 그 외에는 ETag 를 요청 속성에만 담아 두고, 헤더는 DataVersionEtagBodyAdvice 가 2xx 응답에만 쓴다
+ * - 버전은 조회 전에 읽으므로 조회 중 변경이 커밋되면 다음 요청에서 새 버전으로 다시 조회된다
+ */
+@Component
+public class DataVersionEtagInterceptor implements HandlerInterceptor {
+
+    static final String ETAG_ATTRIBUTE = DataVersionEtagInterceptor.class.getName() + ".etag";
+
+    private static final int DIGEST_BYTES = 16;
+
+    private final DataVersion dataVersion;
+    private final Counter notModified;
+    private final Counter served;
+
+    public DataVersionEtagInterceptor(DataVersion dataVersion, MeterRegistry meterRegistry) {
+        this.dataVersion = dataVersion;
+        this.notModified = Counter.builder("member.search.conditional")
+                .tag("result", "not_modified")
+                .description("If-None-Match 로 DB 조회 없이 304 를 응답한 횟수")
+                .register(meterRegistry);
+        this.served = Counter.builder("member.search.conditional")
+                .tag("result", "served")
+                .description("ETag 가 달라 조회를 수행한 횟수")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 비동기 처리 결과를 쓰는 두 번째 디스패치에서는 이미 ETag 를 붙였으므로 다시 보지 않는다
+        if (!HttpMethod.GET.matches(request.getMethod()) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        String etag = etag(request);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            notModified.increment();
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        // 4xx/5xx/503 응답에 검증자가 붙지 않도록 헤더는 본문을 쓸 때 상태를 보고 붙인다
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        served.increment();
+        return true;
+    }
+
+    private String etag(HttpServletRequest request) {
+        MessageDigest digest = sha256();
+        update(digest, request.getRequestURI());
+        // 파라미터 순서가 달라도 같은 검색이면 같은 ETag 가 나오도록 이름순으로 정렬하고,
+        // 값 경계가 섞이지 않도록 모든 조각을 길이 접두어와 함께 넣는다
+        Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+        update(digest, String.valueOf(params.size()));
+        for (Map.Entry<String, String[]> param : params.entrySet()) {
+            update(digest, param.getKey());
+            update(digest, String.valueOf(param.getValue().length));
+            for (String value : param.getValue()) {
+                update(digest, value);
+            }
+        }
+        update(digest, String.valueOf(request.getHeader(HttpHeaders.ACCEPT)));
+        byte[] hash = Arrays.copyOf(digest.digest(), DIGEST_BYTES);
+        return "\"" + Long.toHexString(dataVersion.current()) + "-" + HexFormat.of().formatHex(hash) + "\"";
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 를 사용할 수 없습니다", e);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(etag) || trimmed.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
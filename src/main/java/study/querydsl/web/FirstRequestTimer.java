@@ -0,0 +1,85 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 기동 후 첫 요청의 처리 시간을 기록한다 (기동 최적화 효과 측정용)
+ * - 첫 요청은 클래스 로딩, JIT, 커넥션/쿼리 플랜 준비가 몰려서 이후 요청보다 느리다
+ * - 스프링 부트 기본 지표 application.ready.time 과 함께 application.first-request.time 으로 노출한다
+ * - 비동기(Callable) 요청은 응답이 끝날 때까지 잰다
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+    private final AtomicBoolean first = new AtomicBoolean(true);
+    private volatile double firstRequestSeconds = Double.NaN;
+
+    public FirstRequestTimer(MeterRegistry meterRegistry) {
+        Gauge.builder("application.first-request.time", this, timer -> timer.firstRequestSeconds)
+                .baseUnit("seconds")
+                .description("기동 후 첫 요청의 처리 시간")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!first.compareAndSet(true, false)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, start);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, long start) {
+        long elapsed = System.nanoTime() - start;
+        firstRequestSeconds = elapsed / 1e9;
+        log.info("first request {} {} took {}ms (process uptime {}ms)", request.getMethod(), request.getRequestURI(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed), ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import study.querydsl.repository.support.QueryExecutionContext;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Callable 을 반환하는 비동기 엔드포인트에 QueryExecutionContext 를 연결한다
+ * - 작업 스레드에서 실행되는 동안 context 를 bind 해서 리포지토리가 타임아웃 힌트를 걸 수 있게 한다
+ * - 클라이언트가 연결을 끊거나(handleError) 비동기 요청이 타임아웃되면(handleTimeout)
+ *   실행 중인 Statement 를 cancel 해서 DB 에서도 쿼리를 멈춘다
+ * - SingleFlight 로 합쳐진 조회는 공유 context 로 실행되므로, 요청 하나의 cancel 은 그 조회를 기다리는
+ *   요청이 모두 끊겼을 때만 공유 쿼리를 멈춘다
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryCancellationInterceptor implements CallableProcessingInterceptor {
+
+    private static final String CONTEXT = QueryCancellationInterceptor.class.getName() + ".context";
+
+    private final QueryTimeoutProperties queryTimeoutProperties;
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        Object pattern = servletRequest != null
+                ? servletRequest.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) : null;
+        long timeoutMillis = queryTimeoutProperties.timeoutFor(pattern != null ? pattern.toString() : "").toMillis();
+        request.setAttribute(CONTEXT, new QueryExecutionContext(timeoutMillis), RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        QueryExecutionContext context = context(request);
+        if (context != null) {
+            context.bind();
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        QueryExecutionContext.unbind();
+    }
+
+    @Override
+    public <T> Object handleTimeout(NativeWebRequest request, Callable<T> task) {
+        cancel(request);
+        return RESULT_NONE;
+    }
+
+    @Override
+    public <T> Object handleError(NativeWebRequest request, Callable<T> task, Throwable t) {
+        cancel(request);
+        return RESULT_NONE;
+    }
+
+    private void cancel(NativeWebRequest request) {
+        QueryExecutionContext context = context(request);
+        if (context != null) {
+            context.cancel();
+        }
+    }
+
+    private static QueryExecutionContext context(NativeWebRequest request) {
+        return (QueryExecutionContext) request.getAttribute(CONTEXT, RequestAttributes.SCOPE_REQUEST);
+    }
+}
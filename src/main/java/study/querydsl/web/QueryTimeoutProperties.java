@@ -0,0 +1,33 @@
+package study.querydsl.web;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 엔드포인트별 쿼리 타임아웃 (요청 하나에서 실행되는 모든 쿼리 합산 기준)
+ * <pre>
+ * querydsl:
+ *   query-timeout:
+ *     default-timeout: 10s
+ *     endpoints:
+ *       "[/v3/members]": 5s
+ * </pre>
+ */
+@Getter @Setter
+@Component
+@ConfigurationProperties("querydsl.query-timeout")
+public class QueryTimeoutProperties {
+
+    private Duration defaultTimeout = Duration.ofSeconds(10);
+    private Map<String, Duration> endpoints = new HashMap<>();
+
+    public Duration timeoutFor(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultTimeout);
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.web;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * SearchTaskExecutor 의 대기열이 가득 차서 Callable 을 받지 못하면 503 + Retry-After 로 답한다
+ * - 거절된 TaskRejectedException 은 비동기 dispatch 의 결과로 돌아오므로 모든 Callable 엔드포인트에 공통으로 건다
+ */
+@RestControllerAdvice
+public class SearchRejectedAdvice {
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> searchRejected(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("too many requests");
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Callable 검색 엔드포인트를 실행하는 전용 스레드 풀
+ * - 기본 applicationTaskExecutor 는 대기열이 무제한이라 과부하 때 요청이 끝없이 쌓인다
+ * - 스레드 수는 커넥션 풀 크기에 맞추고 대기열은 제한한다. 대기열이 차면 TaskRejectedException → 503 (SearchRejectedAdvice)
+ * - Executor 빈으로 등록하지 않으므로 애플리케이션 기본 executor 는 그대로 남는다
+ */
+@Component
+public class SearchTaskExecutor {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    public SearchTaskExecutor(@Value("${querydsl.search.async.pool-size:10}") int poolSize,
+                              @Value("${querydsl.search.async.queue-capacity:100}") int queueCapacity,
+                              MeterRegistry meterRegistry) {
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("member-search-");
+        executor.initialize();
+
+        Gauge.builder("member.search.async.queued", executor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("member.search.async.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public AsyncTaskExecutor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
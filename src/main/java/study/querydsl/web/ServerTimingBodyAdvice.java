@@ -0,0 +1,39 @@
+package study.querydsl.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import study.querydsl.monitor.ServerTiming;
+
+/**
+ * 메시지 컨버터가 본문을 쓰기 직전에 Server-Timing 헤더를 쓴다
+ * - 본문을 쓰기 시작하면 헤더가 커밋되므로 여기까지의 시간(serialize 제외)으로 헤더를 만든다
+ * - 직렬화 시작 시점도 여기서 기록한다. serialize 가 들어간 값은 ServerTimingFilter 가 trailer 로 보낸다
+ * - ServerTimingFilter 가 bind 한 요청(회원 엔드포인트)만 처리한다
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "querydsl.server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingBodyAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        ServerTiming timing = ServerTiming.current();
+        if (timing != null) {
+            ServerTiming.serializationStarted();
+            response.getHeaders().set(ServerTiming.HEADER, timing.toHeaderValue());
+        }
+        return body;
+    }
+}
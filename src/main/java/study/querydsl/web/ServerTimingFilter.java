@@ -0,0 +1,74 @@
+package study.querydsl.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.querydsl.monitor.ServerTiming;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 회원 엔드포인트 응답에 Server-Timing 헤더를 붙인다
+ * - 본문을 버퍼에 모으지 않는다. 헤더는 직렬화 직전에 ServerTimingBodyAdvice 가 쓴다 (serialize 제외, total 은 그 시점까지)
+ * - 클라이언트가 TE: trailers 를 보내면 본문을 다 쓴 뒤 serialize 를 포함한 값을 Server-Timing trailer 로 한 번 더 보낸다
+ * - 본문이 없는 응답(304 등)은 요청 처리가 끝날 때 헤더를 쓴다
+ * - Callable 엔드포인트는 비동기 dispatch 에서도 같은 ServerTiming 을 bind 한다
+ * - querydsl.server-timing.enabled=false 면 빈이 등록되지 않는다
+ */
+@Component
+@ConditionalOnProperty(name = "querydsl.server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Pattern MEMBER_PATHS = Pattern.compile("/v\\d+/members(/.*)?");
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !MEMBER_PATHS.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ServerTiming timing = (ServerTiming) request.getAttribute(ServerTiming.ATTRIBUTE);
+        if (timing == null) {
+            timing = new ServerTiming();
+            request.setAttribute(ServerTiming.ATTRIBUTE, timing);
+            if (acceptsTrailers(request)) {
+                ServerTiming finished = timing;
+                response.setHeader(HttpHeaders.TRAILER, ServerTiming.HEADER);
+                // 컨테이너가 본문을 다 보낸 뒤 부른다
+                response.setTrailerFields(() -> {
+                    finished.serializationFinished();
+                    return Map.of(ServerTiming.HEADER, finished.toHeaderValue());
+                });
+            }
+        }
+
+        timing.bind();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ServerTiming.unbind();
+        }
+        if (!isAsyncStarted(request) && !response.isCommitted() && !response.containsHeader(ServerTiming.HEADER)) {
+            response.setHeader(ServerTiming.HEADER, timing.toHeaderValue());
+        }
+    }
+
+    private static boolean acceptsTrailers(HttpServletRequest request) {
+        String te = request.getHeader(HttpHeaders.TE);
+        return te != null && te.toLowerCase().contains("trailers");
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import study.querydsl.monitor.ServerTiming;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Callable 작업 스레드에도 요청의 ServerTiming 을 bind 해서 작업 스레드의 SQL / 프로젝션 시간을 기록한다
+ */
+@Component
+@ConditionalOnProperty(name = "querydsl.server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingInterceptor implements CallableProcessingInterceptor {
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        ServerTiming timing = (ServerTiming) request.getAttribute(ServerTiming.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (timing != null) {
+            timing.bind();
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        ServerTiming.unbind();
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.web;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+import study.querydsl.dto.MemberField;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * fields 요청 파라미터로 고른 MemberTeamDto 필드만 직렬화한다 (@JsonFilter(MemberField.FILTER))
+ * - Jackson 컨버터(JSON/CBOR/Smile)로 쓰는 모든 응답에 필터를 채운다. fields 가 없으면 전부 쓴다
+ * - 컨버터 밖에서 쓰는 ObjectMapper 용 기본 FilterProvider 는 WebConfig 에서 등록한다
+ * - MemberTeamPage(compact)는 전용 직렬화기가 fields 를 직접 본다
+ */
+@ControllerAdvice
+public class SparseFieldsBodyAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    private static final String PARAMETER = "fields";
+    static final FilterProvider ALL_FIELDS = new SimpleFilterProvider()
+            .addFilter(MemberField.FILTER, SimpleBeanPropertyFilter.serializeAll());
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        String fields = request instanceof ServletServerHttpRequest servletRequest
+                ? servletRequest.getServletRequest().getParameter(PARAMETER) : null;
+        bodyContainer.setFilters(StringUtils.hasText(fields) ? filter(fields) : ALL_FIELDS);
+    }
+
+    /**
+     * 검색 조건 바인딩에서 이미 검증한 값이므로 모르는 이름은 무시한다
+     */
+    private static FilterProvider filter(String fields) {
+        Set<String> properties = new HashSet<>();
+        for (String name : StringUtils.commaDelimitedListToStringArray(fields)) {
+            try {
+                properties.add(MemberField.fromProperty(name).getProperty());
+            } catch (IllegalArgumentException ignored) {
+                // 회원 검색이 아닌 요청의 fields 파라미터
+            }
+        }
+        return new SimpleFilterProvider()
+                .addFilter(MemberField.FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(properties));
+    }
+}
@@ -0,0 +1,54 @@
+package study.querydsl.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import study.querydsl.dto.MemberField;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final String[] MEMBER_SEARCH_PATHS = {
+            "/v1/members", "/v2/members", "/v3/members", "/v2/members/compact", "/v3/members/compact"};
+
+    private final DataVersionEtagInterceptor dataVersionEtagInterceptor;
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final QueryCancellationInterceptor queryCancellationInterceptor;
+    private final ObjectProvider<ServerTimingInterceptor> serverTimingInterceptor;
+    private final SearchTaskExecutor searchTaskExecutor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 304 로 끝나는 요청은 동시 실행 한도를 쓰지 않도록 ETag 검사를 먼저 한다
+        registry.addInterceptor(dataVersionEtagInterceptor)
+                .addPathPatterns(MEMBER_SEARCH_PATHS);
+        registry.addInterceptor(concurrencyLimitInterceptor)
+                .addPathPatterns("/v1/members/**", "/v2/members/**", "/v3/members/**");
+    }
+
+    // fields=memberId,username → Set<MemberField> (모르는 이름이면 바인딩 오류로 400)
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(String.class, MemberField.class, MemberField::fromProperty);
+    }
+
+    // 컨버터 밖에서 쓰는 ObjectMapper 도 필터 없이 MemberTeamDto 를 직렬화할 수 있도록 기본 FilterProvider 를 등록한다
+    @Bean
+    public static Jackson2ObjectMapperBuilderCustomizer memberFieldsFilterCustomizer() {
+        return builder -> builder.filters(SparseFieldsBodyAdvice.ALL_FIELDS);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(searchTaskExecutor.getExecutor());
+        configurer.registerCallableInterceptors(queryCancellationInterceptor);
+        serverTimingInterceptor.ifAvailable(configurer::registerCallableInterceptors);
+    }
+}
@@ -0,0 +1,265 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.event.DataVersion;
+import study.querydsl.monitor.ServerTiming;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 검색 엔드포인트는 Callable 로 작업 스레드에서 조회하므로 테스트 트랜잭션(롤백) 데이터가 보이지 않는다
+ * → TransactionTemplate 으로 커밋하고 테스트가 끝나면 지운다
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate tx;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired DataVersion dataVersion;
+    @Autowired MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void before() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("compactA");
+            Team teamB = new Team("compactB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("compact" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.username like 'compact%'", Member.class)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.flush();
+            em.createQuery("select t from Team t where t.name like 'compact%'", Team.class)
+                    .getResultList()
+                    .forEach(em::remove);
+        });
+    }
+
+    @Test
+    public void compactPage() throws Exception {
+        MvcResult result = perform(get("/v3/members/compact").param("teamName", "compactA").param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn();
+        JsonNode page = objectMapper.readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertThat(page.get("content")).hasSize(20);
+        Assertions.assertThat(page.get("total").asLong()).isEqualTo(50);
+        Assertions.assertThat(page.get("totalExact").asBoolean()).isTrue();
+        Assertions.assertThat(page.get("next").asInt()).isEqualTo(1);
+        Assertions.assertThat(page.get("content").get(0).get("teamName").asText()).isEqualTo("compactA");
+    }
+
+    @Test
+    public void compactPageCbor() throws Exception {
+        MvcResult result = perform(get("/v3/members/compact").param("size", "10")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        JsonNode page = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertThat(page.get("content")).hasSize(10);
+    }
+
+    /**
+     * PageImpl 응답 vs compact JSON vs compact CBOR 크기/지연 비교
+     */
+    @Test
+    public void compareWithPageImpl() throws Exception {
+        String[][] variants = {
+                {"/v3/members", MediaType.APPLICATION_JSON_VALUE},
+                {"/v3/members/compact", MediaType.APPLICATION_JSON_VALUE},
+                {"/v3/members/compact", MediaType.APPLICATION_CBOR_VALUE},
+        };
+        int[] bytes = new int[variants.length];
+        for (int v = 0; v < variants.length; v++) {
+            int iterations = 50;
+            long start = 0;
+            for (int i = 0; i < iterations * 2; i++) {
+                if (i == iterations) {
+                    start = System.nanoTime(); // 앞 절반은 워밍업
+                }
+                bytes[v] = perform(get(variants[v][0]).param("size", "100").accept(variants[v][1]))
+                        .andReturn().getResponse().getContentAsByteArray().length;
+            }
+            long avgMicros = (System.nanoTime() - start) / iterations / 1000;
+            System.out.println(variants[v][0] + " [" + variants[v][1] + "] bytes = " + bytes[v] + ", avg = " + avgMicros + "us");
+        }
+        Assertions.assertThat(bytes[1]).isLessThan(bytes[0]);
+        Assertions.assertThat(bytes[2]).isLessThan(bytes[1]);
+    }
+
+    @Test
+    public void sparseFields() throws Exception {
+        MvcResult result = perform(get("/v1/members").param("teamName", "compactA").param("fields", "memberId,username"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode members = objectMapper.readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertThat(members).hasSize(50);
+        Assertions.assertThat(members.get(0).fieldNames()).toIterable().containsExactly("memberId", "username");
+
+        // compact 응답도 content 항목에 고른 필드만 쓴다
+        result = perform(get("/v3/members/compact").param("size", "5").param("fields", "username", "teamName"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode page = objectMapper.readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertThat(page.get("content").get(0).fieldNames()).toIterable().containsExactly("username", "teamName");
+
+        // fields 가 없으면 전부
+        result = perform(get("/v1/members").param("teamName", "compactA")).andReturn();
+        Assertions.assertThat(objectMapper.readTree(result.getResponse().getContentAsByteArray()).get(0).fieldNames())
+                .toIterable().containsExactly("memberId", "username", "age", "teamId", "teamName");
+    }
+
+    @Test
+    public void unknownFieldIsBadRequest() throws Exception {
+        perform(get("/v1/members").param("fields", "memberId,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 전체 필드 vs fields=memberId,username 응답 크기/지연 비교
+     */
+    @Test
+    public void compareSparseFields() throws Exception {
+        String[] variants = {null, "memberId,username"};
+        int[] bytes = new int[variants.length];
+        for (int v = 0; v < variants.length; v++) {
+            int iterations = 50;
+            long start = 0;
+            for (int i = 0; i < iterations * 2; i++) {
+                if (i == iterations) {
+                    start = System.nanoTime(); // 앞 절반은 워밍업
+                }
+                MockHttpServletRequestBuilder request = get("/v3/members").param("size", "100");
+                if (variants[v] != null) {
+                    request.param("fields", variants[v]);
+                }
+                bytes[v] = perform(request).andReturn().getResponse().getContentAsByteArray().length;
+            }
+            long avgMicros = (System.nanoTime() - start) / iterations / 1000;
+            System.out.println("/v3/members fields=" + variants[v] + " bytes = " + bytes[v] + ", avg = " + avgMicros + "us");
+        }
+        Assertions.assertThat(bytes[1]).isLessThan(bytes[0]);
+    }
+
+    @Test
+    public void conditionalGet() throws Exception {
+        String etag = perform(get("/v1/members").param("teamName", "compactA"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertThat(etag).isNotBlank();
+        double before = meterRegistry.counter("member.search.conditional", "result", "not_modified").count();
+
+        // 데이터 변경이 없으면 DB 조회 없이 304
+        perform(get("/v1/members").param("teamName", "compactA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        Assertions.assertThat(meterRegistry.counter("member.search.conditional", "result", "not_modified").count())
+                .isEqualTo(before + 1);
+
+        // 다른 검색 조건은 다른 ETag
+        perform(get("/v1/members").param("teamName", "compactB").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        // String.hashCode 가 같은 값("Aa", "BB")도 다른 ETag
+        String aa = perform(get("/v1/members").param("teamName", "Aa"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String bb = perform(get("/v1/members").param("teamName", "BB"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertThat(aa).isNotBlank().isNotEqualTo(bb);
+
+        // 에러 응답에는 검증자를 붙이지 않는다
+        perform(get("/v1/members").param("fields", "memberId,password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        // 데이터 버전이 올라가면 다시 조회
+        dataVersion.bump();
+        perform(get("/v1/members").param("teamName", "compactA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void serverTiming() throws Exception {
+        String serverTiming = perform(get("/v2/members").param("teamName", "compactA").param("size", "20"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(ServerTiming.HEADER);
+        System.out.println("Server-Timing: " + serverTiming);
+        // 헤더는 본문을 쓰기 전에 나가므로 serialize 는 trailer 에만 들어간다
+        Assertions.assertThat(serverTiming)
+                .contains("sql-1;dur=", "projection;dur=", "total;dur=")
+                .doesNotContain("serialize")
+                .containsPattern("sql;dur=\\d+\\.\\d{2};desc=\"\\d+ quer");
+        perform(get("/v2/members").param("teamName", "compactA").header(HttpHeaders.TE, "trailers"))
+                .andExpect(header().string(HttpHeaders.TRAILER, ServerTiming.HEADER));
+
+        // 회원 엔드포인트가 아니면 붙이지 않는다
+        Assertions.assertThat(perform(get("/teams/summary")).andReturn().getResponse().getHeader(ServerTiming.HEADER))
+                .isNull();
+    }
+
+    @Test
+    public void byUsernamesLimit() throws Exception {
+        List<String> usernames = IntStream.range(0, MemberController.MAX_USERNAMES)
+                .mapToObj(i -> "compact" + i).toList();
+        perform(post("/v1/members/by-usernames").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(usernames)))
+                .andExpect(status().isOk());
+
+        List<String> oversized = IntStream.rangeClosed(0, MemberController.MAX_USERNAMES)
+                .mapToObj(i -> "compact" + i).toList();
+        perform(post("/v1/members/by-usernames").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(oversized)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+        result.getAsyncResult();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
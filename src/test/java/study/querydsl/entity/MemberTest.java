@@ -2,10 +2,16 @@ package study.querydsl.entity;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Commit;
+import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.QueryStatDto;
+import study.querydsl.monitor.QueryStatsCollector;
 
 import java.util.List;
 
@@ -17,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.*;
 class MemberTest {
     @PersistenceContext
     private EntityManager em;
+    @Autowired
+    private QueryStatsCollector queryStatsCollector;
 
     @Test
     public void testEntity() {
@@ -45,4 +53,51 @@ class MemberTest {
             System.out.println("-> member.team = " + member.getTeam());
         }
 }
-}
\ No newline at end of file
+
+    @Test
+    @Rollback
+    public void changeTeamDoesNotLoadMembers() {
+        Team teamA = new Team("changeA");
+        Team teamB = new Team("changeB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 50; i++) {
+            em.persist(new Member("change" + i, i, teamB));
+        }
+        Member moved = new Member("moved", 10, teamA);
+        em.persist(moved);
+        em.flush();
+        em.clear();
+
+        // 관리 중인 Team(members 미로딩) 과 Team 프록시 모두 팀/회원 SELECT 없이 update 한 번만 나가야 한다
+        Member member = em.find(Member.class, moved.getId());
+        Team managed = em.find(Team.class, teamB.getId());
+        queryStatsCollector.reset();
+        member.changeTeam(managed);
+        em.flush();
+        assertOnlyUpdated("update member set age=?,team_id=?,username=? where member_id=?");
+        Assertions.assertThat(Hibernate.isInitialized(managed.getMembers())).isFalse();
+
+        Team proxy = em.getReference(Team.class, teamA.getId());
+        queryStatsCollector.reset();
+        member.changeTeam(proxy);
+        em.flush();
+        assertOnlyUpdated("update member set age=?,team_id=?,username=? where member_id=?");
+        Assertions.assertThat(Hibernate.isInitialized(proxy)).isFalse();
+
+        em.clear();
+        Assertions.assertThat(em.find(Team.class, teamA.getId()).getMembers()).extracting("username")
+                .containsExactly("moved");
+        Assertions.assertThat(em.find(Team.class, teamB.getId()).getMembers()).hasSize(50);
+    }
+
+    /**
+     * 수집기는 전역이라 백그라운드 SQL 이 섞일 수 있으므로 전체 목록 대신
+     * 기대한 update 가 있고 회원/팀 SELECT 가 없는지만 본다
+     */
+    private void assertOnlyUpdated(String updateFingerprint) {
+        Assertions.assertThat(queryStatsCollector.top(100)).extracting(QueryStatDto::getFingerprint)
+                .contains(updateFingerprint)
+                .noneMatch(sql -> sql.startsWith("select") && (sql.contains(" from member ") || sql.contains(" from team ")));
+    }
+}
@@ -0,0 +1,198 @@
+package study.querydsl.entity.id;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.NoopOptimizer;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.PooledOptimizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 스프링 없이 메모리 H2 의 시퀀스를 직접 읽는 AccessCallback 으로 확인한다
+ * - 스레드마다 커넥션 하나 (세션 하나에 해당)
+ */
+class StripedPooledLoOptimizerTest {
+
+    private static final String URL = "jdbc:h2:mem:block-id;DB_CLOSE_DELAY=-1";
+
+    private Connection admin;
+
+    @BeforeEach
+    public void before() throws SQLException {
+        admin = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = admin.createStatement()) {
+            statement.execute("create sequence seq_1 start with 1 increment by 1");
+            statement.execute("create sequence seq_50 start with 1 increment by 50");
+            statement.execute("create sequence seq_100 start with 1 increment by 100");
+            statement.execute("create table item (id bigint primary key, name varchar(255))");
+        }
+    }
+
+    @AfterEach
+    public void after() throws SQLException {
+        try (Statement statement = admin.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        admin.close();
+    }
+
+    /**
+     * 노드 두 개(optimizer 인스턴스 두 개)가 같은 시퀀스에서 블록을 받아도 id 가 겹치지 않는다
+     */
+    @Test
+    public void uniqueAcrossThreadsAndNodes() throws Exception {
+        Optimizer nodeA = new StripedPooledLoOptimizer(Long.class, 100, 4);
+        Optimizer nodeB = new StripedPooledLoOptimizer(Long.class, 100, 4);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                Optimizer optimizer = thread % 2 == 0 ? nodeA : nodeB;
+                futures.add(executor.submit(() -> {
+                    try (SequenceCallback callback = new SequenceCallback("seq_100")) {
+                        for (int i = 0; i < 5000; i++) {
+                            Assertions.assertThat(ids.add((Long) optimizer.generate(callback))).isTrue();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(ids).hasSize(8 * 5000).allMatch(id -> id >= 1);
+        Assertions.assertThat(nodeA.getLastSourceValue().makeValue().longValue() % 100).isEqualTo(1);
+    }
+
+    @Test
+    public void blockStartsAtSequenceValue() {
+        StripedPooledLoOptimizer optimizer = new StripedPooledLoOptimizer(Integer.class, 100, 1);
+        try (SequenceCallback callback = new SequenceCallback("seq_100")) {
+            Assertions.assertThat(optimizer.generate(callback)).isEqualTo(1);
+            for (int i = 2; i <= 100; i++) {
+                optimizer.generate(callback);
+            }
+            Assertions.assertThat(callback.calls).isEqualTo(1);
+            Assertions.assertThat(optimizer.generate(callback)).isEqualTo(101);
+            Assertions.assertThat(callback.calls).isEqualTo(2);
+        }
+    }
+
+    /**
+     * id 받기 + insert (autocommit) 처리량
+     * - 시퀀스 매번: increment 1, NoopOptimizer
+     * - 기존 기본값: @GeneratedValue 의 allocationSize 50, PooledOptimizer (generate 가 synchronized)
+     * - 블록: BlockSequenceGenerator 기본 블록 100, StripedPooledLoOptimizer
+     */
+    @Test
+    public void benchmark() throws Exception {
+        int inserts = 20_000;
+        for (int threads : new int[]{1, 4, 16}) {
+            long noop = insertsPerSecond(threads, inserts, "seq_1", () -> new NoopOptimizer(Long.class, 1));
+            long pooled = insertsPerSecond(threads, inserts, "seq_50", () -> new PooledOptimizer(Long.class, 50));
+            long striped = insertsPerSecond(threads, inserts, "seq_100", () -> new StripedPooledLoOptimizer(Long.class, 100));
+            System.out.println("inserts/s with " + threads + " threads: sequence per insert = " + noop
+                    + ", pooled(50) = " + pooled + ", striped pooled-lo(100) = " + striped);
+            Assertions.assertThat(striped).isGreaterThan(noop);
+        }
+    }
+
+    private long insertsPerSecond(int threads, int inserts, String sequence, Supplier<Optimizer> optimizers)
+            throws Exception {
+        Optimizer optimizer = optimizers.get();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    try (SequenceCallback callback = new SequenceCallback(sequence);
+                         PreparedStatement insert = callback.connection.prepareStatement(
+                                 "insert into item (id, name) values (?, ?)")) {
+                        for (int i = 0; i < inserts / threads; i++) {
+                            insert.setLong(1, (Long) optimizer.generate(callback));
+                            insert.setString(2, "item" + i);
+                            insert.executeUpdate();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - start;
+            return inserts * 1_000_000_000L / nanos;
+        } finally {
+            executor.shutdownNow();
+            try (Statement statement = admin.createStatement()) {
+                statement.execute("truncate table item");
+            }
+        }
+    }
+
+    private static class SequenceCallback implements AccessCallback, AutoCloseable {
+        final Connection connection;
+        final PreparedStatement nextValue;
+        int calls;
+
+        SequenceCallback(String sequence) {
+            try {
+                connection = DriverManager.getConnection(URL, "sa", "");
+                nextValue = connection.prepareStatement("select next value for " + sequence);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public IntegralDataTypeHolder getNextValue() {
+            calls++;
+            try (ResultSet rs = nextValue.executeQuery()) {
+                rs.next();
+                return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class).initialize(rs.getLong(1));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String getTenantIdentifier() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
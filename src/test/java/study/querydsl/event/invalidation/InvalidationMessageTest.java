@@ -0,0 +1,160 @@
+package study.querydsl.event.invalidation;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+class InvalidationMessageTest {
+
+    @Test
+    public void roundTrip() {
+        InvalidationMessage message = new InvalidationMessage("node-a", 300, List.of(
+                InvalidationMessage.Entry.of(Member.class, new long[]{1, 2, 3, 7, 1_000_000_000_000L}),
+                InvalidationMessage.Entry.all(Team.class)));
+
+        InvalidationMessage decoded = InvalidationMessage.decode(message.encode());
+
+        Assertions.assertThat(decoded.getOrigin()).isEqualTo("node-a");
+        Assertions.assertThat(decoded.getVersion()).isEqualTo(300);
+        Assertions.assertThat(decoded.getEntries()).hasSize(2);
+        InvalidationMessage.Entry members = decoded.getEntries().get(0);
+        Assertions.assertThat(members.entityType()).isEqualTo(Member.class);
+        Assertions.assertThat(members.ranges()).containsExactly(1, 3, 7, 7, 1_000_000_000_000L, 1_000_000_000_000L);
+        Assertions.assertThat(decoded.getEntries().get(1).all()).isTrue();
+    }
+
+    @Test
+    public void coalescesRanges() {
+        InvalidationMessage.Entry entry = InvalidationMessage.Entry.of(Member.class, new long[]{3, 3, 4, 5, 9, 10, 20});
+
+        Assertions.assertThat(entry.ranges()).containsExactly(3, 5, 9, 10, 20, 20);
+        Assertions.assertThat(entry.contains(4)).isTrue();
+        Assertions.assertThat(entry.contains(10)).isTrue();
+        Assertions.assertThat(entry.contains(6)).isFalse();
+        Assertions.assertThat(entry.contains(21)).isFalse();
+        Assertions.assertThat(InvalidationMessage.Entry.all(Member.class).contains(6)).isTrue();
+    }
+
+    /**
+     * 연속된 id 는 개수와 상관없이 몇 바이트, 흩어진 id 는 차이값 크기만큼
+     */
+    @Test
+    public void compactEncoding() {
+        long[] consecutive = LongStream.rangeClosed(50_001, 60_000).toArray();
+        byte[] dense = new InvalidationMessage("node-a", 1,
+                List.of(InvalidationMessage.Entry.of(Member.class, consecutive))).encode();
+        Assertions.assertThat(dense.length).isLessThan(20);
+
+        long[] everyThird = LongStream.range(0, 1000).map(i -> 50_000 + i * 3).toArray();
+        byte[] sparse = new InvalidationMessage("node-a", 1,
+                List.of(InvalidationMessage.Entry.of(Member.class, everyThird))).encode();
+        Assertions.assertThat(sparse.length).isLessThan(1000 * 2 + 20); // 구간마다 2바이트 (차이 3, 길이 0)
+        System.out.println("invalidation message: 10,000 consecutive ids = " + dense.length
+                + " bytes, 1,000 scattered ids = " + sparse.length + " bytes");
+    }
+
+    @Test
+    public void rejectsTruncatedMessage() {
+        byte[] bytes = InvalidationMessage.all("node-a", 1).encode();
+        Assertions.assertThatThrownBy(() -> InvalidationMessage.decode(Arrays.copyOf(bytes, bytes.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 데이터그램에 담기지 않는 메시지는 같은 version 의 전체 무효화로 보낸다
+     */
+    @Test
+    public void udpFallsBackToAllWhenTooLarge() throws InterruptedException {
+        try (UdpInvalidationBus receiver = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0), List.of());
+             UdpInvalidationBus sender = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0),
+                     List.of(receiver.getLocalAddress()))) {
+            receiver.addPeer(sender.getLocalAddress());
+            BlockingQueue<InvalidationMessage> received = new LinkedBlockingQueue<>();
+            receiver.subscribe(received::add);
+
+            long[] scattered = LongStream.range(0, 10_000).map(i -> i * 1000).toArray();
+            sender.publish(new InvalidationMessage("node-a", 5,
+                    List.of(InvalidationMessage.Entry.of(Member.class, scattered))));
+
+            InvalidationMessage message = received.poll(5, TimeUnit.SECONDS);
+            Assertions.assertThat(message).isNotNull();
+            Assertions.assertThat(message.getVersion()).isEqualTo(5);
+            Assertions.assertThat(message.getEntries()).allMatch(InvalidationMessage.Entry::all);
+        }
+    }
+
+    /**
+     * peers 에 없는 주소에서 온 데이터그램은 버리고, 모든 인터페이스에는 bind 하지 않는다
+     */
+    @Test
+    public void udpAcceptsOnlyPeers() throws InterruptedException {
+        try (UdpInvalidationBus receiver = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0), List.of());
+             UdpInvalidationBus stranger = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0),
+                     List.of(receiver.getLocalAddress()));
+             UdpInvalidationBus peer = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0),
+                     List.of(receiver.getLocalAddress()))) {
+            receiver.addPeer(peer.getLocalAddress());
+            BlockingQueue<InvalidationMessage> received = new LinkedBlockingQueue<>();
+            receiver.subscribe(received::add);
+
+            stranger.publish(InvalidationMessage.all("node-x", 1));
+            peer.publish(InvalidationMessage.all("node-b", 1));
+
+            InvalidationMessage message = received.poll(5, TimeUnit.SECONDS);
+            Assertions.assertThat(message).isNotNull();
+            Assertions.assertThat(message.getOrigin()).isEqualTo("node-b");
+            Assertions.assertThat(received.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        }
+        Assertions.assertThatThrownBy(() -> new UdpInvalidationBus(new InetSocketAddress(0), List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * publish → 다른 노드의 구독자까지 지연 (in-jvm 스레드 전달 vs loopback UDP)
+     */
+    @Test
+    public void propagationLatency() throws InterruptedException {
+        try (InJvmInvalidationBus from = new InJvmInvalidationBus("latency-test");
+             InJvmInvalidationBus to = new InJvmInvalidationBus("latency-test")) {
+            printLatency("in-jvm", from, to);
+        }
+        try (UdpInvalidationBus to = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0), List.of());
+             UdpInvalidationBus from = new UdpInvalidationBus(new InetSocketAddress("127.0.0.1", 0),
+                     List.of(to.getLocalAddress()))) {
+            to.addPeer(from.getLocalAddress());
+            printLatency("udp loopback", from, to);
+        }
+    }
+
+    private static void printLatency(String name, InvalidationBus from, InvalidationBus to) throws InterruptedException {
+        BlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+        to.subscribe(message -> arrivals.add(System.nanoTime()));
+        int iterations = 1000;
+        List<Long> latencies = new ArrayList<>(iterations);
+        for (int i = 0; i < iterations * 2; i++) {
+            InvalidationMessage message = new InvalidationMessage("node-a", i + 1,
+                    List.of(InvalidationMessage.Entry.of(Member.class, new long[]{i, i + 1, i + 5})));
+            long start = System.nanoTime();
+            from.publish(message);
+            Long arrival = arrivals.poll(5, TimeUnit.SECONDS);
+            Assertions.assertThat(arrival).as(name + " message " + i).isNotNull();
+            if (i >= iterations) { // 앞 절반은 워밍업
+                latencies.add(arrival - start);
+            }
+        }
+        latencies.sort(null);
+        System.out.println("invalidation " + name + " latency: p50 = " + latencies.get(iterations / 2) / 1000
+                + "us, p99 = " + latencies.get(iterations * 99 / 100) / 1000 + "us, max = "
+                + latencies.get(iterations - 1) / 1000 + "us");
+    }
+}
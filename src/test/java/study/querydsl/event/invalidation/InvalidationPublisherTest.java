@@ -0,0 +1,298 @@
+package study.querydsl.event.invalidation;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.BulkUpdateNotifier;
+import study.querydsl.event.DataVersion;
+import study.querydsl.repository.MemberCountIndex;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSnapshotRepository;
+import study.querydsl.repository.TeamSummaryRepository;
+import study.querydsl.repository.TeamSummaryStore;
+import study.querydsl.repository.snapshot.MemberSnapshotStore;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 이 컨텍스트가 node-a, 테스트가 만든 같은 channel 의 버스가 다른 노드(node-b) 역할을 한다
+ * - 커밋된 회원(inv*)은 테스트가 끝나면 이름으로 지운다
+ * - 지연 측정이 로그 비용에 묻히지 않도록 SQL 로그를 끈다
+ * - 다른 노드의 회원 변경은 이벤트 없이 JDBC 로 직접 쓰고 무효화 메시지만 받는 것으로 흉내 낸다
+ */
+@SpringBootTest(properties = {
+        "querydsl.invalidation.enabled=true",
+        "querydsl.invalidation.transport=in-jvm",
+        "querydsl.invalidation.channel=invalidation-test",
+        "querydsl.invalidation.node-id=node-a",
+        "querydsl.search.snapshot.enabled=true",
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn",
+        "logging.level.p6spy=warn"})
+class InvalidationPublisherTest {
+    @Autowired MemberRepository memberRepository;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate tx;
+    @Autowired BulkUpdateNotifier bulkUpdateNotifier;
+    @Autowired InvalidationPublisher invalidationPublisher;
+    @Autowired InvalidationReceiver invalidationReceiver;
+    @Autowired DataVersion dataVersion;
+    @Autowired MemberCountIndex memberCountIndex;
+    @Autowired MemberSnapshotRepository memberSnapshotRepository;
+    @Autowired MemberSnapshotStore memberSnapshotStore;
+    @Autowired TeamSummaryRepository teamSummaryRepository;
+    @Autowired TeamSummaryStore teamSummaryStore;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+
+    private InJvmInvalidationBus remote;
+    private final BlockingQueue<InvalidationMessage> received = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void before() {
+        remote = new InJvmInvalidationBus("invalidation-test");
+        remote.subscribe(received::add);
+    }
+
+    @AfterEach
+    public void after() {
+        remote.close();
+        tx.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("inv")).execute();
+            bulkUpdateNotifier.afterCommit(Member.class);
+        });
+    }
+
+    @Test
+    public void publishesCommittedChanges() throws InterruptedException {
+        Member saved = tx.execute(status -> memberRepository.save(new Member("inv1", 10)));
+
+        InvalidationMessage.Entry entry = awaitMemberEntry(saved.getId());
+        Assertions.assertThat(entry.all()).isFalse();
+    }
+
+    @Test
+    public void rolledBackChangesAreNotPublished() {
+        invalidationPublisher.flush();
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("inv-rollback", 10));
+            status.setRollbackOnly();
+        });
+        Assertions.assertThat(invalidationPublisher.flush()).isZero();
+    }
+
+    /**
+     * 한 트랜잭션에서 저장한 회원들은 커밋 후 이벤트가 flush-interval 안에 들어온 만큼 한 메시지로 묶이고, 연속 id 는 구간 하나가 된다
+     */
+    @Test
+    public void batchesAndCoalesces() throws InterruptedException {
+        List<Long> ids = tx.execute(status -> {
+            List<Long> saved = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                saved.add(memberRepository.save(new Member("inv" + i, i)).getId());
+            }
+            return saved;
+        });
+
+        List<InvalidationMessage.Entry> entries = new ArrayList<>();
+        while (!ids.stream().allMatch(id -> entries.stream().anyMatch(entry -> entry.contains(id)))) {
+            entries.add(awaitMemberEntry(ids.stream()
+                    .filter(id -> entries.stream().noneMatch(entry -> entry.contains(id)))
+                    .findFirst().orElseThrow()));
+        }
+        int ranges = entries.stream().mapToInt(entry -> entry.ranges().length / 2).sum();
+        System.out.println("invalidation 200 inserts in one transaction: messages = " + entries.size() + ", ranges = " + ranges);
+        Assertions.assertThat(entries.size()).isLessThan(ids.size() / 10);
+        Assertions.assertThat(ranges).isLessThan(ids.size() / 10);
+    }
+
+    @Test
+    public void bulkUpdatePublishesWholeType() throws InterruptedException {
+        tx.executeWithoutResult(status -> {
+            queryFactory.update(member).set(member.age, 1).where(member.username.eq("inv-none")).execute();
+            bulkUpdateNotifier.afterCommit(Member.class);
+        });
+
+        InvalidationMessage.Entry entry = awaitMemberEntry(Long.MAX_VALUE);
+        Assertions.assertThat(entry.all()).isTrue();
+    }
+
+    /**
+     * 다른 노드의 메시지는 이 노드 리스너의 onRemoteInvalidation 으로 간다 (DataVersion 은 entry 마다 올라간다)
+     */
+    @Test
+    public void remoteMessageInvalidatesLocalCaches() throws InterruptedException {
+        long before = dataVersion.current();
+        remote.publish(new InvalidationMessage("node-b", 1,
+                List.of(InvalidationMessage.Entry.of(Member.class, new long[]{1, 2}))));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dataVersion.current() == before && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertThat(dataVersion.current()).isGreaterThan(before);
+    }
+
+    @Test
+    public void versionGapInvalidatesEverything() {
+        InvalidationMessage.Entry one = InvalidationMessage.Entry.of(Member.class, new long[]{1});
+        invalidationReceiver.receive(new InvalidationMessage("node-c", 1, List.of(one)));
+
+        invalidationReceiver.flushPending();
+
+        long before = dataVersion.current();
+        invalidationReceiver.receive(new InvalidationMessage("node-c", 2, List.of(one)));
+        invalidationReceiver.flushPending();
+        Assertions.assertThat(dataVersion.current()).isEqualTo(before + 1);
+
+        before = dataVersion.current();
+        invalidationReceiver.receive(new InvalidationMessage("node-c", 4, List.of(one))); // 3 이 빠졌다
+        Assertions.assertThat(dataVersion.current()).isEqualTo(before + 2); // Member, Team 전체
+    }
+
+    /**
+     * 다른 노드가 id 무효화를 연달아 보내도 remote-debounce 동안 모아 한 번만 반영한다 (메시지마다 다시 만들지 않는다)
+     */
+    @Test
+    public void remoteIdMessagesAreDebounced() throws InterruptedException {
+        invalidationReceiver.flushPending();
+        long before = dataVersion.current();
+        int messages = 50;
+        for (int i = 1; i <= messages; i++) {
+            invalidationReceiver.receive(new InvalidationMessage("node-d", i,
+                    List.of(InvalidationMessage.Entry.of(Member.class, new long[]{i}))));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dataVersion.current() == before && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertThat(dataVersion.current() - before).isBetween(1L, 2L);
+    }
+
+    /**
+     * 다른 노드의 id entry 는 그 회원/팀만 다시 읽어 반영하고 인덱스/스냅샷/팀 집계를 stale 로 만들지 않는다
+     */
+    @Test
+    public void remoteIdEntryReloadsOnlyThoseRows() {
+        Long teamId = tx.execute(status -> {
+            Team remoteTeam = new Team("invRemoteTeam");
+            em.persist(remoteTeam);
+            return remoteTeam.getId();
+        });
+        memberCountIndex.rebuild();
+        memberSnapshotRepository.rebuild();
+        teamSummaryRepository.rebuild();
+        long memberId = 900_000_001L;
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("invRemoteTeam");
+        try {
+            // 다른 노드가 가입시킨 회원
+            jdbcTemplate.update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+                    memberId, "inv-remote", 33, teamId);
+            receiveRemote(1, memberId, teamId);
+
+            assertReady();
+            Assertions.assertThat(memberCountIndex.count(condition)).hasValue(1);
+            Assertions.assertThat(memberSnapshotRepository.search(condition)).extracting("username")
+                    .containsExactly("inv-remote");
+            Assertions.assertThat(teamSummaryStore.findAll())
+                    .filteredOn(summary -> summary.getTeamId().equals(teamId))
+                    .singleElement()
+                    .satisfies(summary -> {
+                        Assertions.assertThat(summary.getMemberCount()).isEqualTo(1);
+                        Assertions.assertThat(summary.getMaxAge()).isEqualTo(33);
+                    });
+
+            // 다른 노드가 탈퇴시킨 회원
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+            receiveRemote(2, memberId, teamId);
+
+            assertReady();
+            Assertions.assertThat(memberCountIndex.count(condition)).hasValue(0);
+            Assertions.assertThat(memberSnapshotRepository.search(condition)).isEmpty();
+            Assertions.assertThat(teamSummaryStore.findAll())
+                    .filteredOn(summary -> summary.getTeamId().equals(teamId))
+                    .singleElement()
+                    .satisfies(summary -> Assertions.assertThat(summary.getMemberCount()).isZero());
+        } finally {
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+            tx.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+        }
+    }
+
+    @Test
+    public void ignoresOwnMessages() {
+        long before = dataVersion.current();
+        invalidationReceiver.receive(new InvalidationMessage("node-a", 100,
+                List.of(InvalidationMessage.Entry.all(Member.class))));
+        Assertions.assertThat(dataVersion.current()).isEqualTo(before);
+    }
+
+    /**
+     * 커밋 → 다른 노드가 받을 때까지 지연 (flush-interval 5ms 포함)
+     */
+    @Test
+    public void commitToRemoteLatency() throws InterruptedException {
+        int iterations = 50;
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < iterations * 2; i++) {
+            String username = "inv-latency" + i;
+            long start = System.nanoTime();
+            Member saved = tx.execute(status -> memberRepository.save(new Member(username, 1)));
+            awaitMemberEntry(saved.getId());
+            if (i >= iterations) { // 앞 절반은 워밍업
+                latencies.add(System.nanoTime() - start);
+            }
+        }
+        latencies.sort(null);
+        System.out.println("invalidation commit -> remote latency: p50 = " + latencies.get(iterations / 2) / 1000
+                + "us, max = " + latencies.get(iterations - 1) / 1000 + "us");
+    }
+
+    private void receiveRemote(long version, long memberId, long teamId) {
+        invalidationReceiver.receive(new InvalidationMessage("node-e", version, List.of(
+                InvalidationMessage.Entry.of(Member.class, new long[]{memberId}),
+                InvalidationMessage.Entry.of(Team.class, new long[]{teamId}))));
+        invalidationReceiver.flushPending();
+    }
+
+    private void assertReady() {
+        Assertions.assertThat(memberCountIndex.getStatus()).isEqualTo(LoadState.Status.READY);
+        Assertions.assertThat(memberSnapshotStore.getStatus()).isEqualTo(LoadState.Status.READY);
+        Assertions.assertThat(teamSummaryStore.getStatus()).isEqualTo(LoadState.Status.READY);
+    }
+
+    private InvalidationMessage.Entry awaitMemberEntry(long memberId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            InvalidationMessage message = received.poll(100, TimeUnit.MILLISECONDS);
+            if (message == null || !message.getOrigin().equals("node-a")) {
+                continue;
+            }
+            for (InvalidationMessage.Entry entry : message.getEntries()) {
+                if (entry.entityType() == Member.class && entry.contains(memberId)) {
+                    return entry;
+                }
+            }
+        }
+        throw new AssertionError("no invalidation for member " + memberId);
+    }
+}
@@ -0,0 +1,72 @@
+package study.querydsl.monitor;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.QueryStatDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+
+@SpringBootTest
+@Transactional
+class QueryStatsCollectorTest {
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired QueryStatsCollector queryStatsCollector;
+
+    @Test
+    public void fingerprint() {
+        Assertions.assertThat(QueryFingerprint.of("select m1_0.member_id from member m1_0 where m1_0.username='member1'  and m1_0.age>=10"))
+                .isEqualTo("select m1_0.member_id from member m1_0 where m1_0.username=? and m1_0.age>=?");
+        Assertions.assertThat(QueryFingerprint.of("select * from member where member_id in (?, ?,?)"))
+                .isEqualTo(QueryFingerprint.of("select * from member where member_id in (?)"));
+    }
+
+    /**
+     * MemberTest 가 커밋해 남긴 teamA/member1 과 겹치지 않는 이름을 쓴다 (rows 가 이 테스트의 데이터만 세도록)
+     */
+    @Test
+    public void collectPerShape() {
+        Team teamA = new Team("statsTeam");
+        em.persist(teamA);
+        em.persist(new Member("statsMember1", 10, teamA));
+        em.persist(new Member("statsMember2", 20, teamA));
+        em.flush();
+        queryStatsCollector.reset();
+
+        for (int age : new int[]{5, 15}) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("statsTeam");
+            condition.setAgeGoe(age);
+            memberRepository.search(condition);
+        }
+        MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUsername("statsMember1");
+        memberRepository.search(byName);
+
+        List<QueryStatDto> top = searchStats();
+        Assertions.assertThat(top).hasSize(2);
+        QueryStatDto teamAndAge = top.stream().filter(stat -> stat.getCount() == 2).findFirst().orElseThrow();
+        Assertions.assertThat(teamAndAge.getFingerprint()).doesNotContain("statsteam").contains("?");
+        Assertions.assertThat(teamAndAge.getRows()).isEqualTo(3);
+
+        queryStatsCollector.reset();
+        Assertions.assertThat(searchStats()).isEmpty();
+    }
+
+    /**
+     * 수집기는 전역이라 백그라운드 SQL 이 섞일 수 있으므로 이 테스트의 검색 쿼리(member + team 조인)만 본다
+     */
+    private List<QueryStatDto> searchStats() {
+        return queryStatsCollector.top(100).stream()
+                .filter(stat -> stat.getFingerprint().contains("from member m1_0 left join team"))
+                .toList();
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.monitor;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.read.ListAppender;
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import study.querydsl.dto.RecentSqlDto;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 스프링 없이 sql 로거에 appender 를 직접 붙여 확인한다
+ */
+class SqlLogListenerTest {
+
+    private static final String SQL = "select m1_0.member_id,m1_0.age,m1_0.team_id,m1_0.username from member m1_0 where m1_0.username=?";
+
+    private final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    private final Logger sqlLogger = context.getLogger("sql");
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+    @BeforeEach
+    public void before() {
+        events.setContext(context);
+        events.start();
+        sqlLogger.setLevel(Level.INFO);
+        sqlLogger.setAdditive(false);
+        sqlLogger.addAppender(events);
+    }
+
+    @AfterEach
+    public void after() {
+        sqlLogger.detachAndStopAllAppenders();
+        sqlLogger.setLevel(null);
+        sqlLogger.setAdditive(true);
+    }
+
+    @Test
+    public void samplesFastAndAlwaysLogsSlow() {
+        SqlLogListener listener = new SqlLogListener(5, Duration.ofMillis(100), 8, Duration.ofSeconds(10));
+        for (int i = 0; i < 100; i++) {
+            listener.onAfterAnyExecute(statement(SQL), TimeUnit.MILLISECONDS.toNanos(1), null);
+        }
+        // 1초 경계에 걸치면 두 구간 몫까지 나갈 수 있다
+        Assertions.assertThat(events.list).hasSizeBetween(1, 10).allMatch(event -> event.getLevel() == Level.INFO);
+
+        events.list.clear();
+        for (int i = 0; i < 3; i++) {
+            listener.onAfterAnyExecute(statement(SQL), TimeUnit.MILLISECONDS.toNanos(150), null);
+        }
+        Assertions.assertThat(events.list).hasSize(3)
+                .allMatch(event -> event.getLevel() == Level.WARN && event.getFormattedMessage().startsWith("slow 150ms"));
+    }
+
+    @Test
+    public void dumpsRecentOnError() {
+        SqlLogListener listener = new SqlLogListener(0, Duration.ofSeconds(1), 8, Duration.ofSeconds(10));
+        for (int i = 0; i < 20; i++) {
+            listener.onAfterAnyExecute(statement("select " + i), 1000, null);
+        }
+        Assertions.assertThat(events.list).isEmpty(); // 샘플링 0, 느린 SQL 없음
+        Assertions.assertThat(listener.recent()).extracting(RecentSqlDto::getSql)
+                .containsExactly("select 12", "select 13", "select 14", "select 15",
+                        "select 16", "select 17", "select 18", "select 19");
+
+        listener.onAfterAnyExecute(statement("select broken"), 1000, new SQLException("syntax error"));
+        Assertions.assertThat(events.list).extracting(ILoggingEvent::getFormattedMessage)
+                .first().asString().startsWith("failed 0ms select broken - syntax error");
+        Assertions.assertThat(events.list).extracting(ILoggingEvent::getFormattedMessage)
+                .contains("recent sql dump (sql error): 8 statements")
+                .last().asString().endsWith("FAILED select broken");
+
+        // dump-interval 안의 두 번째 오류는 덤프하지 않는다
+        events.list.clear();
+        listener.onAfterAnyExecute(statement("select broken"), 1000, new SQLException("syntax error"));
+        Assertions.assertThat(events.list).hasSize(1);
+    }
+
+    /**
+     * 기존: 모든 SQL 을 p6spy + Hibernate SQL 로거로 동기 파일 쓰기 (콘솔 대신 파일)
+     * 운영: SqlLogListener(초당 10건 샘플 + 200ms 이상) → AsyncAppender → 같은 파일 appender
+     */
+    @Test
+    public void benchmark(@TempDir Path dir) {
+        int iterations = 200_000;
+        StatementInformation statement = statement(SQL);
+
+        Logger syncLogger = context.getLogger("bench.sync");
+        syncLogger.setAdditive(false);
+        syncLogger.setLevel(Level.DEBUG);
+        syncLogger.addAppender(fileAppender(dir.resolve("sync.log")));
+        long syncNanos = measure(iterations, () -> {
+            syncLogger.info("[ {}ms ] {}", 1, statement.getSqlWithValues());
+            syncLogger.debug(statement.getSql());
+        });
+        syncLogger.detachAndStopAllAppenders();
+
+        sqlLogger.detachAndStopAllAppenders();
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(1024);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock(true);
+        async.addAppender(fileAppender(dir.resolve("async.log")));
+        async.start();
+        sqlLogger.addAppender(async);
+        SqlLogListener listener = new SqlLogListener(10, Duration.ofMillis(200), 512, Duration.ofSeconds(10));
+        long asyncNanos = measure(iterations, () ->
+                listener.onAfterAnyExecute(statement, TimeUnit.MILLISECONDS.toNanos(1), null));
+
+        System.out.println("sql log per statement: sync = " + syncNanos + "ns, async sampled = " + asyncNanos + "ns");
+        Assertions.assertThat(asyncNanos).isLessThan(syncNanos);
+    }
+
+    private Appender<ILoggingEvent> fileAppender(Path file) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %-5level %logger{36} - %msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    private static long measure(int iterations, Runnable op) {
+        for (int i = 0; i < iterations / 10; i++) {
+            op.run(); // 워밍업
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static StatementInformation statement(String sql) {
+        StatementInformation statement = new StatementInformation(ConnectionInformation.fromTestConnection(null));
+        statement.setStatementQuery(sql);
+        return statement;
+    }
+}
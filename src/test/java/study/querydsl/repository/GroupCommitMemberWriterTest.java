@@ -0,0 +1,135 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.event.BulkUpdateNotifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 쓰기 스레드가 커밋하므로 테스트 트랜잭션 없이 실행하고 이름(gc*)으로 정리한다
+ */
+@SpringBootTest(properties = "querydsl.group-commit.enabled=true")
+class GroupCommitMemberWriterTest {
+    @Autowired GroupCommitMemberWriter groupCommitMemberWriter;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate tx;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired BulkUpdateNotifier bulkUpdateNotifier;
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("gc")).execute();
+            bulkUpdateNotifier.afterCommit(Member.class);
+        });
+    }
+
+    @Test
+    public void futureCompletesAfterCommit() throws Exception {
+        List<CompletableFuture<Integer>> visible = new ArrayList<>();
+        run(16, 200, i -> {
+            CompletableFuture<Integer> rows = groupCommitMemberWriter.save(new Member("gc" + i, i % 50))
+                    // 다른 커넥션에서 바로 보이면 커밋된 것
+                    .thenApply(id -> jdbcTemplate.queryForObject(
+                            "select count(*) from member where member_id = ?", Integer.class, id));
+            synchronized (visible) {
+                visible.add(rows);
+            }
+        });
+
+        Assertions.assertThat(visible).hasSize(200);
+        for (CompletableFuture<Integer> rows : visible) {
+            Assertions.assertThat(rows.get()).isEqualTo(1);
+        }
+        Assertions.assertThat(queryFactory.select(member.count()).from(member)
+                .where(member.username.startsWith("gc")).fetchOne()).isEqualTo(200);
+    }
+
+    @Test
+    public void failedSaveDoesNotFailOthers() throws Exception {
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // username 컬럼(varchar 255)보다 길면 insert 가 실패한다
+            futures.add(groupCommitMemberWriter.save(new Member(i == 5 ? "gc" + "x".repeat(300) : "gcOk" + i, i)));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            if (i == 5) {
+                Assertions.assertThatThrownBy(futures.get(i)::get).isInstanceOf(ExecutionException.class);
+            } else {
+                Assertions.assertThat(futures.get(i).get()).isNotNull();
+            }
+        }
+        Assertions.assertThat(queryFactory.select(member.count()).from(member)
+                .where(member.username.startsWith("gcOk")).fetchOne()).isEqualTo(9);
+    }
+
+    /**
+     * 동시 쓰기 수별 초당 저장 수: 건마다 트랜잭션 vs 그룹 커밋
+     */
+    @Test
+    public void benchmark() throws Exception {
+        int saves = 1024;
+        long individual256 = 0;
+        long grouped256 = 0;
+        for (int writers : new int[]{1, 4, 16, 64, 256}) {
+            long individual = savesPerSecond(writers, saves, i -> tx.executeWithoutResult(
+                    status -> memberJpaRepository.save(new Member("gcTx" + i, i % 50))));
+            long grouped = savesPerSecond(writers, saves, i -> groupCommitMemberWriter.save(
+                    new Member("gcGroup" + i, i % 50)).join());
+            System.out.println(writers + " writers: individual commits = " + individual
+                    + "/s, group commit = " + grouped + "/s");
+            individual256 = individual;
+            grouped256 = grouped;
+            cleanUp();
+        }
+        Assertions.assertThat(grouped256).isGreaterThan(individual256);
+    }
+
+    private long savesPerSecond(int writers, int saves, IntConsumer save) throws Exception {
+        long start = System.nanoTime();
+        run(writers, saves, save);
+        return saves * 1_000_000_000L / (System.nanoTime() - start);
+    }
+
+    /**
+     * writers 개 스레드가 0 ~ saves-1 을 나눠서 실행한다
+     */
+    private static void run(int writers, int saves, IntConsumer save) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int first = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < saves; i += writers) {
+                        save.accept(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
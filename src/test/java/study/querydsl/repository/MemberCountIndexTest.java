@@ -0,0 +1,146 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 인덱스는 커밋 이벤트로 갱신되므로 TransactionTemplate 으로 커밋하고 정리한다
+ */
+@SpringBootTest
+class MemberCountIndexTest {
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate tx;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired MemberCountIndex memberCountIndex;
+
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<Long> memberIds = new ArrayList<>();
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            memberIds.forEach(id -> em.remove(em.find(Member.class, id)));
+            em.flush();
+            teamIds.forEach(id -> em.remove(em.find(Team.class, id)));
+        });
+    }
+
+    @Test
+    public void countsMatchDatabase() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("countA");
+            Team teamB = new Team("countB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamIds.add(teamA.getId());
+            teamIds.add(teamB.getId());
+            for (int i = 0; i < 3000; i++) {
+                Team team = i % 3 == 0 ? teamA : i % 3 == 1 ? teamB : null;
+                persist(new Member("count" + i, i % 70, team));
+            }
+        });
+        memberCountIndex.rebuild();
+        assertSameAsDatabase();
+
+        // 팀 이동 / 나이 변경 / 팀 이름 변경 / 삭제 → 커밋 이벤트로 반영
+        tx.executeWithoutResult(status -> {
+            Member moved = em.find(Member.class, memberIds.get(0));
+            moved.changeTeam(em.find(Team.class, teamIds.get(1)));
+            moved.setAge(69);
+            em.find(Team.class, teamIds.get(0)).setName("countRenamed");
+            em.remove(em.find(Member.class, memberIds.remove(1)));
+            persist(new Member("countNew", 33, em.find(Team.class, teamIds.get(1))));
+        });
+        assertSameAsDatabase();
+
+        // 쓰기 트랜잭션 안에서는 커밋 전 변경이 인덱스에 없으므로 count 쿼리로 넘긴다
+        tx.executeWithoutResult(status ->
+                Assertions.assertThat(memberCountIndex.count(condition("countB", null, null))).isEmpty());
+    }
+
+    @Test
+    public void benchmark() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("countBenchA");
+            em.persist(teamA);
+            teamIds.add(teamA.getId());
+            for (int i = 0; i < 5000; i++) {
+                persist(new Member("countBench" + i, i % 100, i % 2 == 0 ? teamA : null));
+            }
+        });
+        memberCountIndex.rebuild();
+
+        MemberSearchCondition condition = condition("countBenchA", 20, 60);
+        int rounds = 500;
+        for (int i = 0; i < 50; i++) {
+            databaseCount(condition);
+            memberCountIndex.count(condition);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            databaseCount(condition);
+        }
+        long database = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            memberCountIndex.count(condition);
+        }
+        long index = System.nanoTime() - start;
+        System.out.println("count(teamName, age range) database=" + database / rounds / 1000 + "us"
+                + " index=" + index / rounds / 1000 + "us");
+    }
+
+    private void assertSameAsDatabase() {
+        List<MemberSearchCondition> conditions = List.of(
+                condition(null, null, null),
+                condition("countA", null, null),
+                condition("countB", 10, 30),
+                condition("countRenamed", null, 40),
+                condition("countMissing", null, null),
+                condition(null, 50, null),
+                condition(null, 40, 20));
+        for (MemberSearchCondition condition : conditions) {
+            Assertions.assertThat(memberCountIndex.count(condition))
+                    .as(condition.toString())
+                    .hasValue(databaseCount(condition));
+        }
+    }
+
+    private long databaseCount(MemberSearchCondition condition) {
+        return queryFactory.select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(condition.getTeamName() != null ? team.name.eq(condition.getTeamName()) : null,
+                        condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                        condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null)
+                .fetchOne();
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+
+    private void persist(Member member) {
+        em.persist(member);
+        memberIds.add(member.getId());
+    }
+}
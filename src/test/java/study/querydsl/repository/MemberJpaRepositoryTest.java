@@ -12,7 +12,10 @@ import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -74,5 +77,39 @@ class MemberJpaRepositoryTest {
 
         Assertions.assertThat(result).extracting("username").containsExactly("member4");
     }
+    // username 목록 일괄 조회 vs username 별 루프 조회
+    @Test
+    public void findByUsernamesTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("bulk" + i, i % 100, teamA));
+            usernames.add("bulk" + i);
+        }
+        usernames.add("noSuchMember");
+        em.flush();
+        em.clear();
+
+        long start = System.nanoTime();
+        Map<String, List<Member>> loop = new HashMap<>();
+        for (String username : usernames) {
+            List<Member> found = memberJpaRepository.findByUsername_QueryDSL(username);
+            if (!found.isEmpty()) {
+                loop.put(username, found);
+            }
+        }
+        long loopMicros = (System.nanoTime() - start) / 1000;
+
+        em.clear();
+        start = System.nanoTime();
+        Map<String, List<Member>> bulk = memberJpaRepository.findByUsernames(usernames);
+        long bulkMicros = (System.nanoTime() - start) / 1000;
+        System.out.println("per-name loop = " + loopMicros + "us, findByUsernames = " + bulkMicros + "us");
+
+        Assertions.assertThat(bulk).hasSize(1000).doesNotContainKey("noSuchMember");
+        Assertions.assertThat(bulk.keySet()).isEqualTo(loop.keySet());
+        Assertions.assertThat(bulk.get("bulk7")).extracting("age").containsExactly(7);
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.context.transaction.BeforeTransaction;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberRankDto;
+import study.querydsl.dto.MemberTeamAvgDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 윈도 함수 쿼리와 같은 결과를 내는 상관 서브쿼리(JPAExpressions) 버전을 비교한다
+ * - SQLQueryFactory 는 JPA 트랜잭션의 커넥션을 같이 쓰므로 flush 한 데이터가 보인다
+ */
+@SpringBootTest
+@Transactional
+class MemberRankingRepositoryTest {
+    @Autowired EntityManager em;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired MemberRankingRepository memberRankingRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private final QMember other = new QMember("other");
+
+    /**
+     * H2 는 데이터가 안 바뀌면 같은 쿼리의 이전 결과를 재사용한다 → 반복 측정이 0ms 가 되지 않게 끈다
+     * SET 은 암묵적으로 커밋하므로 테스트 트랜잭션 밖에서 실행한다
+     */
+    @BeforeTransaction
+    public void disableResultReuse() {
+        jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS FALSE");
+    }
+
+    @AfterTransaction
+    public void enableResultReuse() {
+        jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS TRUE");
+    }
+
+    @BeforeEach
+    public void before() {
+        for (int t = 0; t < 10; t++) {
+            Team team = new Team("rank" + t);
+            em.persist(team);
+            for (int i = 0; i < 300; i++) {
+                em.persist(new Member("rank" + t + "-" + i, (i * 7 + t) % 60, team)); // 같은 나이가 여러 명
+            }
+        }
+        em.persist(new Member("rankNoTeam", 99));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void oldestPerTeamMatchesSubquery() {
+        List<MemberRankDto> windowed = memberRankingRepository.findOldestPerTeam(3);
+
+        Assertions.assertThat(windowed).extracting(MemberRankDto::getMemberId)
+                .containsExactlyInAnyOrderElementsOf(oldestPerTeamBySubquery(3));
+        Assertions.assertThat(windowed).filteredOn(dto -> dto.getTeamName().equals("rank0"))
+                .extracting(MemberRankDto::getAge, MemberRankDto::getRank)
+                .containsExactly(Assertions.tuple(59, 1L), Assertions.tuple(59, 2L), Assertions.tuple(59, 3L));
+        Assertions.assertThat(windowed).extracting(MemberRankDto::getUsername).doesNotContain("rankNoTeam");
+    }
+
+    @Test
+    public void rankWithinTeamMatchesSubquery() {
+        Map<Long, Long> windowed = memberRankingRepository.rankWithinTeam().stream()
+                .collect(Collectors.toMap(MemberRankDto::getMemberId, MemberRankDto::getRank));
+
+        Assertions.assertThat(windowed).isEqualTo(rankBySubquery());
+    }
+
+    @Test
+    public void aboveTeamAverageMatchesSubquery() {
+        List<MemberTeamAvgDto> windowed = memberRankingRepository.findAboveTeamAverage();
+
+        Assertions.assertThat(windowed).extracting(MemberTeamAvgDto::getMemberId)
+                .containsExactlyInAnyOrderElementsOf(aboveTeamAverageBySubquery());
+        Assertions.assertThat(windowed).allMatch(dto -> dto.getAge() > dto.getTeamAvgAge());
+    }
+
+    /**
+     * 팀 10개 × 300명 에서 윈도 함수 vs 상관 서브쿼리
+     */
+    @Test
+    public void benchmark() {
+        long windowTopN = measure(() -> memberRankingRepository.findOldestPerTeam(3));
+        long subqueryTopN = measure(() -> oldestPerTeamBySubquery(3));
+        long windowRank = measure(() -> memberRankingRepository.rankWithinTeam());
+        long subqueryRank = measure(this::rankBySubquery);
+        long windowAvg = measure(() -> memberRankingRepository.findAboveTeamAverage());
+        long subqueryAvg = measure(this::aboveTeamAverageBySubquery);
+
+        System.out.println("top 3 per team: window = " + windowTopN + "us, subquery = " + subqueryTopN + "us");
+        System.out.println("rank within team: window = " + windowRank + "us, subquery = " + subqueryRank + "us");
+        System.out.println("above team average: window = " + windowAvg + "us, subquery = " + subqueryAvg + "us");
+        Assertions.assertThat(windowTopN).isLessThan(subqueryTopN);
+        Assertions.assertThat(windowRank).isLessThan(subqueryRank);
+        Assertions.assertThat(windowAvg).isLessThan(subqueryAvg);
+    }
+
+    // 나보다 나이가 많거나, 나이가 같고 id 가 작은 팀원이 limit 명 미만
+    private List<Long> oldestPerTeamBySubquery(int limit) {
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .where(member.team.isNotNull(),
+                        JPAExpressions.select(other.count())
+                                .from(other)
+                                .where(other.team.eq(member.team),
+                                        other.age.gt(member.age)
+                                                .or(other.age.eq(member.age).and(other.id.lt(member.id))))
+                                .lt((long) limit))
+                .fetch();
+    }
+
+    // 순위 = 나보다 나이가 많은 팀원 수 + 1
+    private Map<Long, Long> rankBySubquery() {
+        List<Tuple> rows = queryFactory
+                .select(member.id,
+                        JPAExpressions.select(other.count().add(1L))
+                                .from(other)
+                                .where(other.team.eq(member.team), other.age.gt(member.age)))
+                .from(member)
+                .where(member.team.isNotNull())
+                .fetch();
+        return rows.stream().collect(Collectors.toMap(row -> row.get(0, Long.class), row -> row.get(1, Long.class)));
+    }
+
+    private List<Long> aboveTeamAverageBySubquery() {
+        return queryFactory
+                .select(member.id)
+                .from(member)
+                .where(member.team.isNotNull(),
+                        member.age.doubleValue().gt(JPAExpressions.select(other.age.avg())
+                                .from(other)
+                                .where(other.team.eq(member.team))))
+                .fetch();
+    }
+
+    private static long measure(Supplier<?> query) {
+        int iterations = 3;
+        query.get(); // 워밍업
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / iterations / 1000;
+    }
+}
@@ -8,18 +8,25 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QueryStatDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryStatsCollector;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 
 
 @SpringBootTest @Transactional
 class MemberRepositoryTest {
     @Autowired EntityManager em;
     @Autowired MemberRepository memberRepository;
+    @Autowired QueryStatsCollector queryStatsCollector;
     @Test public void basicTest() { Member member = new Member("member1", 10);
         memberRepository.save(member);
         Member findMember = memberRepository.findById(member.getId()).get();
@@ -72,4 +79,89 @@ class MemberRepositoryTest {
 
         Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
-}
\ No newline at end of file
+    @Test
+    public void findByUsernames() {
+        memberRepository.save(new Member("byName1", 10));
+        memberRepository.save(new Member("byName1", 11));
+        memberRepository.save(new Member("byName2", 20));
+        memberRepository.save(new Member("byName3", 30));
+
+        Map<String, List<Member>> result = memberRepository.findByUsernames(List.of("byName1", "byName2", "byName9"));
+        Assertions.assertThat(result).containsOnlyKeys("byName1", "byName2");
+        Assertions.assertThat(result.get("byName1")).extracting("age").containsExactlyInAnyOrder(10, 11);
+    }
+    @Test
+    public void reassignTeam() {
+        Team teamA = new Team("reassignA");
+        Team teamB = new Team("reassignB");
+        em.persist(teamA);
+        em.persist(teamB);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("reassign" + i, i, teamA);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        queryStatsCollector.reset();
+
+        long updated = memberRepository.reassignTeam(ids.subList(0, 7), teamB.getId());
+
+        // 회원/팀을 읽지 않고 update 한 번으로 끝나야 한다
+        Assertions.assertThat(updated).isEqualTo(7);
+        assertOnlyUpdated("update member set team_id=? where member_id in (?+)");
+        Assertions.assertThat(em.find(Team.class, teamA.getId()).getMembers()).hasSize(3);
+        Assertions.assertThat(em.find(Team.class, teamB.getId()).getMembers()).hasSize(7);
+
+        Assertions.assertThat(memberRepository.reassignTeam(ids.subList(0, 2), null)).isEqualTo(2);
+        Assertions.assertThat(em.find(Member.class, ids.get(0)).getTeam()).isNull();
+    }
+
+    /**
+     * memberId, username 만 고르면 그 두 컬럼만 select 하고 team 조인도 하지 않는다
+     */
+    @Test
+    public void searchSparseFields() {
+        // 다른 테스트가 남긴 회원과 겹치지 않도록 이 테스트만 쓰는 나이 구간으로 거른다 (팀 조건을 쓰면 조인이 생긴다)
+        Team sparseTeam = new Team("sparseTeam");
+        em.persist(sparseTeam);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("sparse" + i, 1010 + i, sparseTeam));
+        }
+        em.flush();
+        queryStatsCollector.reset();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(1012);
+        condition.setAgeLoe(1014);
+        condition.setFields(EnumSet.of(MemberField.MEMBER_ID, MemberField.USERNAME));
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(result.getContent()).extracting("username").containsExactly("sparse2", "sparse3");
+        Assertions.assertThat(result.getContent()).extracting("memberId").doesNotContainNull();
+        Assertions.assertThat(result.getContent()).extracting("teamName").containsOnlyNulls();
+        Assertions.assertThat(queryStatsCollector.top(10)).extracting(QueryStatDto::getFingerprint)
+                .allMatch(sql -> !sql.contains("join"))
+                .anyMatch(sql -> sql.startsWith("select m1_0.member_id,m1_0.username from member m1_0"));
+
+        // teamName 조건이 있으면 조인은 하되 select 는 고른 컬럼만
+        queryStatsCollector.reset();
+        condition.setTeamName("sparseTeam");
+        condition.setFields(EnumSet.of(MemberField.USERNAME, MemberField.TEAM_ID));
+        Assertions.assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getContent())
+                .extracting("teamId").containsOnly(sparseTeam.getId());
+        Assertions.assertThat(queryStatsCollector.top(10)).extracting(QueryStatDto::getFingerprint)
+                .anyMatch(sql -> sql.startsWith("select m1_0.username,m1_0.team_id from member m1_0 left join team"));
+    }
+
+    /**
+     * 수집기는 전역이라 백그라운드 SQL 이 섞일 수 있으므로 전체 목록 대신
+     * 기대한 update 가 있고 회원/팀 SELECT 가 없는지만 본다
+     */
+    private void assertOnlyUpdated(String updateFingerprint) {
+        Assertions.assertThat(queryStatsCollector.top(100)).extracting(QueryStatDto::getFingerprint)
+                .contains(updateFingerprint)
+                .noneMatch(sql -> sql.startsWith("select") && (sql.contains(" from member ") || sql.contains(" from team ")));
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.snapshot.MemberSnapshotStore;
+import study.querydsl.repository.support.LoadState;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 스냅샷은 커밋 이벤트로 갱신되므로 TransactionTemplate 으로 커밋하고 정리한다
+ */
+@SpringBootTest
+class MemberSnapshotRepositoryTest {
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate tx;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberSnapshotRepository memberSnapshotRepository;
+    @Autowired MemberSnapshotStore store;
+
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<Long> memberIds = new ArrayList<>();
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            memberIds.forEach(id -> em.remove(em.find(Member.class, id)));
+            em.flush();
+            teamIds.forEach(id -> em.remove(em.find(Team.class, id)));
+        });
+    }
+
+    @Test
+    public void snapshotMatchesDatabase() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("snapA");
+            Team teamB = new Team("snapB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamIds.add(teamA.getId());
+            teamIds.add(teamB.getId());
+            for (int i = 0; i < 2000; i++) {
+                Team team = i % 3 == 0 ? teamA : i % 3 == 1 ? teamB : null;
+                persist(new Member("snap" + (i % 500), i % 60, team));
+            }
+        });
+        memberSnapshotRepository.rebuild();
+        Assertions.assertThat(store.getStatus()).isEqualTo(LoadState.Status.READY);
+        assertSameAsDatabase();
+
+        // 팀 이동 / 나이 변경 / 팀 이름 변경 / 삭제 / 추가 → 커밋 이벤트로 delta 에 반영
+        tx.executeWithoutResult(status -> {
+            Member moved = em.find(Member.class, memberIds.get(0));
+            moved.changeTeam(em.find(Team.class, teamIds.get(1)));
+            moved.setAge(59);
+            em.find(Team.class, teamIds.get(0)).setName("snapRenamed");
+            em.remove(em.find(Member.class, memberIds.remove(1)));
+            persist(new Member("snapNew", 33, em.find(Team.class, teamIds.get(1))));
+        });
+        Assertions.assertThat(store.deltaSize()).isGreaterThanOrEqualTo(3);
+        assertSameAsDatabase();
+
+        store.compact();
+        Assertions.assertThat(store.deltaSize()).isZero();
+        assertSameAsDatabase();
+    }
+
+    @Test
+    public void benchmark() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("snapBenchA");
+            em.persist(teamA);
+            teamIds.add(teamA.getId());
+            for (int i = 0; i < 5000; i++) {
+                persist(new Member("bench" + i, i % 100, i % 2 == 0 ? teamA : null));
+            }
+        });
+        memberSnapshotRepository.rebuild();
+
+        MemberSearchCondition condition = condition(null, "snapBenchA", 20, 40);
+        PageRequest pageable = PageRequest.of(1, 20);
+        int rounds = 200;
+        for (int i = 0; i < 20; i++) {
+            memberRepository.searchPageComplex(condition, pageable);
+            memberSnapshotRepository.searchPage(condition, pageable);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            memberRepository.searchPageComplex(condition, pageable);
+        }
+        long database = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            memberSnapshotRepository.searchPage(condition, pageable);
+        }
+        long snapshot = System.nanoTime() - start;
+        System.out.println("searchPageComplex members=" + store.size()
+                + " database=" + database / rounds / 1000 + "us"
+                + " snapshot=" + snapshot / rounds / 1000 + "us"
+                + " offHeapBytes=" + store.offHeapBytes());
+    }
+
+    private void assertSameAsDatabase() {
+        List<MemberSearchCondition> conditions = List.of(
+                condition(null, null, null, null),
+                condition("snap7", null, null, null),
+                condition("snapNew", null, null, null),
+                condition("snapMissing", null, null, null),
+                condition(null, "snapA", null, null),
+                condition(null, "snapB", 10, 30),
+                condition(null, "snapRenamed", null, 40),
+                condition("snap10", "snapB", 0, 59),
+                condition(null, null, 50, null));
+        for (MemberSearchCondition condition : conditions) {
+            List<MemberTeamDto> expected = sorted(memberRepository.search(condition));
+            Assertions.assertThat(memberSnapshotRepository.search(condition))
+                    .as(condition.toString())
+                    .isEqualTo(expected);
+
+            PageRequest pageable = PageRequest.of(2, 7);
+            Page<MemberTeamDto> page = memberSnapshotRepository.searchPage(condition, pageable);
+            Assertions.assertThat(page.getTotalElements())
+                    .isEqualTo(memberRepository.searchPageComplex(condition, pageable).getTotalElements());
+            Assertions.assertThat(page.getContent()).isEqualTo(expected.stream().skip(14).limit(7).toList());
+        }
+    }
+
+    private static List<MemberTeamDto> sorted(List<MemberTeamDto> rows) {
+        List<MemberTeamDto> result = new ArrayList<>(rows);
+        result.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+        return result;
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+
+    private void persist(Member member) {
+        em.persist(member);
+        memberIds.add(member.getId());
+    }
+}
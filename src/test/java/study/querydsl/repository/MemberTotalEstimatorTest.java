@@ -0,0 +1,273 @@
+package study.querydsl.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.CountedPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.BulkUpdateNotifier;
+import study.querydsl.service.MemberImportResult;
+import study.querydsl.service.MemberImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.OptionalLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 커밋된 회원 40,000 명(est*)으로 확인하고 이름으로 정리한다
+ * - 비트맵 인덱스가 total 을 먼저 답하지 않도록 읽기/쓰기 트랜잭션 안에서 검색한다
+ *   (HTTP 요청은 작업 스레드에서 조회하므로 인덱스 대신 항상 empty 를 돌려주는 UncountedIndex 를 쓴다)
+ * - 가져오기 직후 통계를 읽도록 stats-ttl 을 0 으로, 쿼리 수 비교가 로그 비용에 묻히지 않도록 SQL 로그를 끈다
+ */
+@SpringBootTest(properties = {
+        "querydsl.search.approximate-count.enabled=true",
+        "querydsl.search.approximate-count.exact-threshold=1000",
+        "querydsl.search.approximate-count.stats-ttl=0s",
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn",
+        "logging.level.p6spy=warn"})
+@AutoConfigureMockMvc
+class MemberTotalEstimatorTest {
+    private static final int MEMBERS = 40_000;
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberImportService memberImportService;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate tx;
+    @Autowired BulkUpdateNotifier bulkUpdateNotifier;
+    @Autowired MemberTotalEstimator memberTotalEstimator;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void before() throws IOException {
+        StringBuilder csv = new StringBuilder("username,age,teamName\n");
+        for (int i = 0; i < MEMBERS; i++) {
+            csv.append("est").append(i).append(',').append(i % 100).append(',')
+                    .append(i % 4 == 0 ? "estA" : "estB").append('\n');
+        }
+        MemberImportResult result = memberImportService.importMembers(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), MemberImportService.Format.CSV);
+        Assertions.assertThat(result.getAccepted()).isEqualTo(MEMBERS);
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("est")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("est")).execute();
+            bulkUpdateNotifier.afterCommit(Member.class);
+            bulkUpdateNotifier.afterCommit(Team.class);
+        });
+    }
+
+    /**
+     * 넓은 조건은 근사치 (오차 한도 0.05 는 95% 구간이므로 두 배까지 허용해서 확인한다)
+     */
+    @Test
+    public void estimatesBroadConditions() {
+        MemberSearchCondition all = new MemberSearchCondition();
+        assertApproximate(all, 0.01);
+
+        MemberSearchCondition ageGoe = new MemberSearchCondition();
+        ageGoe.setAgeGoe(30);
+        assertApproximate(ageGoe, 0.1);
+
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("estB");
+        teamAndAge.setAgeLoe(49);
+        assertApproximate(teamAndAge, 0.1);
+    }
+
+    /**
+     * MemberSearchService 가 합친 결과를 복사할 때도 근사치 여부가 응답까지 간다
+     */
+    @Test
+    public void approximateTotalReachesResponse() throws Exception {
+        for (String uri : new String[]{"/v3/members", "/v3/members/compact"}) {
+            JsonNode page = objectMapper.readTree(perform(get(uri).param("size", "10"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray());
+            Assertions.assertThat(page.get("totalExact").asBoolean()).as(uri).isFalse();
+        }
+    }
+
+    @Test
+    public void exactForSelectiveConditions() {
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("est7");
+        Page<MemberTeamDto> page = search(username);
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(CountedPage.isTotalExact(page)).isTrue();
+
+        // 근사치가 exact-threshold 보다 작으면 정확한 count
+        MemberSearchCondition narrow = new MemberSearchCondition();
+        narrow.setTeamName("estA");
+        narrow.setAgeGoe(90);
+        page = search(narrow);
+        Assertions.assertThat(CountedPage.isTotalExact(page)).isTrue();
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(exactCount(narrow));
+    }
+
+    @Test
+    public void relativeErrorShrinksWithSample() {
+        double small = MemberTotalEstimator.relativeError(new long[]{100, 100}, new long[]{50, 50}, 1_000_000);
+        double large = MemberTotalEstimator.relativeError(new long[]{2000, 2000}, new long[]{1000, 1000}, 1_000_000);
+        Assertions.assertThat(small).isBetween(0.13, 0.14);
+        Assertions.assertThat(large).isBetween(0.03, 0.032);
+        // 전수 조사면 오차가 없다
+        Assertions.assertThat(MemberTotalEstimator.relativeError(new long[]{2000, 2000}, new long[]{1000, 1000}, 4000))
+                .isZero();
+    }
+
+    /**
+     * 같은 비율(0.25)이라도 맞는 행이 한 구간에 몰려 있으면 구간 간 분산으로 오차가 커진다
+     */
+    @Test
+    public void relativeErrorUsesBetweenWindowVariance() {
+        long[] sampled = {1000, 1000, 1000, 1000};
+        double spread = MemberTotalEstimator.relativeError(sampled, new long[]{250, 250, 250, 250}, 1_000_000);
+        double clustered = MemberTotalEstimator.relativeError(sampled, new long[]{1000, 0, 0, 0}, 1_000_000);
+        Assertions.assertThat(spread).isBetween(0.05, 0.06);
+        Assertions.assertThat(clustered).isGreaterThan(1);
+    }
+
+    /**
+     * 조건에 맞는 회원이 member_id 뒤쪽에 몰려 있으면 (한꺼번에 가져온 팀) 근사치 대신 정확한 count
+     * - 행 단위 이항 오차로 보면 표본 구간 하나가 통째로 맞아 오차 한도 안으로 보이지만 실제로는 크게 빗나간다
+     */
+    @Test
+    public void exactForBlockClusteredConditions() throws IOException {
+        StringBuilder csv = new StringBuilder("username,age,teamName\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("estc").append(i).append(',').append(i % 100).append(",estC\n");
+        }
+        memberImportService.importMembers(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), MemberImportService.Format.CSV);
+
+        MemberSearchCondition clustered = new MemberSearchCondition();
+        clustered.setTeamName("estC");
+        Page<MemberTeamDto> page = search(clustered);
+        Assertions.assertThat(CountedPage.isTotalExact(page)).isTrue();
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(20_000);
+    }
+
+    /**
+     * 넓은 조건의 total: 정확한 count 쿼리 vs 근사치 (H2 결과 재사용을 끄고 잰다)
+     * - 근사치 비용은 표본 크기로 정해지고, count 쿼리 비용은 회원 수에 비례한다
+     */
+    @Test
+    public void benchmark() {
+        jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS FALSE");
+        try {
+            Predicate filter = member.age.goe(10);
+            int iterations = 50;
+            long exactNanos = 0;
+            long approximateNanos = 0;
+            for (int i = 0; i < iterations * 2; i++) {
+                long start = System.nanoTime();
+                tx.execute(status -> queryFactory.select(member.count()).from(member).where(filter).fetchOne());
+                long middle = System.nanoTime();
+                tx.execute(status -> memberTotalEstimator.estimate(filter, false));
+                long end = System.nanoTime();
+                if (i >= iterations) { // 앞 절반은 워밍업
+                    exactNanos += middle - start;
+                    approximateNanos += end - middle;
+                }
+            }
+            System.out.println("total of " + MEMBERS + "+ members: exact count = " + exactNanos / iterations / 1000
+                    + "us, approximate = " + approximateNanos / iterations / 1000 + "us");
+        } finally {
+            jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS TRUE");
+        }
+    }
+
+    private void assertApproximate(MemberSearchCondition condition, double tolerance) {
+        Page<MemberTeamDto> page = search(condition);
+        long exact = exactCount(condition);
+        Assertions.assertThat(page).isInstanceOf(CountedPage.class);
+        Assertions.assertThat(CountedPage.isTotalExact(page)).isFalse();
+        Assertions.assertThat(page.getContent()).hasSize(10);
+        Assertions.assertThat((double) page.getTotalElements()).isCloseTo(exact, Assertions.withinPercentage(tolerance * 100));
+    }
+
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+        result.getAsyncResult();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private Page<MemberTeamDto> search(MemberSearchCondition condition) {
+        return tx.execute(status -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)));
+    }
+
+    private long exactCount(MemberSearchCondition condition) {
+        JPAQuery<Long> query = queryFactory.select(member.count()).from(member).leftJoin(member.team, team);
+        if (condition.getTeamName() != null) {
+            query.where(team.name.eq(condition.getTeamName()));
+        }
+        if (condition.getAgeGoe() != null) {
+            query.where(member.age.goe(condition.getAgeGoe()));
+        }
+        if (condition.getAgeLoe() != null) {
+            query.where(member.age.loe(condition.getAgeLoe()));
+        }
+        return query.fetchOne();
+    }
+
+    @TestConfiguration
+    static class UncountedIndexConfig {
+        @Bean
+        @Primary
+        UncountedIndex uncountedIndex(JPAQueryFactory queryFactory, MeterRegistry meterRegistry) {
+            return new UncountedIndex(queryFactory, meterRegistry);
+        }
+    }
+
+    static class UncountedIndex extends MemberCountIndex {
+        UncountedIndex(JPAQueryFactory queryFactory, MeterRegistry meterRegistry) {
+            super(queryFactory, meterRegistry);
+        }
+
+        @Override
+        public OptionalLong count(MemberSearchCondition condition) {
+            return OptionalLong.empty();
+        }
+    }
+}
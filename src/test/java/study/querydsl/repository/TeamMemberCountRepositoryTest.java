@@ -0,0 +1,169 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.QueryStatDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryStatsCollector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamMemberCountDelta.teamMemberCountDelta;
+
+/**
+ * delta 는 커밋과 함께 DB 에 쌓이므로 TransactionTemplate 으로 커밋하고 정리한다
+ * - 주기 merge 는 테스트 설정에서 꺼져 있으므로 테스트에서 직접 merge 한다
+ */
+@SpringBootTest
+class TeamMemberCountRepositoryTest {
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate tx;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamMemberCountRepository teamMemberCountRepository;
+    @Autowired QueryStatsCollector queryStatsCollector;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<Long> memberIds = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            memberIds.forEach(id -> em.remove(em.find(Member.class, id)));
+            em.flush();
+            teamIds.forEach(id -> em.remove(em.find(Team.class, id)));
+        });
+    }
+
+    @Test
+    public void concurrentJoinsMatchRecount() throws Exception {
+        Long hotId = persistTeam("hotTeam");
+        Long coldId = persistTeam("coldTeam");
+
+        // 가입 트랜잭션은 member / delta insert 만 실행하고 team 행은 건드리지 않는다
+        queryStatsCollector.reset();
+        tx.executeWithoutResult(status -> persistMember("hot-first", hotId));
+        Assertions.assertThat(queryStatsCollector.top(10)).extracting(QueryStatDto::getFingerprint)
+                .noneMatch(fingerprint -> fingerprint.startsWith("update team"))
+                .anyMatch(fingerprint -> fingerprint.startsWith("insert into team_member_count_delta"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int t = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        String username = "hot" + t + "-" + i;
+                        tx.executeWithoutResult(status -> persistMember(username, hotId));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertThat(teamMemberCountRepository.count(hotId)).isEqualTo(201);
+
+        // 팀 이동 / 탈퇴
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, memberIds.get(0)).changeTeam(em.find(Team.class, coldId));
+            em.remove(em.find(Member.class, memberIds.remove(1)));
+        });
+        Assertions.assertThat(teamMemberCountRepository.count(hotId)).isEqualTo(199);
+        Assertions.assertThat(teamMemberCountRepository.count(coldId)).isEqualTo(1);
+        Assertions.assertThat(teamMemberCountRepository.checkConsistency()).isEmpty();
+
+        // merge 후에는 DB 컬럼 값만으로 맞아야 한다
+        teamMemberCountRepository.merge();
+        Assertions.assertThat(persistedCount(hotId)).isEqualTo(199);
+        Assertions.assertThat(persistedCount(coldId)).isEqualTo(1);
+        Assertions.assertThat(teamMemberCountRepository.checkConsistency()).isEmpty();
+    }
+
+    @Test
+    public void bulkReassignRecounts() {
+        Long fromId = persistTeam("bulkFrom");
+        Long toId = persistTeam("bulkTo");
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                persistMember("bulk" + i, fromId);
+            }
+        });
+
+        // 벌크 update 는 행 단위 이벤트가 없으므로 stale → 다음 조회 전에 전체 재계산
+        memberRepository.reassignTeam(memberIds.subList(0, 4), toId);
+        Assertions.assertThat(teamMemberCountRepository.count(fromId)).isEqualTo(6);
+        Assertions.assertThat(teamMemberCountRepository.count(toId)).isEqualTo(4);
+        Assertions.assertThat(persistedCount(toId)).isEqualTo(4);
+        Assertions.assertThat(teamMemberCountRepository.checkConsistency()).isEmpty();
+    }
+
+    @Test
+    public void pendingDeltasSurviveRestartAndSpanNodes() {
+        Long teamId = persistTeam("deltaTeam");
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                persistMember("delta" + i, teamId);
+            }
+        });
+
+        // 새로 뜬 노드(재시작 포함)는 메모리 상태 없이 시작해도 아직 merge 되지 않은 delta 를 본다
+        // merge 는 2 행씩 나눠 잠그고 비운다
+        TeamMemberCountRepository otherNode = new TeamMemberCountRepository(queryFactory, transactionManager, false, 2);
+        Assertions.assertThat(otherNode.isStale()).isTrue();
+        Assertions.assertThat(otherNode.count(teamId)).isEqualTo(3);
+
+        // 이 노드에서 커밋된 변경도 다른 노드의 count 에 바로 보이고, 어느 노드가 merge 해도 한 번만 반영된다
+        tx.executeWithoutResult(status -> {
+            persistMember("delta3", teamId);
+            em.remove(em.find(Member.class, memberIds.remove(0)));
+        });
+        Assertions.assertThat(otherNode.count(teamId)).isEqualTo(3);
+        tx.executeWithoutResult(status -> persistMember("delta4", teamId));
+        otherNode.merge();
+        teamMemberCountRepository.merge();
+        Assertions.assertThat(persistedCount(teamId)).isEqualTo(4);
+        Assertions.assertThat(queryFactory.selectFrom(teamMemberCountDelta)
+                .where(teamMemberCountDelta.teamId.eq(teamId)).fetch()).isEmpty();
+        Assertions.assertThat(teamMemberCountRepository.count(teamId)).isEqualTo(4);
+        Assertions.assertThat(otherNode.count(teamId)).isEqualTo(4);
+    }
+
+    private Long persistTeam(String name) {
+        Long id = tx.execute(status -> {
+            Team team = new Team(name);
+            em.persist(team);
+            return team.getId();
+        });
+        teamIds.add(id);
+        return id;
+    }
+
+    private void persistMember(String username, Long teamId) {
+        Member member = new Member(username, 20, em.getReference(Team.class, teamId));
+        em.persist(member);
+        memberIds.add(member.getId());
+    }
+
+    private long persistedCount(Long teamId) {
+        return queryFactory.select(team.memberCount).from(team).where(team.id.eq(teamId)).fetchOne();
+    }
+}
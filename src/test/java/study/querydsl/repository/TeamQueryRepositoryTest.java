@@ -0,0 +1,69 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QueryStatDto;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.QueryStatsCollector;
+
+@SpringBootTest
+@Transactional
+class TeamQueryRepositoryTest {
+    @Autowired EntityManager em;
+    @Autowired TeamQueryRepository teamQueryRepository;
+    @Autowired QueryStatsCollector queryStatsCollector;
+
+    @BeforeEach
+    public void before() {
+        // 다른 테스트가 커밋한 팀보다 뒤에 오도록 이름 역순으로 페이징한다
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("zzPaged" + i);
+            em.persist(team);
+            for (int j = 0; j < 3; j++) {
+                em.persist(new Member("paged" + i + "-" + j, j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void pagesTeamIdsBeforeFetchJoin() {
+        queryStatsCollector.reset();
+        Page<TeamMembersDto> page = teamQueryRepository.findTeamsWithMembers(
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "name")));
+
+        Assertions.assertThat(page.getContent()).extracting(TeamMembersDto::getTeamName)
+                .containsExactly("zzPaged4", "zzPaged3");
+        Assertions.assertThat(page.getContent().get(0).getMembers()).extracting(MemberDto::getUsername)
+                .containsExactly("paged4-0", "paged4-1", "paged4-2");
+        Assertions.assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(5);
+
+        // id 페이징 / 페치 조인(페이징 없음, id IN) / count
+        // 수집기는 전역이라 백그라운드 SQL 이 섞일 수 있으므로 전체 건수는 보지 않는다
+        Assertions.assertThat(queryStatsCollector.top(100)).extracting(QueryStatDto::getFingerprint)
+                .anyMatch(fingerprint -> fingerprint.startsWith("select t1_0.team_id from team t1_0")
+                        && fingerprint.contains("offset"))
+                .anyMatch(fingerprint -> fingerprint.contains("left join member")
+                        && fingerprint.contains("in (?+)") && !fingerprint.contains("offset"))
+                .anyMatch(fingerprint -> fingerprint.startsWith("select count(") && fingerprint.contains("from team"))
+                // 페이징 없이 회원을 조인해서 메모리에서 자르는 쿼리는 없다
+                .noneMatch(fingerprint -> fingerprint.contains("join member") && !fingerprint.contains("in (?+)"));
+
+        Page<TeamMembersDto> next = teamQueryRepository.findTeamsWithMembers(
+                PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "name")));
+        Assertions.assertThat(next.getContent()).extracting(TeamMembersDto::getTeamName)
+                .containsExactly("zzPaged2", "zzPaged1");
+    }
+}
@@ -0,0 +1,149 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamSummaryDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 커밋 이후에 반영되므로 @Transactional(롤백) 대신 TransactionTemplate 으로 커밋하고 정리한다
+ */
+@SpringBootTest
+class TeamSummaryRepositoryTest {
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate tx;
+    @Autowired TeamSummaryRepository teamSummaryRepository;
+
+    @Autowired TeamSummaryStore teamSummaryStore;
+
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<Long> memberIds = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            memberIds.forEach(id -> em.remove(em.find(Member.class, id)));
+            em.flush();
+            teamIds.forEach(id -> em.remove(em.find(Team.class, id)));
+        });
+        Assertions.assertThat(teamSummaryRepository.checkConsistency()).isEmpty();
+    }
+
+    @Test
+    public void incrementalSummary() {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("summaryA");
+            Team teamB = new Team("summaryB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamIds.add(teamA.getId());
+            teamIds.add(teamB.getId());
+            persist(new Member("member1", 10, teamA));
+            persist(new Member("member2", 20, teamA));
+            persist(new Member("member3", 30, teamB));
+            persist(new Member("member4", 40, teamB));
+        });
+        Assertions.assertThat(teamSummaryRepository.checkConsistency()).isEmpty();
+        TeamSummaryDto teamA = summary(teamIds.get(0));
+        Assertions.assertThat(teamA.getMemberCount()).isEqualTo(2);
+        Assertions.assertThat(teamA.getAvgAge()).isEqualTo(15.0);
+
+        // 팀 이동 + 나이 변경
+        tx.executeWithoutResult(status -> {
+            Member member4 = em.find(Member.class, memberIds.get(3));
+            member4.changeTeam(em.find(Team.class, teamIds.get(0)));
+            member4.setAge(50);
+        });
+        Assertions.assertThat(teamSummaryRepository.checkConsistency()).isEmpty();
+        teamA = summary(teamIds.get(0));
+        Assertions.assertThat(teamA.getMemberCount()).isEqualTo(3);
+        Assertions.assertThat(teamA.getMaxAge()).isEqualTo(50);
+        TeamSummaryDto teamB = summary(teamIds.get(1));
+        Assertions.assertThat(teamB.getMemberCount()).isEqualTo(1);
+        Assertions.assertThat(teamB.getMinAge()).isEqualTo(30);
+
+        // 삭제
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, memberIds.remove(0))));
+        Assertions.assertThat(teamSummaryRepository.checkConsistency()).isEmpty();
+        teamA = summary(teamIds.get(0));
+        Assertions.assertThat(teamA.getMemberCount()).isEqualTo(2);
+        Assertions.assertThat(teamA.getMinAge()).isEqualTo(20);
+    }
+
+    /**
+     * 재적재와 동시에 커밋되는 변경(추가/팀 이동/나이 변경/삭제)이 빠지거나 두 번 반영되지 않아야 한다
+     */
+    @Test
+    public void rebuildDuringConcurrentWrites() throws InterruptedException {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("raceA");
+            Team teamB = new Team("raceB");
+            em.persist(teamA);
+            em.persist(teamB);
+            teamIds.add(teamA.getId());
+            teamIds.add(teamB.getId());
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 300; i++) {
+                    int n = i;
+                    tx.executeWithoutResult(status -> {
+                        Team team = em.find(Team.class, teamIds.get(n % 2));
+                        persist(new Member("race" + n, n % 50, team));
+                        if (n % 3 == 0) {
+                            Member moved = em.find(Member.class, memberIds.get(n / 2));
+                            moved.changeTeam(em.find(Team.class, teamIds.get((n + 1) % 2)));
+                            moved.setAge(n % 40);
+                        }
+                    });
+                    if (n % 7 == 0) {
+                        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, memberIds.remove(n / 3))));
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        int rebuilds = 0;
+        while (writer.isAlive()) {
+            teamSummaryRepository.rebuild();
+            rebuilds++;
+        }
+        writer.join();
+        Assertions.assertThat(failure.get()).isNull();
+        System.out.println("team summary rebuilds during writes: " + rebuilds);
+        Assertions.assertThat(teamSummaryRepository.checkConsistency()).isEmpty();
+    }
+
+    @Test
+    public void staleStoreIsReloadedBeforeCheck() {
+        teamSummaryStore.markStale();
+        Assertions.assertThat(teamSummaryRepository.checkConsistency()).isEmpty();
+        Assertions.assertThat(teamSummaryStore.isReady()).isTrue();
+    }
+
+    private void persist(Member member) {
+        em.persist(member);
+        memberIds.add(member.getId());
+    }
+
+    private TeamSummaryDto summary(Long teamId) {
+        return teamSummaryRepository.findAll().stream()
+                .filter(dto -> dto.getTeamId().equals(teamId))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,186 @@
+package study.querydsl.repository.shard;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 메모리 H2 세 개를 샤드로 쓴다. 샤드는 트랜잭션 없이 바로 커밋되므로 테스트가 끝나면 비운다
+ */
+@SpringBootTest(properties = {
+        "querydsl.sharding.enabled=true",
+        "querydsl.sharding.shards[0].url=jdbc:h2:mem:member-shard0;DB_CLOSE_DELAY=-1",
+        "querydsl.sharding.shards[1].url=jdbc:h2:mem:member-shard1;DB_CLOSE_DELAY=-1",
+        "querydsl.sharding.shards[2].url=jdbc:h2:mem:member-shard2;DB_CLOSE_DELAY=-1"})
+class ShardedMemberRepositoryTest {
+    @Autowired ShardedMemberRepository shardedMemberRepository;
+    @Autowired MemberShards memberShards;
+
+    private final List<MemberTeamDto> saved = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        String[] names = {"teamA", "teamB", "teamC", "teamD", "teamE"};
+        long[] teamIds = new long[names.length];
+        for (int t = 0; t < names.length; t++) {
+            teamIds[t] = shardedMemberRepository.saveTeam(names[t]);
+        }
+        for (int i = 0; i < 300; i++) {
+            int t = i % (names.length + 1);
+            Long teamId = t < names.length ? teamIds[t] : null; // 팀 없는 회원도 섞는다
+            String teamName = t < names.length ? names[t] : null;
+            long memberId = shardedMemberRepository.save("member" + i, i % 60, teamId);
+            saved.add(new MemberTeamDto(memberId, "member" + i, i % 60, teamId, teamName));
+        }
+    }
+
+    @AfterEach
+    public void after() {
+        for (MemberShard shard : memberShards.all()) {
+            shard.jdbcTemplate().update("delete from member");
+            shard.jdbcTemplate().update("delete from team");
+        }
+    }
+
+    @Test
+    public void membersArePartitionedByTeam() {
+        long total = 0;
+        for (MemberShard shard : memberShards.all()) {
+            List<Long> teamIds = shard.jdbcTemplate().queryForList("select distinct team_id from member", Long.class);
+            Assertions.assertThat(teamIds).allMatch(teamId -> memberShards.forTeam(teamId) == shard);
+            Assertions.assertThat(shard.jdbcTemplate().queryForObject("select count(*) from team", Long.class))
+                    .isEqualTo(5); // 팀은 모든 샤드에 복제
+            total += shard.jdbcTemplate().queryForObject("select count(*) from member", Long.class);
+        }
+        Assertions.assertThat(total).isEqualTo(300);
+    }
+
+    @Test
+    public void teamNameRoutesToSingleShard() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(30);
+
+        Assertions.assertThat(shardedMemberRepository.route(condition)).hasSize(1);
+        Assertions.assertThat(shardedMemberRepository.search(condition))
+                .containsExactlyElementsOf(expected(m -> "teamB".equals(m.getTeamName()) && m.getAge() >= 30));
+
+        condition.setTeamName("noSuchTeam");
+        Assertions.assertThat(shardedMemberRepository.route(condition)).isEmpty();
+        Page<MemberTeamDto> page = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+        Assertions.assertThat(page.getContent()).isEmpty();
+        Assertions.assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    public void sameTeamNameOnDifferentShards() {
+        long first = shardedMemberRepository.saveTeam("dup");
+        long second = shardedMemberRepository.saveTeam("dup");
+        Assertions.assertThat(memberShards.forTeam(first)).isNotSameAs(memberShards.forTeam(second));
+        long a = shardedMemberRepository.save("dupA", 1, first);
+        long b = shardedMemberRepository.save("dupB", 2, second);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("dup");
+        Assertions.assertThat(shardedMemberRepository.route(condition)).hasSize(2);
+        Assertions.assertThat(shardedMemberRepository.search(condition)).extracting(MemberTeamDto::getMemberId)
+                .containsExactly(Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * 모든 샤드에 흩어 보낸 결과가 한 DB 에서 id 순으로 조회한 것과 같아야 한다
+     */
+    @Test
+    public void scatterGatherMergesPagesAndSumsCounts() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(40);
+        List<MemberTeamDto> expected = expected(m -> m.getAge() <= 40);
+
+        Assertions.assertThat(shardedMemberRepository.route(condition)).hasSize(3);
+        Assertions.assertThat(shardedMemberRepository.search(condition)).containsExactlyElementsOf(expected);
+        for (int pageNumber = 0; pageNumber * 7 < expected.size() + 7; pageNumber++) {
+            Page<MemberTeamDto> page = shardedMemberRepository.searchPageComplex(condition, PageRequest.of(pageNumber, 7));
+            int from = Math.min(expected.size(), pageNumber * 7);
+            Assertions.assertThat(page.getContent())
+                    .containsExactlyElementsOf(expected.subList(from, Math.min(expected.size(), from + 7)));
+            Assertions.assertThat(page.getTotalElements()).isEqualTo(expected.size());
+        }
+    }
+
+    /**
+     * 동시에 들어온 scatter 들이 작업 스레드가 모자라 줄 서지 않는다 (샤드별 커넥션 풀 크기 4 까지)
+     * - 모든 샤드 작업이 동시에 barrier 에 도착해야 끝난다
+     */
+    @Test
+    public void concurrentScattersRunInParallel() throws Exception {
+        int callers = 4;
+        CyclicBarrier barrier = new CyclicBarrier(callers * memberShards.size());
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> memberShards.scatter(memberShards.all(), shard -> {
+                    try {
+                        barrier.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return shard.getIndex();
+                })));
+            }
+            for (Future<List<Integer>> future : futures) {
+                Assertions.assertThat(future.get()).containsExactly(0, 1, 2);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 팀 하나로 정해지는 조회 vs 전체 샤드 scatter-gather 지연
+     */
+    @Test
+    public void benchmark() {
+        MemberSearchCondition single = new MemberSearchCondition();
+        single.setTeamName("teamA");
+        MemberSearchCondition scatter = new MemberSearchCondition();
+        scatter.setAgeGoe(10);
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{single, scatter}) {
+            int iterations = 200;
+            long start = 0;
+            for (int i = 0; i < iterations * 2; i++) {
+                if (i == iterations) {
+                    start = System.nanoTime(); // 앞 절반은 워밍업
+                }
+                shardedMemberRepository.searchPageComplex(condition, PageRequest.of(1, 20));
+            }
+            System.out.println("sharded searchPageComplex [" + condition + "] shards = "
+                    + shardedMemberRepository.route(condition).size()
+                    + ", avg = " + (System.nanoTime() - start) / iterations / 1000 + "us");
+        }
+    }
+
+    private List<MemberTeamDto> expected(Predicate<MemberTeamDto> filter) {
+        return saved.stream()
+                .filter(filter)
+                .sorted(Comparator.comparing(MemberTeamDto::getMemberId))
+                .toList();
+    }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.repository.snapshot;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 스프링 없이 store 만 검증한다 (compact-threshold 를 작게 잡아 백그라운드 compaction 이 자주 돌게 한다)
+ */
+class MemberSnapshotStoreTest {
+
+    private final MemberSnapshotStore store = new MemberSnapshotStore(64);
+
+    @AfterEach
+    public void close() {
+        store.close();
+    }
+
+    /**
+     * 쓰기가 compaction 과 겹쳐도 검색 결과는 같은 변경을 적용한 TreeMap 과 같아야 한다
+     */
+    @Test
+    public void writesDuringBackgroundCompaction() {
+        TreeMap<Long, MemberRow> expected = new TreeMap<>();
+        List<MemberRow> rows = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            MemberRow row = new MemberRow(id, "m" + id, (int) (id % 60), id % 2 == 0 ? 1L : null);
+            rows.add(row);
+            expected.put(id, row);
+        }
+        store.beginLoad();
+        store.finishLoad(rows, Map.of(1L, "even"));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        for (int i = 0; i < 3000; i++) {
+            long id = (i * 7919L) % 12_000 + 1;
+            if (i % 5 == 0) {
+                store.memberRemoved(id);
+                expected.remove(id);
+            } else {
+                MemberRow row = new MemberRow(id, "w" + i, i % 60, i % 3 == 0 ? 1L : null);
+                store.memberSaved(row);
+                expected.put(id, row);
+            }
+            if (i % 100 == 0) {
+                assertSearch(condition, expected);
+            }
+        }
+        store.compact();
+        Assertions.assertThat(store.deltaSize()).isZero();
+        assertSearch(condition, expected);
+        assertSearch(new MemberSearchCondition(), expected);
+    }
+
+    @Test
+    public void sizeClasses() {
+        Assertions.assertThat(MemberColumns.sizeClass(0)).isEqualTo(1024);
+        Assertions.assertThat(MemberColumns.sizeClass(1025)).isEqualTo(1280);
+        Assertions.assertThat(MemberColumns.sizeClass(4096)).isEqualTo(4096);
+        Assertions.assertThat(MemberColumns.sizeClass(100_000)).isBetween(100_000, 125_000);
+        // 조금 늘어나도 같은 등급 → 은퇴한 buffer 를 그대로 재사용한다
+        Assertions.assertThat(MemberColumns.sizeClass(100_100)).isEqualTo(MemberColumns.sizeClass(100_000));
+    }
+
+    private void assertSearch(MemberSearchCondition condition, TreeMap<Long, MemberRow> expected) {
+        int ageGoe = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+        int ageLoe = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+        List<Long> expectedIds = expected.values().stream()
+                .filter(row -> row.age() >= ageGoe && row.age() <= ageLoe)
+                .map(MemberRow::id)
+                .toList();
+        MemberSnapshotStore.SearchResult result = store.search(condition, 10, 50);
+        Assertions.assertThat(result.total()).isEqualTo(expectedIds.size());
+        Assertions.assertThat(result.content()).extracting(MemberTeamDto::getMemberId)
+                .containsExactlyElementsOf(expectedIds.subList(10, 60));
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+class CompressedBitmapTest {
+
+    @Test
+    public void matchesBitSet() {
+        // 배열 컨테이너(희소)와 비트맵 컨테이너(밀집)가 섞이도록 구간마다 밀도를 다르게 넣는다
+        Random random = new Random(42);
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        for (int i = 0; i < 300_000; i++) {
+            int id = random.nextInt(400_000);
+            if (id < 131_072 || random.nextInt(10) == 0) {
+                a.add(id);
+                expectedA.set(id);
+            }
+            if (random.nextBoolean()) {
+                b.add(id);
+                expectedB.set(id);
+            }
+        }
+        // 밀집 구간에서 지워 비트맵 → 배열 컨테이너 전환도 거친다
+        for (int id = 0; id < 131_072; id += 2) {
+            a.remove(id);
+            expectedA.clear(id);
+        }
+
+        Assertions.assertThat(a.cardinality()).isEqualTo(expectedA.cardinality());
+        Assertions.assertThat(b.cardinality()).isEqualTo(expectedB.cardinality());
+
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        Assertions.assertThat(a.andCardinality(b)).isEqualTo(and.cardinality());
+        Assertions.assertThat(b.andCardinality(a)).isEqualTo(and.cardinality());
+
+        BitSet or = (BitSet) expectedA.clone();
+        or.or(expectedB);
+        CompressedBitmap union = CompressedBitmap.or(List.of(a, b));
+        Assertions.assertThat(union.cardinality()).isEqualTo(or.cardinality());
+        for (int id = 0; id < 400_000; id += 997) {
+            Assertions.assertThat(union.contains(id)).isEqualTo(or.get(id));
+        }
+        // or() 는 입력을 바꾸지 않는다
+        Assertions.assertThat(a.cardinality()).isEqualTo(expectedA.cardinality());
+    }
+
+    @Test
+    public void largeIds() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(Long.MAX_VALUE);
+        bitmap.add(1L << 40);
+        bitmap.add(1L << 40);
+        Assertions.assertThat(bitmap.cardinality()).isEqualTo(2);
+        Assertions.assertThat(bitmap.contains(Long.MAX_VALUE)).isTrue();
+        bitmap.remove(Long.MAX_VALUE);
+        bitmap.remove(1L << 40);
+        Assertions.assertThat(bitmap.isEmpty()).isTrue();
+    }
+}
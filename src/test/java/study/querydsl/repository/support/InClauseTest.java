@@ -0,0 +1,28 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class InClauseTest {
+
+    @Test
+    public void padToPowerOfTwo() {
+        List<List<String>> chunks = InClause.chunks(Arrays.asList("a", "b", "c", null, "a"), 512);
+        Assertions.assertThat(chunks).containsExactly(List.of("a", "b", "c", "c"));
+    }
+
+    @Test
+    public void splitIntoBoundedChunks() {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 1100; i++) {
+            values.add(i);
+        }
+        List<List<Integer>> chunks = InClause.chunks(values, 512);
+        Assertions.assertThat(chunks).extracting(List::size).containsExactly(512, 512, 128);
+        Assertions.assertThat(chunks.get(2)).startsWith(1024).endsWith(1099);
+    }
+}
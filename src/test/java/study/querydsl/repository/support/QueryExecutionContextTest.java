@@ -0,0 +1,63 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest
+class QueryExecutionContextTest {
+    // 수십 초 이상 걸리는 쿼리
+    private static final String SLOW_SQL = "select sum(x) from system_range(1, 100000000000)";
+
+    @Autowired EntityManager em;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void queryTimeoutHint() {
+        double before = meterRegistry.counter("member.search.query.timeout").count();
+        QueryExecutionContext context = new QueryExecutionContext(200);
+        context.bind();
+        try {
+            Query query = QueryExecutionContext.applyTimeout(em.createNativeQuery(SLOW_SQL));
+            // JDBC 타임아웃은 초 단위라 1초로 올려서 걸지만(보조), 실제로는 deadline(200ms)에 cancel 된다
+            Assertions.assertThat(query.getHints()).containsEntry(QueryExecutionContext.TIMEOUT_HINT, 1000);
+
+            long start = System.nanoTime();
+            Assertions.assertThatThrownBy(query::getSingleResult)
+                    .isInstanceOf(jakarta.persistence.QueryTimeoutException.class);
+            Assertions.assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(900));
+        } finally {
+            QueryExecutionContext.unbind();
+        }
+        Assertions.assertThat(meterRegistry.counter("member.search.query.timeout").count()).isEqualTo(before + 1);
+    }
+
+    // 클라이언트 연결 종료 → 다른 스레드에서 cancel() → 실행 중인 Statement 가 DB 에서 중단된다
+    @Test
+    public void cancelRunningStatement() throws Exception {
+        double before = meterRegistry.counter("member.search.query.cancelled").count();
+        QueryExecutionContext context = new QueryExecutionContext(60_000);
+        CompletableFuture<Object> running = CompletableFuture.supplyAsync(() -> {
+            context.bind();
+            try {
+                return em.createNativeQuery(SLOW_SQL).getSingleResult();
+            } finally {
+                QueryExecutionContext.unbind();
+            }
+        });
+        Thread.sleep(300);
+        long start = System.nanoTime();
+        context.cancel();
+
+        Assertions.assertThatThrownBy(() -> running.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(RuntimeException.class);
+        Assertions.assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        Assertions.assertThat(meterRegistry.counter("member.search.query.cancelled").count()).isEqualTo(before + 1);
+    }
+}
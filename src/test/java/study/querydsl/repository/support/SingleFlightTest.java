@@ -0,0 +1,150 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    // 같은 키로 동시에 들어온 20개 요청 → 실행은 한 번
+    @Test
+    public void oneExecutionPerKey() throws Exception {
+        SingleFlight<String, List<String>> singleFlight = new SingleFlight<>(16, Duration.ofSeconds(5));
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 20;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("teamA", () -> {
+                queries.incrementAndGet();
+                await(release);
+                return List.of("member1", "member2");
+            })));
+        }
+        // 나머지 19개가 모두 leader 에 합류할 때까지 기다린 뒤 leader 를 풀어준다
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.coalesced() < threads - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        List<String> first = futures.get(0).get();
+        for (Future<List<String>> future : futures) {
+            Assertions.assertThat(future.get()).isSameAs(first);
+        }
+        executor.shutdown();
+
+        Assertions.assertThat(queries.get()).isEqualTo(1);
+        Assertions.assertThat(singleFlight.executions()).isEqualTo(1);
+        Assertions.assertThat(singleFlight.coalesced()).isEqualTo(threads - 1);
+        Assertions.assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    public void followerRunsItselfAfterTimeout() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(16, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            leaderStarted.countDown();
+            await(release);
+            return "leader";
+        }));
+        leaderStarted.await();
+
+        Assertions.assertThat(singleFlight.execute("key", () -> "follower")).isEqualTo("follower");
+        Assertions.assertThat(singleFlight.timeouts()).isEqualTo(1);
+
+        release.countDown();
+        Assertions.assertThat(leader.get()).isEqualTo("leader");
+        executor.shutdown();
+    }
+
+    @Test
+    public void leaderFailurePropagates() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(16, Duration.ofSeconds(1));
+        Assertions.assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("db down");
+        })).hasMessage("db down");
+        Assertions.assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    /**
+     * 공유 쿼리는 leader 요청의 context 가 아니라 공유 context 로 실행된다
+     * leader 의 클라이언트가 끊겨도 follower 가 기다리는 동안은 취소하지 않고, 모두 떠나면 취소한다
+     */
+    @Test
+    public void cancelOnlyWhenEveryWaiterIsGone() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(16, Duration.ofSeconds(30));
+        QueryExecutionContext leaderRequest = new QueryExecutionContext(60_000);
+        QueryExecutionContext followerRequest = new QueryExecutionContext(60_000);
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        List<QueryExecutionContext> shared = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> leader = executor.submit(() -> {
+            leaderRequest.bind();
+            try {
+                return singleFlight.execute("key", () -> {
+                    QueryExecutionContext context = QueryExecutionContext.current();
+                    shared.add(context);
+                    leaderStarted.countDown();
+                    while (!context.isCancelled()) {
+                        Thread.onSpinWait();
+                    }
+                    throw new IllegalStateException("cancelled");
+                });
+            } finally {
+                QueryExecutionContext.unbind();
+            }
+        });
+        leaderStarted.await();
+        Future<String> follower = executor.submit(() -> {
+            followerRequest.bind();
+            try {
+                return singleFlight.execute("key", () -> "follower ran itself");
+            } finally {
+                QueryExecutionContext.unbind();
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.coalesced() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        QueryExecutionContext context = shared.get(0);
+        Assertions.assertThat(context).isNotSameAs(leaderRequest);
+
+        // leader 의 클라이언트만 끊겼다 → follower 가 기다리고 있으므로 공유 쿼리는 계속 실행
+        leaderRequest.cancel();
+        Assertions.assertThat(context.isCancelled()).isFalse();
+        Assertions.assertThat(leader.isDone()).isFalse();
+
+        // 마지막으로 기다리던 요청도 끊겼다 → 공유 쿼리 취소
+        followerRequest.cancel();
+        Assertions.assertThat(context.isCancelled()).isTrue();
+        Assertions.assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("cancelled");
+        Assertions.assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("cancelled");
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 워커마다 별도 EntityManager(커넥션)로 조회하므로 TransactionTemplate 으로 커밋하고 정리한다
+ */
+@SpringBootTest(properties = "querydsl.export.job-ttl=0s")
+class MemberExportServiceTest {
+    @Autowired EntityManager em;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate tx;
+    @Autowired MemberExportService memberExportService;
+
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<Long> memberIds = new ArrayList<>();
+    private final List<MemberExportJob> jobs = new ArrayList<>();
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        tx.executeWithoutResult(status -> {
+            memberIds.forEach(id -> em.remove(em.find(Member.class, id)));
+            em.flush();
+            teamIds.forEach(id -> em.remove(em.find(Team.class, id)));
+        });
+        for (MemberExportJob job : jobs) {
+            for (String file : job.getFiles()) {
+                Files.deleteIfExists(Path.of(file));
+            }
+            Files.deleteIfExists(directory(job));
+        }
+    }
+
+    @Test
+    public void exportPartitions() throws IOException {
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("exportA");
+            em.persist(teamA);
+            teamIds.add(teamA.getId());
+            for (int i = 0; i < 5000; i++) {
+                // 따옴표/쉼표가 들어간 이름도 CSV 로 올바르게 나가는지 확인
+                Member m = new Member(i == 0 ? "export,\"quoted\"" : "export" + i, i % 100, i % 2 == 0 ? teamA : null);
+                em.persist(m);
+                memberIds.add(m.getId());
+            }
+        });
+        long total = tx.execute(status -> queryFactory.select(member.count()).from(member).fetchOne());
+
+        // 첫 실행은 JIT/커넥션/쿼리 계획 준비가 섞이므로 버리고 잰다
+        export(4, false);
+        MemberExportJob single = export(1, false);
+        MemberExportJob parallel = export(4, false);
+        MemberExportJob concatenated = export(4, true);
+
+        Assertions.assertThat(single.getFiles()).hasSize(1);
+        Assertions.assertThat(parallel.getFiles()).hasSize(4);
+        Assertions.assertThat(concatenated.getFiles()).hasSize(1);
+        for (MemberExportJob job : List.of(single, parallel, concatenated)) {
+            Assertions.assertThat(job.getStatus()).isEqualTo(MemberExportJob.Status.COMPLETED);
+            Assertions.assertThat(job.getRows()).isEqualTo(total);
+            Assertions.assertThat(dataLines(job)).isEqualTo(total);
+        }
+
+        List<String> lines = Files.readAllLines(Path.of(concatenated.getFiles().get(0)), StandardCharsets.UTF_8);
+        Assertions.assertThat(lines.get(0)).isEqualTo("memberId,username,age,teamId,teamName");
+        Assertions.assertThat(lines).contains(memberIds.get(0) + ",\"export,\"\"quoted\"\"\",0," + teamIds.get(0) + ",exportA");
+        Assertions.assertThat(lines).contains(memberIds.get(1) + ",export1,1,,");
+
+        System.out.println("export rows=" + total
+                + " 1 partition=" + single.getRowsPerSecond() + " rows/s"
+                + " 4 partitions=" + parallel.getRowsPerSecond() + " rows/s"
+                + " 4 partitions+concat=" + concatenated.getRowsPerSecond() + " rows/s");
+    }
+
+    // 파티션 수는 커넥션 풀 크기까지만, 끝난 작업은 job-ttl(테스트는 0) 이 지나면 다음 작업을 시작할 때 지운다
+    @Test
+    public void clampPartitionsAndEvictFinishedJobs() {
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 50; i++) {
+                Member m = new Member("clamp" + i, i);
+                em.persist(m);
+                memberIds.add(m.getId());
+            }
+        });
+
+        MemberExportJob first = export(1000, false);
+        Assertions.assertThat(first.getStatus()).isEqualTo(MemberExportJob.Status.COMPLETED);
+        Assertions.assertThat(first.getPartitions()).isEqualTo(memberExportService.getMaxPartitions());
+        Assertions.assertThat(first.getFiles()).hasSizeLessThanOrEqualTo(memberExportService.getMaxPartitions());
+        Assertions.assertThat(memberExportService.findJob(first.getId())).isSameAs(first);
+
+        MemberExportJob second = export(2, false);
+        Assertions.assertThat(memberExportService.findJob(first.getId())).isNull();
+        Assertions.assertThat(memberExportService.findJob(second.getId())).isSameAs(second);
+    }
+
+    private MemberExportJob export(int partitions, boolean concatenate) {
+        MemberExportJob job = memberExportService.export(partitions, concatenate);
+        jobs.add(job);
+        return job;
+    }
+
+    private Path directory(MemberExportJob job) {
+        return Path.of(job.getFiles().get(0)).getParent();
+    }
+
+    /**
+     * 파일마다 헤더 한 줄을 뺀 데이터 줄 수
+     */
+    private long dataLines(MemberExportJob job) throws IOException {
+        long lines = 0;
+        for (String file : job.getFiles()) {
+            try (var stream = Files.lines(Path.of(file), StandardCharsets.UTF_8)) {
+                lines += stream.count() - 1;
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,240 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.BulkUpdateNotifier;
+import study.querydsl.event.PostCommitEntityListener;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.TeamMemberCountRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 가져오기는 트랜잭션을 나눠 커밋하므로 테스트 트랜잭션 없이 실행하고 이름(imp*)으로 정리한다
+ */
+@SpringBootTest
+class MemberImportServiceTest {
+    @Autowired EntityManager em;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate tx;
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired TeamMemberCountRepository teamMemberCountRepository;
+    @Autowired BulkUpdateNotifier bulkUpdateNotifier;
+    @Autowired BulkUpdateCounter bulkUpdateCounter;
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.username.startsWith("imp")).execute();
+            queryFactory.delete(team).where(team.name.startsWith("imp")).execute();
+            bulkUpdateNotifier.afterCommit(Member.class);
+            bulkUpdateNotifier.afterCommit(Team.class);
+        });
+        teamMemberCountRepository.merge();
+    }
+
+    @Test
+    public void importCsv() throws IOException {
+        Long existingId = tx.execute(status -> {
+            Team existing = new Team("importA");
+            em.persist(existing);
+            return existing.getId();
+        });
+
+        // 내보내기 파일 형식 그대로. 20,000 줄을 만들면서 흘려보낸다 (본문을 메모리에 만들지 않는다)
+        InputStream body = generate("memberId,username,age,teamId,teamName", 20_000, i -> switch (i % 1000) {
+            case 1 -> ",,10,,importA";                  // username 없음
+            case 2 -> "1,import" + i + ",x,,importA";   // age 가 숫자가 아님
+            case 3 -> "1,\"import" + i + ",10,,importA"; // 따옴표가 안 닫힘
+            case 4 -> "";                               // 빈 줄은 건너뛴다
+            case 5 -> "1,\"import,\"\"quoted\"\"" + i + "\",5,,";
+            default -> "1,import" + i + "," + (i % 100) + ",," + (i % 2 == 0 ? "importA" : "importB");
+        });
+        bulkUpdateCounter.counts.clear();
+        MemberImportResult result = memberImportService.importMembers(body, MemberImportService.Format.CSV);
+
+        Assertions.assertThat(result.getError()).isNull();
+        Assertions.assertThat(result.getAccepted()).isEqualTo(20_000 - 80);
+        Assertions.assertThat(result.getRejected()).isEqualTo(60);
+        Assertions.assertThat(result.getErrors()).hasSize(20).first().asString()
+                .isEqualTo("line 3: username is required");
+        Assertions.assertThat(result.getTeamsCreated()).isEqualTo(1);
+        Assertions.assertThat(result.getTransactions()).isEqualTo(4); // commit-size 5000
+        // 캐시/인덱스 무효화는 트랜잭션 수와 상관없이 가져오기 끝에 한 번
+        Assertions.assertThat(bulkUpdateCounter.count(Member.class)).isEqualTo(1);
+        Assertions.assertThat(bulkUpdateCounter.count(Team.class)).isEqualTo(1);
+
+        Long importedB = queryFactory.select(team.id).from(team).where(team.name.eq("importB")).fetchOne();
+        Assertions.assertThat(queryFactory.select(member.count()).from(member)
+                .where(member.username.startsWith("import")).fetchOne()).isEqualTo(result.getAccepted());
+        Assertions.assertThat(queryFactory.select(member.age).from(member)
+                .where(member.username.eq("import,\"quoted\"5")).fetchOne()).isEqualTo(5);
+
+        // 벌크 insert 는 커밋 후 recount 로 반영된다
+        teamMemberCountRepository.merge();
+        Assertions.assertThat(teamMemberCountRepository.count(existingId) + teamMemberCountRepository.count(importedB))
+                .isEqualTo(result.getAccepted() - 20);
+
+        System.out.println("csv import: " + result.getAccepted() + " rows, " + result.getElapsedMillis() + "ms, "
+                + result.getRowsPerSecond() + " rows/s");
+    }
+
+    @Test
+    public void importNdjson() throws IOException {
+        String body = """
+                {"username":"impJson1","age":20,"teamName":"impJsonTeam"}
+                {"username":"impJson2","teamName":"impJsonTeam","ignored":true}
+                {"username":"impJson3","age":"old"}
+                {"username":"impJson4",
+                {"username":"impJson5","age":-1}
+                {"username":"impJson6","age":30}
+                """;
+        MemberImportResult result = memberImportService.importMembers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), MemberImportService.Format.NDJSON);
+
+        Assertions.assertThat(result.getAccepted()).isEqualTo(3);
+        Assertions.assertThat(result.getRejected()).isEqualTo(3);
+        Assertions.assertThat(result.getErrors()).hasSize(3)
+                .anyMatch(error -> error.startsWith("line 3: invalid json"))
+                .anyMatch(error -> error.startsWith("line 4: invalid json"))
+                .contains("line 5: age must not be negative");
+        Assertions.assertThat(queryFactory.select(member.username, team.name).from(member).leftJoin(member.team, team)
+                        .where(member.username.startsWith("impJson")).orderBy(member.username.asc()).fetch())
+                .extracting(t -> t.get(member.username) + "/" + t.get(team.name))
+                .containsExactly("impJson1/impJsonTeam", "impJson2/impJsonTeam", "impJson6/null");
+    }
+
+    /**
+     * max-line-length(4096) 를 넘는 줄은 거부하고 다음 줄부터 이어서 읽는다 (\r\n 줄바꿈 포함)
+     */
+    @Test
+    public void overlongLineIsRejected() throws IOException {
+        String longName = "imp" + "x".repeat(10_000);
+        String csv = "username,age\r\nimpLong1,10\r\n" + longName + ",20\r\nimpLong2,30\r\n";
+        MemberImportResult result = memberImportService.importMembers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), MemberImportService.Format.CSV);
+        Assertions.assertThat(result.getAccepted()).isEqualTo(2);
+        Assertions.assertThat(result.getErrors()).containsExactly("line 3: line is longer than 4096");
+
+        String ndjson = "{\"username\":\"impLong3\"}\n{\"username\":\"" + longName + "\"}\n{\"username\":\"impLong4\"}";
+        result = memberImportService.importMembers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), MemberImportService.Format.NDJSON);
+        Assertions.assertThat(result.getAccepted()).isEqualTo(2);
+        Assertions.assertThat(result.getErrors()).containsExactly("line 2: line is longer than 4096");
+        Assertions.assertThat(queryFactory.select(member.username).from(member)
+                        .where(member.username.startsWith("impLong")).orderBy(member.username.asc()).fetch())
+                .containsExactly("impLong1", "impLong2", "impLong3", "impLong4");
+    }
+
+    @Test
+    public void missingUsernameColumnIsRejected() {
+        Assertions.assertThatThrownBy(() -> memberImportService.importMembers(
+                        new ByteArrayInputStream("name,age\nimp,1\n".getBytes(StandardCharsets.UTF_8)),
+                        MemberImportService.Format.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 기존: 회원마다 MemberJpaRepository.save (em.persist) 를 5,000 건 트랜잭션으로
+     * 가져오기: 같은 행을 CSV 로 (JDBC 배치 500 + 5,000 건 트랜잭션)
+     */
+    @Test
+    public void benchmark() throws IOException {
+        int rows = 20_000;
+        Long teamId = tx.execute(status -> {
+            Team imported = new Team("impBench");
+            em.persist(imported);
+            return imported.getId();
+        });
+
+        long start = System.nanoTime();
+        for (int from = 0; from < rows; from += 5000) {
+            int first = from;
+            tx.executeWithoutResult(status -> {
+                Team benchTeam = em.getReference(Team.class, teamId);
+                for (int i = first; i < first + 5000; i++) {
+                    memberJpaRepository.save(new Member("impSave" + i, i % 100, benchTeam));
+                }
+            });
+        }
+        long persistMillis = (System.nanoTime() - start) / 1_000_000;
+
+        MemberImportResult result = memberImportService.importMembers(
+                generate("username,age,teamName", rows, i -> "impCsv" + i + "," + (i % 100) + ",impBench"),
+                MemberImportService.Format.CSV);
+
+        System.out.println("insert " + rows + " rows: persist = " + persistMillis + "ms, import = "
+                + result.getElapsedMillis() + "ms (" + result.getRowsPerSecond() + " rows/s)");
+        Assertions.assertThat(result.getAccepted()).isEqualTo(rows);
+        Assertions.assertThat(result.getElapsedMillis()).isLessThan(persistMillis);
+    }
+
+    /**
+     * 헤더 + rows 줄을 읽는 쪽이 당겨 갈 때마다 한 줄씩 만든다
+     */
+    private static InputStream generate(String header, int rows, IntFunction<String> line) {
+        return new SequenceInputStream(new Enumeration<>() {
+            int next = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < rows;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String text = next < 0 ? header : line.apply(next);
+                next++;
+                return new ByteArrayInputStream((text + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    @TestConfiguration
+    static class BulkUpdateCounterConfig {
+        @Bean
+        BulkUpdateCounter bulkUpdateCounter() {
+            return new BulkUpdateCounter();
+        }
+    }
+
+    /**
+     * 엔티티 타입별 onBulkUpdate 호출 수
+     */
+    static class BulkUpdateCounter implements PostCommitEntityListener {
+        final Map<Class<?>, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        @Override
+        public void onBulkUpdate(Class<?> entityType) {
+            counts.computeIfAbsent(entityType, type -> new AtomicInteger()).incrementAndGet();
+        }
+
+        int count(Class<?> entityType) {
+            AtomicInteger count = counts.get(entityType);
+            return count != null ? count.get() : 0;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package study.querydsl.service;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSnapshotRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 실제 리포지토리로 DB 를 조회하면서 동시 요청이 한 번의 조회를 공유하는지 본다
+ * - 작업 스레드에서 조회하므로 TransactionTemplate 으로 커밋하고 정리한다
+ */
+@SpringBootTest
+class MemberSearchServiceTest {
+    @Autowired EntityManager em;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate tx;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberSnapshotRepository memberSnapshotRepository;
+
+    private final List<Long> teamIds = new ArrayList<>();
+    private final List<Long> memberIds = new ArrayList<>();
+
+    @AfterEach
+    public void cleanUp() {
+        tx.executeWithoutResult(status -> {
+            memberIds.forEach(id -> em.remove(em.find(Member.class, id)));
+            em.flush();
+            teamIds.forEach(id -> em.remove(em.find(Team.class, id)));
+        });
+    }
+
+    @Test
+    public void concurrentSearchesShareOneQuery() throws Exception {
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("flightTeam");
+            em.persist(team);
+            teamIds.add(team.getId());
+            for (int i = 0; i < 5; i++) {
+                Member m = new Member("flight" + i, 20 + i, team);
+                em.persist(m);
+                memberIds.add(m.getId());
+            }
+        });
+
+        // leader 의 조회를 잡아 두고 나머지 요청이 모두 합류한 뒤 풀어준다
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        MemberJpaRepository blocking = new MemberJpaRepository(em, queryFactory) {
+            @Override
+            public List<MemberTeamDto> search(MemberSearchCondition condition) {
+                queries.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.search(condition);
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MemberSearchService service = new MemberSearchService(blocking, memberRepository, memberSnapshotRepository,
+                meterRegistry, 16, Duration.ofSeconds(5));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("flightTeam");
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<MemberTeamDto>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> service.search(condition)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (saved(meterRegistry) < threads - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        List<MemberTeamDto> first = futures.get(0).get();
+        for (Future<List<MemberTeamDto>> future : futures) {
+            Assertions.assertThat(future.get()).isSameAs(first);
+        }
+        executor.shutdown();
+
+        Assertions.assertThat(queries.get()).isEqualTo(1);
+        Assertions.assertThat(saved(meterRegistry)).isEqualTo(threads - 1);
+        Assertions.assertThat(first).extracting("username")
+                .containsExactlyInAnyOrder("flight0", "flight1", "flight2", "flight3", "flight4");
+        // 공유된 결과는 요청 쪽에서 바꿀 수 없다
+        Assertions.assertThatThrownBy(() -> first.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void sharedPageIsUnmodifiable() {
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("flightPage");
+            em.persist(team);
+            teamIds.add(team.getId());
+            Member m = new Member("flightPage0", 30, team);
+            em.persist(m);
+            memberIds.add(m.getId());
+        });
+        MemberSearchService service = new MemberSearchService(new MemberJpaRepository(em, queryFactory),
+                memberRepository, memberSnapshotRepository, new SimpleMeterRegistry(), 16, Duration.ofSeconds(5));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("flightPage");
+        Page<MemberTeamDto> page = service.searchPageComplex(condition, PageRequest.of(0, 10));
+
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(page.getContent()).extracting("username").containsExactly("flightPage0");
+        Assertions.assertThatThrownBy(() -> page.getContent().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static double saved(SimpleMeterRegistry meterRegistry) {
+        return meterRegistry.get("member.search.coalescing").tag("result", "saved").functionCounter().count();
+    }
+}
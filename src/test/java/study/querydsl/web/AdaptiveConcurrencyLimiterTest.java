@@ -0,0 +1,154 @@
+package study.querydsl.web;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final int POOL_SIZE = 4;        // 커넥션 풀 크기
+    private static final long QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);     // 쿼리 1건 처리 시간
+    private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);     // 거절된 클라이언트의 재시도 간격
+    private static final long DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(1500);
+    private static final int CLIENTS = 64;         // 풀의 16배 동시 요청 → 과부하
+
+    @Test
+    public void shedLoadWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+        Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        Assertions.assertThat(limiter.tryAcquire()).isTrue();
+        Assertions.assertThat(limiter.tryAcquire()).isFalse();
+        Assertions.assertThat(limiter.getRejections()).isEqualTo(1);
+
+        limiter.onFailure();
+        Assertions.assertThat(limiter.getInFlight()).isEqualTo(1);
+        Assertions.assertThat(limiter.getLimit()).isEqualTo(1);
+    }
+
+    /**
+     * 지연이 평소 수준인 부하가 RTT_WINDOW 를 여러 번 넘겨도 한도를 줄이지 않는다 (포화일 때만 절반으로 내려 다시 잰다)
+     */
+    @Test
+    public void steadyLoadKeepsLimitAcrossWindows() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 200);
+        int concurrent = 8;
+        for (int round = 0; round < 1000; round++) { // 8000 건 = 구간 16 개
+            for (int i = 0; i < concurrent; i++) {
+                Assertions.assertThat(limiter.tryAcquire()).isTrue();
+            }
+            for (int i = 0; i < concurrent; i++) {
+                limiter.onSuccess(QUERY_NANOS + i * 1000L);
+            }
+        }
+        Assertions.assertThat(limiter.getRejections()).isZero();
+        Assertions.assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+
+    /**
+     * 커넥션 풀(4개)에 64개 클라이언트가 몰리는 상황을 가상 시계로 시뮬레이션한다 (벽시계/스레드 없이 결정적)
+     * limiter 가 없으면 모든 요청이 풀 대기열에 쌓여 p99 가 계속 늘어나고,
+     * limiter 가 있으면 초과분을 바로 거절해서 받아들인 요청의 p99 가 유지된다
+     */
+    @Test
+    public void p99StaysBoundedUnderOverload() {
+        long unlimitedP99 = p99(new Simulation(null).run());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 2, 200);
+        long limitedP99 = p99(new Simulation(limiter).run());
+
+        System.out.println("p99 without limiter = " + unlimitedP99 / 1000 + "us, with limiter = " + limitedP99 / 1000
+                + "us, limit = " + limiter.getLimit() + ", rejected = " + limiter.getRejections());
+        // limiter 가 없으면 64개가 4개 풀 앞에 줄을 선다 (쿼리 16건 분량)
+        Assertions.assertThat(unlimitedP99).isGreaterThanOrEqualTo(CLIENTS / POOL_SIZE * QUERY_NANOS);
+        Assertions.assertThat(limitedP99).isLessThan(unlimitedP99 / 2);
+        Assertions.assertThat(limiter.getRejections()).isPositive();
+        Assertions.assertThat(limiter.getLimit()).isLessThan(20);
+    }
+
+    private static long p99(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) (sorted.size() * 0.99));
+    }
+
+    /**
+     * 이벤트 기반 시뮬레이션: 시각(나노초)은 이벤트 큐에서만 흐른다
+     * - 클라이언트는 응답을 받으면 바로 다음 요청을 보내고, 거절되면 RETRY_NANOS 뒤에 다시 보낸다
+     * - 풀이 꽉 차면 FIFO 로 기다린다 (지연 = 풀 대기 + 쿼리 시간)
+     */
+    private static class Simulation {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final PriorityQueue<Event> events = new PriorityQueue<>(
+                Comparator.comparingLong(Event::at).thenComparingLong(Event::seq));
+        private final ArrayDeque<Long> waiting = new ArrayDeque<>();
+        private final List<Long> latencies = new ArrayList<>();
+        private int freeConnections = POOL_SIZE;
+        private long seq;
+
+        Simulation(AdaptiveConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        List<Long> run() {
+            for (int i = 0; i < CLIENTS; i++) {
+                schedule(0, -1);
+            }
+            while (!events.isEmpty()) {
+                Event event = events.poll();
+                if (event.requestStart() < 0) {
+                    request(event.at());
+                } else {
+                    complete(event.at(), event.requestStart());
+                }
+            }
+            return latencies;
+        }
+
+        private void request(long now) {
+            if (now >= DURATION_NANOS) {
+                return;
+            }
+            if (limiter != null && !limiter.tryAcquire()) {
+                schedule(now + RETRY_NANOS, -1);
+                return;
+            }
+            if (freeConnections > 0) {
+                freeConnections--;
+                schedule(now + QUERY_NANOS, now);
+            } else {
+                waiting.add(now);
+            }
+        }
+
+        private void complete(long now, long requestStart) {
+            long elapsed = now - requestStart;
+            latencies.add(elapsed);
+            if (limiter != null) {
+                limiter.onSuccess(elapsed);
+            }
+            Long next = waiting.poll();
+            if (next != null) {
+                schedule(now + QUERY_NANOS, next);
+            } else {
+                freeConnections++;
+            }
+            schedule(now, -1);
+        }
+
+        private void schedule(long at, long requestStart) {
+            events.add(new Event(at, seq++, requestStart));
+        }
+    }
+
+    /**
+     * requestStart 가 -1 이면 클라이언트의 요청 시도, 아니면 그 시각에 시작한 요청의 쿼리 완료
+     */
+    private record Event(long at, long seq, long requestStart) {
+    }
+}
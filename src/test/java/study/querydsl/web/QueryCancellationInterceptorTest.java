@@ -0,0 +1,110 @@
+package study.querydsl.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.AsyncListener;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 검색 스레드 풀을 1개, 대기열을 0 으로 줄여서
+ * 실행 중인 요청이 있으면 다음 요청은 바로 503, 실행 중인 요청의 클라이언트가 끊기면 DB 쿼리가 취소되는지 본다
+ */
+@SpringBootTest(properties = {
+        "querydsl.search.async.pool-size=1",
+        "querydsl.search.async.queue-capacity=0"})
+@AutoConfigureMockMvc
+class QueryCancellationInterceptorTest {
+    // 수십 초 이상 걸리는 쿼리
+    private static final String SLOW_SQL = "select sum(x) from system_range(1, 100000000000)";
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void clientDisconnectCancelsStatement() throws Exception {
+        double cancelledBefore = meterRegistry.counter("member.search.query.cancelled").count();
+        double timeoutBefore = meterRegistry.counter("member.search.query.timeout").count();
+
+        MvcResult running = mockMvc.perform(get("/test/slow-query"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Thread.sleep(300);
+
+        // 스레드 1개가 사용 중이고 대기열이 없으므로 바로 거절
+        // 거절되면 preProcess 가 불리지 않아 MvcResult 에 async 결과가 없다 → asyncDispatch 대신 직접 다시 dispatch 한다
+        MvcResult rejected = mockMvc.perform(get("/test/slow-query")).andReturn();
+        Assertions.assertThat(WebAsyncUtils.getAsyncManager(rejected.getRequest()).getConcurrentResult())
+                .isInstanceOf(TaskRejectedException.class);
+        mockMvc.perform(servletContext -> {
+                    MockHttpServletRequest dispatch = rejected.getRequest();
+                    dispatch.setDispatcherType(DispatcherType.ASYNC);
+                    dispatch.setAsyncStarted(false);
+                    return dispatch;
+                })
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        // 클라이언트 연결 종료 (컨테이너가 AsyncListener.onError 로 알린다)
+        MockAsyncContext asyncContext = (MockAsyncContext) running.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("member.search.query.cancelled").count() == cancelledBefore
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertThat(meterRegistry.counter("member.search.query.cancelled").count())
+                .isEqualTo(cancelledBefore + 1);
+        Assertions.assertThat(meterRegistry.counter("member.search.query.timeout").count()).isEqualTo(timeoutBefore);
+    }
+
+    @TestConfiguration
+    static class SlowQueryConfig {
+        @Bean
+        SlowQueryController slowQueryController(EntityManager em) {
+            return new SlowQueryController(em);
+        }
+    }
+
+    @RestController
+    static class SlowQueryController {
+        private final EntityManager em;
+
+        SlowQueryController(EntityManager em) {
+            this.em = em;
+        }
+
+        @GetMapping("/test/slow-query")
+        public Callable<Object> slowQuery() {
+            return () -> em.createNativeQuery(SLOW_SQL).getSingleResult();
+        }
+    }
+}
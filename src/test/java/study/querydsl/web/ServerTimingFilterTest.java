@@ -0,0 +1,63 @@
+package study.querydsl.web;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import study.querydsl.monitor.ServerTiming;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 본문을 버퍼에 모으지 않고 바로 내보내고, serialize 가 들어간 값은 trailer 로 보내는지 본다
+ * - MockHttpServletResponse 는 trailer 를 저장하지 않으므로 setTrailerFields 로 받은 supplier 를 직접 부른다
+ */
+class ServerTimingFilterTest {
+
+    @Test
+    public void streamsBodyAndSendsSerializeAsTrailer() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/members");
+        request.addHeader(HttpHeaders.TE, "trailers");
+        TrailerCapturingResponse response = new TrailerCapturingResponse();
+
+        new ServerTimingFilter().doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                ServerTiming.serializationStarted();
+                res.getOutputStream().write("[".getBytes(StandardCharsets.UTF_8));
+                res.getOutputStream().flush();
+                // 필터가 본문을 붙잡고 있지 않으므로 flush 하면 바로 커밋된다
+                Assertions.assertThat(res.isCommitted()).isTrue();
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                res.getOutputStream().write("]".getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+
+        Assertions.assertThat(response.getContentAsString()).isEqualTo("[]");
+        Assertions.assertThat(response.getHeader(HttpHeaders.TRAILER)).isEqualTo(ServerTiming.HEADER);
+        Assertions.assertThat(response.trailers).isNotNull();
+        Assertions.assertThat(response.trailers.get().get(ServerTiming.HEADER))
+                .contains("serialize;dur=", "total;dur=");
+    }
+
+    private static class TrailerCapturingResponse extends MockHttpServletResponse {
+        Supplier<Map<String, String>> trailers;
+
+        @Override
+        public void setTrailerFields(Supplier<Map<String, String>> supplier) {
+            this.trailers = supplier;
+        }
+    }
+}